@@ -5,6 +5,12 @@ package cz.smarteon.loxone;
  */
 public interface AuthListener {
 
+    /**
+     * Event triggered when the key exchange is done and the token has been requested (acquired or refreshed).
+     */
+    default void tokenRequested() {
+    }
+
     /**
      * Event triggered when authentication is completed and underlying websocket connection can be used send authorized
      * commands.
@@ -0,0 +1,151 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.DaytimerEvent;
+import cz.smarteon.loxone.message.LoxoneEvent;
+import cz.smarteon.loxone.message.TextEvent;
+import cz.smarteon.loxone.message.ValueEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Wraps the slow {@link LoxoneEventListener}, passing it only the latest event of each uuid. Events are kept in one
+ * pending slot per uuid, the newer event overwrites the pending one (which is counted as dropped, see
+ * {@link #getDroppedEvents()}). So the memory is bounded by the number of uuids, not by the event rate.
+ * <p>
+ * The pending events are passed to the delegate in the order their uuids became pending, either by calling
+ * {@link #drain()} (e.g. periodically by the consumer) or, when created with {@link Executor}, automatically by the
+ * task run by the executor whenever there are pending events. At most one task runs at a time, so the events coalesce
+ * while the delegate is busy.
+ */
+public class CoalescingEventListener implements LoxoneEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CoalescingEventListener.class);
+
+    private final LoxoneEventListener delegate;
+    private final Executor executor;
+
+    private final ConcurrentHashMap<LoxoneUuid, LoxoneEvent> pending = new ConcurrentHashMap<>();
+    private final Queue<LoxoneUuid> pendingOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * Creates new instance, drained by {@link #drain()} only.
+     * @param delegate listener receiving the coalesced events
+     */
+    public CoalescingEventListener(final @NotNull LoxoneEventListener delegate) {
+        this(delegate, null);
+    }
+
+    /**
+     * Creates new instance, drained automatically by the given executor.
+     * @param delegate listener receiving the coalesced events
+     * @param executor executor of the drain task, null to drain by {@link #drain()} only
+     */
+    public CoalescingEventListener(final @NotNull LoxoneEventListener delegate, final @Nullable Executor executor) {
+        this.delegate = requireNonNull(delegate, "delegate can't be null");
+        this.executor = executor;
+    }
+
+    @Override
+    public void onEvent(final @NotNull ValueEvent event) {
+        coalesce(event);
+    }
+
+    @Override
+    public void onEvent(final @NotNull TextEvent event) {
+        coalesce(event);
+    }
+
+    @Override
+    public void onEvent(final @NotNull DaytimerEvent event) {
+        coalesce(event);
+    }
+
+    @Override
+    public void onEvent(final @NotNull WeatherEvent event) {
+        coalesce(event);
+    }
+
+    /**
+     * Passes all the pending events to the delegate.
+     * @return number of events passed
+     */
+    public int drain() {
+        int drained = 0;
+        LoxoneUuid uuid;
+        while ((uuid = pendingOrder.poll()) != null) {
+            final LoxoneEvent event = pending.remove(uuid);
+            if (event != null) {
+                deliver(event);
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Number of events overwritten by newer event of the same uuid before passed to the delegate.
+     * @return number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Number of events waiting to be passed to the delegate.
+     * @return number of pending events
+     */
+    public int getPendingEvents() {
+        return pending.size();
+    }
+
+    private void coalesce(final LoxoneEvent event) {
+        if (pending.put(event.getUuid(), event) == null) {
+            pendingOrder.add(event.getUuid());
+            scheduleDrain();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (executor != null && wip.getAndIncrement() == 0) {
+            executor.execute(() -> {
+                int missed = 1;
+                do {
+                    drain();
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            });
+        }
+    }
+
+    private void deliver(final LoxoneEvent event) {
+        try {
+            if (event instanceof ValueEvent) {
+                delegate.onEvent((ValueEvent) event);
+            } else if (event instanceof TextEvent) {
+                delegate.onEvent((TextEvent) event);
+            } else if (event instanceof DaytimerEvent) {
+                delegate.onEvent((DaytimerEvent) event);
+            } else if (event instanceof WeatherEvent) {
+                delegate.onEvent((WeatherEvent) event);
+            }
+        } catch (RuntimeException e) {
+            log.error("Event listener failed to process " + event, e);
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package cz.smarteon.loxone;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import cz.smarteon.loxone.app.Control;
+import cz.smarteon.loxone.app.LoxoneApp;
+import cz.smarteon.loxone.app.MiniserverInfo;
+import cz.smarteon.loxone.app.Room;
+import cz.smarteon.loxone.message.DaytimerEntry;
+import cz.smarteon.loxone.message.DaytimerEvent;
 import cz.smarteon.loxone.message.LoxoneMessage;
 import cz.smarteon.loxone.message.MessageHeader;
 import cz.smarteon.loxone.message.MessageKind;
 import cz.smarteon.loxone.message.TextEvent;
 import cz.smarteon.loxone.message.ValueEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,9 +32,11 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.BitSet;
 import java.util.Collection;
-import java.util.Formatter;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import static com.fasterxml.jackson.core.JsonParser.Feature.ALLOW_UNQUOTED_CONTROL_CHARS;
 import static com.fasterxml.jackson.databind.MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES;
@@ -45,6 +58,7 @@ public abstract class Codec {
     private static XmlMapper XML = new XmlMapper().setDefaultUseWrapper(false);
 
     private static final char SEPARATOR = ':';
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     static String concat(String first, String second) {
         return first + SEPARATOR + second;
@@ -71,21 +85,52 @@ public abstract class Codec {
      */
     public static byte[] hexToBytes(String hex) {
         final byte[] decoded = new byte[hex.length() / 2];
-        for (int i = 0; i < hex.length(); i += 2) {
-            decoded[i / 2] = (byte) Integer.parseInt(hex.substring(i, i + 2), 16);
+        for (int i = 0; i < decoded.length; i++) {
+            final int high = hexDigit(hex.charAt(2 * i));
+            final int low = hexDigit(hex.charAt(2 * i + 1));
+            if (high < 0 || low < 0) {
+                throw new NumberFormatException("Invalid hex string " + hex);
+            }
+            decoded[i] = (byte) ((high << 4) | low);
         }
         return decoded;
     }
 
     public static String bytesToHex(byte[] bytes) {
-        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            writeHex(chars, 2 * i, bytes[i], 2);
+        }
+        return new String(chars);
+    }
 
-        Formatter formatter = new Formatter(sb);
-        for (byte b : bytes) {
-            formatter.format("%02x", b);
+    /**
+     * Value of given hex digit (both lower and upper case allowed).
+     * @param c hex digit
+     * @return digit value or -1 if the char is not hex digit
+     */
+    static int hexDigit(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
         }
+        return -1;
+    }
 
-        return sb.toString();
+    /**
+     * Writes lowest digits of given value as lower case hex to given chars.
+     * @param chars chars to write to
+     * @param offset position of the first digit
+     * @param value value to write
+     * @param digits number of digits to write
+     */
+    static void writeHex(final char[] chars, final int offset, final long value, final int digits) {
+        for (int i = 0; i < digits; i++) {
+            chars[offset + i] = HEX_DIGITS[(int) (value >>> ((digits - 1 - i) * 4)) & 0xf];
+        }
     }
 
     /**
@@ -122,13 +167,116 @@ public abstract class Codec {
     }
 
     public static <T> T readMessage(final String message, final Class<T> clazz) throws IOException {
+        if (LoxoneApp.class.equals(clazz)) {
+            return clazz.cast(readLoxoneApp(message));
+        }
         return MAPPER.readValue(message, clazz);
     }
 
     public static <T> T readMessage(final InputStream message, final Class<T> clazz) throws IOException {
+        if (LoxoneApp.class.equals(clazz)) {
+            return clazz.cast(readLoxoneApp(message));
+        }
         return MAPPER.readValue(message, clazz);
     }
 
+    /**
+     * Reads the {@link LoxoneApp} incrementally. Rooms and controls are bound one by one as the tokens arrive and the
+     * sections of the structure file not used by {@link LoxoneApp} are skipped without being bound.
+     * @param message structure file (LoxAPP3.json) content
+     * @return loxone application
+     * @throws IOException in case the message is not valid structure file
+     */
+    @NotNull
+    public static LoxoneApp readLoxoneApp(final @NotNull String message) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(message)) {
+            return readLoxoneApp(parser);
+        }
+    }
+
+    /**
+     * Reads the {@link LoxoneApp} incrementally from UTF-8 encoded bytes, see {@link #readLoxoneApp(String)}.
+     * @param message structure file (LoxAPP3.json) content, not closed
+     * @return loxone application
+     * @throws IOException in case the message can't be read or is not valid structure file
+     */
+    @NotNull
+    public static LoxoneApp readLoxoneApp(final @NotNull InputStream message) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(message)) {
+            return readLoxoneApp(parser);
+        }
+    }
+
+    private static LoxoneApp readLoxoneApp(final JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(parser, "Structure file is expected to be JSON object");
+        }
+        Date lastModified = null;
+        MiniserverInfo miniserverInfo = null;
+        Map<LoxoneUuid, Room> rooms = null;
+        Map<LoxoneUuid, Control> controls = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("lastModified".equalsIgnoreCase(field)) {
+                lastModified = MAPPER.readValue(parser, Date.class);
+            } else if ("msInfo".equalsIgnoreCase(field)) {
+                miniserverInfo = MAPPER.readValue(parser, MiniserverInfo.class);
+            } else if ("rooms".equalsIgnoreCase(field)) {
+                rooms = readUuidMap(parser, Room.class);
+            } else if ("controls".equalsIgnoreCase(field)) {
+                controls = readUuidMap(parser, Control.class);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (lastModified == null || miniserverInfo == null || rooms == null || controls == null) {
+            throw JsonMappingException.from(parser,
+                    "Structure file has to contain lastModified, msInfo, rooms and controls");
+        }
+        return new LoxoneApp(lastModified, miniserverInfo, rooms, controls);
+    }
+
+    private static <T> Map<LoxoneUuid, T> readUuidMap(final JsonParser parser, final Class<T> valueType)
+            throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(parser, "Expected JSON object of " + valueType.getSimpleName());
+        }
+        final Map<LoxoneUuid, T> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final LoxoneUuid uuid = new LoxoneUuid(parser.getCurrentName());
+            parser.nextToken();
+            map.put(uuid, MAPPER.readValue(parser, valueType));
+        }
+        return map;
+    }
+
+    /**
+     * Reads the control path of given {@link LoxoneMessage} without parsing the whole message. Only the beginning
+     * of the message is read, so it's cheap even for large messages, which are not {@link LoxoneMessage} at all.
+     * @param message message to read the control from
+     * @return control of the message or null in case the message is not {@link LoxoneMessage}
+     * @throws IOException in case the message is not valid JSON
+     */
+    @Nullable
+    public static String readControl(final @NotNull String message) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(message)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT
+                    && parser.nextToken() == JsonToken.FIELD_NAME && "LL".equals(parser.getCurrentName())
+                    && parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String field = parser.getCurrentName();
+                    final JsonToken value = parser.nextToken();
+                    if ("control".equalsIgnoreCase(field) && value == JsonToken.VALUE_STRING) {
+                        return parser.getText();
+                    }
+                    parser.skipChildren();
+                }
+            }
+            return null;
+        }
+    }
+
     public static <T> T readXml(final InputStream xml, final Class<T> clazz) throws IOException {
         return XML.readValue(xml, clazz);
     }
@@ -161,24 +309,64 @@ public abstract class Codec {
     }
 
     public static Collection<ValueEvent> readValueEvents(final ByteBuffer buffer) {
+        return readValueEvents(buffer, LoxoneUuidRegistry.empty());
+    }
+
+    /**
+     * Reads the value events, resolving their uuids to the canonical instances of given registry.
+     * @param buffer buffer of value events
+     * @param registry registry of known uuids
+     * @return value events
+     */
+    public static Collection<ValueEvent> readValueEvents(final @NotNull ByteBuffer buffer,
+                                                         final @NotNull LoxoneUuidRegistry registry) {
         buffer.order(ByteOrder.LITTLE_ENDIAN).rewind();
         final List<ValueEvent> events = new ArrayList<>(buffer.limit() / ValueEvent.PAYLOAD_LENGTH);
         while (buffer.position() < buffer.limit()) {
             events.add(new ValueEvent(
-                    readUuid(buffer),
+                    readUuid(buffer, registry),
                     buffer.getDouble()));
         }
         return events;
     }
 
+    /**
+     * Walks the value events in place, passing each of them to the given listener. Nothing is allocated, the buffer
+     * position is not changed.
+     * @param buffer buffer of value events
+     * @param listener listener to receive the values
+     * @return number of value events read
+     */
+    public static int readValueEvents(final @NotNull ByteBuffer buffer, final @NotNull LoxoneValueListener listener) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        final int last = buffer.limit() - ValueEvent.PAYLOAD_LENGTH;
+        int count = 0;
+        for (int position = 0; position <= last; position += ValueEvent.PAYLOAD_LENGTH) {
+            listener.onValue(readUuidHi(buffer, position), readUuidLo(buffer, position), buffer.getDouble(position + 16));
+            count++;
+        }
+        return count;
+    }
+
     public static Collection<TextEvent> readTextEvents(final ByteBuffer buffer) {
+        return readTextEvents(buffer, LoxoneUuidRegistry.empty());
+    }
+
+    /**
+     * Reads the text events, resolving their uuids to the canonical instances of given registry.
+     * @param buffer buffer of text events
+     * @param registry registry of known uuids
+     * @return text events
+     */
+    public static Collection<TextEvent> readTextEvents(final @NotNull ByteBuffer buffer,
+                                                       final @NotNull LoxoneUuidRegistry registry) {
         buffer.order(ByteOrder.LITTLE_ENDIAN).rewind();
         final List<TextEvent> events = new ArrayList<>();
         while (buffer.position() < buffer.limit()) {
             events.add(new TextEvent(
-                    readUuid(buffer),
-                    readUuid(buffer),
-                    new String(readBytes(buffer, Long.valueOf(readUnsingedInt(buffer)).intValue()))));
+                    readUuid(buffer, registry),
+                    readUuid(buffer, registry),
+                    readBytes(buffer, Long.valueOf(readUnsingedInt(buffer)).intValue())));
 
             // text events padded to multiple of 4
             final int padding = buffer.position() % 4;
@@ -189,6 +377,83 @@ public abstract class Codec {
         return events;
     }
 
+    /**
+     * Reads the daytimer events.
+     * @param buffer buffer of daytimer events
+     * @return daytimer events
+     */
+    public static Collection<DaytimerEvent> readDaytimerEvents(final ByteBuffer buffer) {
+        return readDaytimerEvents(buffer, LoxoneUuidRegistry.empty());
+    }
+
+    /**
+     * Reads the daytimer events, resolving their uuids to the canonical instances of given registry. The event
+     * truncated in the middle of its entries is read with the complete entries only.
+     * @param buffer buffer of daytimer events
+     * @param registry registry of known uuids
+     * @return daytimer events
+     */
+    public static Collection<DaytimerEvent> readDaytimerEvents(final @NotNull ByteBuffer buffer,
+                                                               final @NotNull LoxoneUuidRegistry registry) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN).rewind();
+        final List<DaytimerEvent> events = new ArrayList<>();
+        while (buffer.remaining() >= DaytimerEvent.HEADER_LENGTH) {
+            final LoxoneUuid uuid = readUuid(buffer, registry);
+            final double defaultValue = buffer.getDouble();
+            final int declaredEntries = buffer.getInt();
+            // sanitize when less than declared entries actually received
+            final int entriesCount = Math.max(0, Math.min(declaredEntries,
+                    buffer.remaining() / DaytimerEntry.PAYLOAD_LENGTH));
+            final List<DaytimerEntry> entries = new ArrayList<>(entriesCount);
+            for (int i = 0; i < entriesCount; i++) {
+                entries.add(new DaytimerEntry(
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt() != 0,
+                        buffer.getDouble()));
+            }
+            events.add(new DaytimerEvent(uuid, defaultValue, entries));
+        }
+        return events;
+    }
+
+    /**
+     * Reads the weather events.
+     * @param buffer buffer of weather events
+     * @return weather events
+     */
+    public static Collection<WeatherEvent> readWeatherEvents(final ByteBuffer buffer) {
+        return readWeatherEvents(buffer, LoxoneUuidRegistry.empty());
+    }
+
+    /**
+     * Reads the weather events, resolving their uuids to the canonical instances of given registry. The forecast
+     * entries are not copied, the events are views over the given buffer, so it should not be modified later.
+     * The event truncated in the middle of its entries is read with the complete entries only.
+     * @param buffer buffer of weather events
+     * @param registry registry of known uuids
+     * @return weather events
+     */
+    public static Collection<WeatherEvent> readWeatherEvents(final @NotNull ByteBuffer buffer,
+                                                             final @NotNull LoxoneUuidRegistry registry) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN).rewind();
+        final List<WeatherEvent> events = new ArrayList<>(1);
+        while (buffer.remaining() >= WeatherEvent.HEADER_LENGTH) {
+            final LoxoneUuid uuid = readUuid(buffer, registry);
+            final long lastUpdate = readUnsingedInt(buffer);
+            final int declaredEntries = buffer.getInt();
+            // sanitize when less than declared entries actually received
+            final int entriesLength = Math.max(0, Math.min(declaredEntries,
+                    buffer.remaining() / WeatherEvent.ENTRY_LENGTH)) * WeatherEvent.ENTRY_LENGTH;
+            final ByteBuffer entries = buffer.duplicate();
+            entries.limit(buffer.position() + entriesLength);
+            events.add(new WeatherEvent(uuid, lastUpdate, entries.slice()));
+            buffer.position(buffer.position() + entriesLength);
+        }
+        return events;
+    }
+
     public static String toUnsignedIntHex(final long value) {
         return bytesToHex(toUnsignedIntBytes(value));
     }
@@ -205,13 +470,28 @@ public abstract class Codec {
         return ByteBuffer.allocate(4).putInt((int) (value & 0xffffffffL)).array();
     }
 
-    private static LoxoneUuid readUuid(final ByteBuffer buffer) {
-        return new LoxoneUuid(
-                readUnsingedInt(buffer),
-                readUnsignedShort(buffer),
-                readUnsignedShort(buffer),
-                readBytes(buffer, 8));
+    private static LoxoneUuid readUuid(final ByteBuffer buffer, final LoxoneUuidRegistry registry) {
+        final int position = buffer.position();
+        final LoxoneUuid uuid = registry.resolve(readUuidHi(buffer, position), readUuidLo(buffer, position));
+        buffer.position(position + 16);
+        return uuid;
+    }
+
+    /**
+     * Reads higher 64 bits of uuid at given position of little endian buffer, see {@link LoxoneUuid#getHi()}.
+     */
+    static long readUuidHi(final ByteBuffer buffer, final int position) {
+        return ((buffer.getInt(position) & 0xffffffffL) << 32)
+                | ((buffer.getShort(position + 4) & 0xffffL) << 16)
+                | (buffer.getShort(position + 6) & 0xffffL);
+    }
 
+    /**
+     * Reads lower 64 bits of uuid at given position of little endian buffer, see {@link LoxoneUuid#getLo()}.
+     */
+    static long readUuidLo(final ByteBuffer buffer, final int position) {
+        // the last part of uuid is sent as is (big endian)
+        return Long.reverseBytes(buffer.getLong(position + 8));
     }
 
     static byte[] readBytes(final ByteBuffer buffer) {
@@ -0,0 +1,344 @@
+package cz.smarteon.loxone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps at most given number of commands in flight (sent, waiting for response) and queues the rest. The queue is
+ * bounded, the behavior when it's full is given by {@link CommandQueuePolicy}. Queued commands are sent in the order
+ * they were submitted, as soon as the responses of in flight commands are received. While paused, all the submitted
+ * commands are queued (parked) and they are sent once the pipeline is resumed.
+ * <p>
+ * When created with scheduler, the commands which response doesn't come within the response timeout are failed, so the
+ * lost responses don't hold the slots of in flight window forever.
+ */
+class CommandPipeline {
+
+    private final Function<Command<?>, CompletableFuture<?>> sender;
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Queue<QueuedCommand<?, ?>> queue = new ArrayDeque<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private int inFlight = 0;
+    private volatile boolean paused = false;
+
+    private volatile int maxInFlight = Integer.MAX_VALUE;
+    private volatile int capacity = Integer.MAX_VALUE;
+    private volatile CommandQueuePolicy policy = CommandQueuePolicy.BLOCK;
+    private volatile long responseTimeoutMillis = 0;
+
+    /**
+     * Creates new instance, without response timeout
+     * @param sender function actually sending the command, returning the future of command response
+     */
+    CommandPipeline(final @NotNull Function<Command<?>, CompletableFuture<?>> sender) {
+        this(sender, null);
+    }
+
+    /**
+     * Creates new instance
+     * @param sender function actually sending the command, returning the future of command response
+     * @param scheduler scheduler of response timeouts, null means the responses are awaited forever
+     */
+    CommandPipeline(final @NotNull Function<Command<?>, CompletableFuture<?>> sender,
+                    final @Nullable ScheduledExecutorService scheduler) {
+        this.sender = requireNonNull(sender, "sender can't be null");
+        this.scheduler = scheduler;
+    }
+
+    void setMaxInFlight(final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight has to be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        drain();
+    }
+
+    int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    void setCapacity(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity can't be negative");
+        }
+        this.capacity = capacity;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    void setPolicy(final @NotNull CommandQueuePolicy policy) {
+        this.policy = requireNonNull(policy, "policy can't be null");
+    }
+
+    @NotNull
+    CommandQueuePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the time to wait for command response, counted from the command being sent. The command which response
+     * doesn't come in time is failed and its slot in the in flight window is freed. Zero means no timeout. Applies only
+     * when the pipeline has been created with scheduler.
+     * @param responseTimeoutMillis response timeout in milliseconds
+     */
+    void setResponseTimeoutMillis(final long responseTimeoutMillis) {
+        if (responseTimeoutMillis < 0) {
+            throw new IllegalArgumentException("responseTimeoutMillis can't be negative");
+        }
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    /**
+     * Stops sending the commands, all the submitted commands are queued until {@link #resume()}. In flight commands
+     * are not affected.
+     */
+    void pause() {
+        paused = true;
+    }
+
+    /**
+     * Starts sending the queued commands again.
+     */
+    void resume() {
+        paused = false;
+        drain();
+    }
+
+    boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Submits the command to be sent. It's sent immediately if the in flight window allows it, queued otherwise.
+     * @param command command to send
+     * @param <T> type of command response
+     * @return future of command response
+     * @throws LoxoneException in case the queue is full and the policy is {@link CommandQueuePolicy#FAIL_FAST}, or the
+     * thread has been interrupted while blocked by {@link CommandQueuePolicy#BLOCK}
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> submit(final @NotNull Command<T> command) {
+        return submit(command, cmd -> (CompletableFuture<T>) sender.apply(cmd));
+    }
+
+    /**
+     * Submits the command to be sent by the given sender instead of the default one.
+     * @see #submit(Command)
+     * @param command command to send
+     * @param sender function actually sending the command, returning the future of command response
+     * @param <C> type of command
+     * @param <T> type of command response
+     * @return future of command response
+     */
+    @NotNull
+    <C extends Command<T>, T> CompletableFuture<T> submit(final @NotNull C command,
+                                                          final @NotNull Function<C, CompletableFuture<T>> sender) {
+        final QueuedCommand<C, T> queued = new QueuedCommand<>(requireNonNull(command, "command can't be null"),
+                requireNonNull(sender, "sender can't be null"));
+        QueuedCommand<?, ?> dropped = null;
+        lock.lock();
+        try {
+            // only wait for the room in queue when the command can't be sent right now
+            while (queue.size() >= capacity && !(queue.isEmpty() && !paused && inFlight < maxInFlight)) {
+                if (policy == CommandQueuePolicy.FAIL_FAST) {
+                    throw new LoxoneException("Command queue is full, command " + command.getCommand() + " rejected");
+                } else if (policy == CommandQueuePolicy.DROP) {
+                    // there is no queued command to drop, so drop the submitted one
+                    dropped = queue.isEmpty() ? queued : queue.poll();
+                    break;
+                } else {
+                    notFull.await();
+                }
+            }
+            if (dropped != queued) {
+                queue.add(queued);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoxoneException("Interrupted while waiting for free space in command queue", e);
+        } finally {
+            lock.unlock();
+        }
+
+        if (dropped != null) {
+            dropped.future.completeExceptionally(
+                    new LoxoneException("Command queue is full, command " + dropped.command.getCommand() + " dropped"));
+        }
+        drain();
+        return queued.future;
+    }
+
+    /**
+     * Completes all queued commands exceptionally by given cause. In flight commands are not affected.
+     * @param cause cause of the failure
+     */
+    void failQueued(final @NotNull Throwable cause) {
+        final List<QueuedCommand<?, ?>> toFail;
+        lock.lock();
+        try {
+            toFail = new ArrayList<>(queue);
+            queue.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        toFail.forEach(queued -> queued.future.completeExceptionally(cause));
+    }
+
+    /**
+     * @return number of commands sent and waiting for response
+     */
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of commands waiting to be sent
+     */
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Sends queued commands while the window allows it. Trampolined, so the completions triggered synchronously
+     * by sending (e.g. failures) don't recurse.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            QueuedCommand<?, ?> next;
+            while ((next = pollSendable()) != null) {
+                next.send();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private QueuedCommand<?, ?> pollSendable() {
+        lock.lock();
+        try {
+            if (!paused && inFlight < maxInFlight && !queue.isEmpty()) {
+                inFlight++;
+                notFull.signal();
+                return queue.poll();
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class QueuedCommand<C extends Command<T>, T> {
+        private final C command;
+        private final Function<C, CompletableFuture<T>> sender;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private QueuedCommand(final C command, final Function<C, CompletableFuture<T>> sender) {
+            this.command = command;
+            this.sender = sender;
+        }
+
+        private void send() {
+            final CompletableFuture<T> response;
+            try {
+                response = sender.apply(command);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                release();
+                return;
+            }
+            final ScheduledFuture<?> timeout = scheduleTimeout(response);
+            response.whenComplete((value, throwable) -> {
+                if (finish(value, throwable) && timeout != null) {
+                    timeout.cancel(false);
+                }
+            });
+        }
+
+        private ScheduledFuture<?> scheduleTimeout(final CompletableFuture<T> response) {
+            final long timeoutMillis = responseTimeoutMillis;
+            if (scheduler == null || timeoutMillis <= 0) {
+                return null;
+            }
+            try {
+                return scheduler.schedule(() -> {
+                    if (finish(null, new LoxoneException("No response to command " + command.getCommand()
+                            + " within " + timeoutMillis + "ms"))) {
+                        // drops the command waiting for response, so the late response is not matched to it
+                        response.cancel(false);
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // scheduler already shut down, the pipeline is being closed
+                return null;
+            }
+        }
+
+        /**
+         * Completes the command and frees its slot, only the first call (response or timeout) has effect.
+         */
+        private boolean finish(final T value, final Throwable throwable) {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+            } else {
+                future.complete(value);
+            }
+            release();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package cz.smarteon.loxone;
+
+/**
+ * Policy applied when the command is sent through {@link LoxoneWebSocket} while its command queue is full.
+ * @see LoxoneWebSocket#setCommandQueueCapacity(int)
+ */
+public enum CommandQueuePolicy {
+
+    /**
+     * The sending thread is blocked until there is free space in the queue.
+     */
+    BLOCK,
+
+    /**
+     * The command is rejected by throwing {@link LoxoneException} to the sending thread.
+     */
+    FAIL_FAST,
+
+    /**
+     * The oldest queued command is dropped, its future is completed exceptionally by {@link LoxoneException}.
+     */
+    DROP
+}
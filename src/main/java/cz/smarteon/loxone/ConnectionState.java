@@ -0,0 +1,34 @@
+package cz.smarteon.loxone;
+
+/**
+ * State of {@link LoxoneWebSocket} connection. The connection goes through the states in the declared order, any
+ * failure or close returns it to {@link #DISCONNECTED}.
+ * @see LoxoneWebSocket#getConnectionState()
+ */
+public enum ConnectionState {
+
+    /**
+     * There is no connection, it's established on the next command sent (or by auto restart).
+     */
+    DISCONNECTED,
+
+    /**
+     * The web socket connection is being opened.
+     */
+    CONNECTING,
+
+    /**
+     * The web socket is open, the session key is being exchanged.
+     */
+    KEY_EXCHANGE,
+
+    /**
+     * The token is being acquired or refreshed.
+     */
+    TOKEN,
+
+    /**
+     * The connection is authenticated, commands are sent.
+     */
+    READY
+}
@@ -0,0 +1,171 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.DaytimerEvent;
+import cz.smarteon.loxone.message.LoxoneEvent;
+import cz.smarteon.loxone.message.TextEvent;
+import cz.smarteon.loxone.message.ValueEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of {@link LoxoneEventListener}s subscribed to the events of particular uuids. The event is passed only to the
+ * listeners subscribed to its uuid, so the dispatch cost is given by the number of interested listeners, not by the
+ * number of all the listeners.
+ * <p>
+ * Subscribing rebuilds the index, which is then read without locking. Expects the subscriptions are changed rarely
+ * compared to the events dispatched.
+ */
+class EventSubscriptions {
+
+    private static final LoxoneEventListener[] NO_LISTENERS = new LoxoneEventListener[0];
+
+    private final Map<LoxoneUuid, List<LoxoneEventListener>> subscriptions = new LinkedHashMap<>();
+
+    private volatile Index index = new Index(LoxoneUuidRegistry.empty(), new LoxoneEventListener[0][]);
+
+    /**
+     * Subscribes the listener to the events of given uuid. Subscribing the same listener to the same uuid again
+     * has no effect.
+     * @param uuid uuid of events
+     * @param listener listener to subscribe
+     */
+    void subscribe(final @NotNull LoxoneUuid uuid, final @NotNull LoxoneEventListener listener) {
+        subscribe(Collections.singletonList(requireNonNull(uuid, "uuid can't be null")), listener);
+    }
+
+    /**
+     * Subscribes the listener to the events of all given uuids, the index is rebuilt only once. Subscribing the same
+     * listener to the same uuid again has no effect.
+     * @param uuids uuids of events
+     * @param listener listener to subscribe
+     */
+    synchronized void subscribe(final @NotNull Collection<LoxoneUuid> uuids,
+                                final @NotNull LoxoneEventListener listener) {
+        requireNonNull(uuids, "uuids can't be null");
+        requireNonNull(listener, "listener can't be null");
+        boolean changed = false;
+        for (LoxoneUuid uuid : uuids) {
+            final List<LoxoneEventListener> subscribed = subscriptions.computeIfAbsent(
+                    requireNonNull(uuid, "uuid can't be null"), key -> new ArrayList<>(1));
+            if (!subscribed.contains(listener)) {
+                subscribed.add(listener);
+                changed = true;
+            }
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Cancels all the subscriptions of given listener.
+     * @param listener listener to unsubscribe
+     */
+    synchronized void unsubscribe(final @NotNull LoxoneEventListener listener) {
+        requireNonNull(listener, "listener can't be null");
+        boolean changed = false;
+        final Iterator<List<LoxoneEventListener>> iterator = subscriptions.values().iterator();
+        while (iterator.hasNext()) {
+            final List<LoxoneEventListener> subscribed = iterator.next();
+            changed |= subscribed.remove(listener);
+            if (subscribed.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Cancels all the subscriptions of given uuids.
+     * @param uuids uuids to cancel the subscriptions of
+     */
+    synchronized void unsubscribeAll(final @NotNull Collection<LoxoneUuid> uuids) {
+        requireNonNull(uuids, "uuids can't be null");
+        if (subscriptions.keySet().removeAll(uuids)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return true if there is no subscription
+     */
+    boolean isEmpty() {
+        return index.uuids.size() == 0;
+    }
+
+    /**
+     * Canonical instance of subscribed uuid of given bits.
+     * @param hi higher 64 bits of uuid
+     * @param lo lower 64 bits of uuid
+     * @return subscribed uuid or null if there is no subscription of such uuid
+     */
+    @Nullable
+    LoxoneUuid subscribed(final long hi, final long lo) {
+        return index.uuids.get(hi, lo);
+    }
+
+    /**
+     * Passes the event to the listeners subscribed to its uuid.
+     * @param event event to pass
+     */
+    void notify(final @NotNull LoxoneEvent event) {
+        final LoxoneEventListener[] subscribed = listenersOf(event.getUuid());
+        if (event instanceof ValueEvent) {
+            for (LoxoneEventListener listener : subscribed) {
+                listener.onEvent((ValueEvent) event);
+            }
+        } else if (event instanceof TextEvent) {
+            for (LoxoneEventListener listener : subscribed) {
+                listener.onEvent((TextEvent) event);
+            }
+        } else if (event instanceof DaytimerEvent) {
+            for (LoxoneEventListener listener : subscribed) {
+                listener.onEvent((DaytimerEvent) event);
+            }
+        } else if (event instanceof WeatherEvent) {
+            for (LoxoneEventListener listener : subscribed) {
+                listener.onEvent((WeatherEvent) event);
+            }
+        }
+    }
+
+    private LoxoneEventListener[] listenersOf(final LoxoneUuid uuid) {
+        final Index current = index;
+        final int uuidIndex = current.uuids.indexOf(uuid);
+        return uuidIndex >= 0 ? current.listeners[uuidIndex] : NO_LISTENERS;
+    }
+
+    private void rebuild() {
+        final LoxoneUuidRegistry rebuiltUuids = LoxoneUuidRegistry.of(subscriptions.keySet());
+        final LoxoneEventListener[][] rebuiltListeners = new LoxoneEventListener[rebuiltUuids.size()][];
+        int i = 0;
+        for (List<LoxoneEventListener> subscribed : subscriptions.values()) {
+            rebuiltListeners[i++] = subscribed.toArray(NO_LISTENERS);
+        }
+        index = new Index(rebuiltUuids, rebuiltListeners);
+    }
+
+    private static final class Index {
+        private final LoxoneUuidRegistry uuids;
+        // listeners subscribed to uuid of given index in uuids registry
+        private final LoxoneEventListener[][] listeners;
+
+        private Index(final LoxoneUuidRegistry uuids, final LoxoneEventListener[][] listeners) {
+            this.uuids = uuids;
+            this.listeners = listeners;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.app.MiniserverType;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.channels.WritableByteChannel;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Command downloading the file from miniserver through web socket. The file content, responded as
+ * {@link cz.smarteon.loxone.message.MessageKind#FILE} message, is written to the channel instead of being processed as
+ * response. The command response is the number of bytes written.
+ * @see LoxoneWebSocket#download(String, WritableByteChannel)
+ */
+class FileCommand extends Command<Long> {
+
+    private final WritableByteChannel channel;
+
+    /**
+     * Creates new instance
+     * @param path path of the file to download, e.g. "data/LoxAPP3.json"
+     * @param channel channel to write the file content to
+     */
+    FileCommand(final @NotNull String path, final @NotNull WritableByteChannel channel) {
+        super(requireNonNull(path, "path can't be null"), null, Long.class, false, true, MiniserverType.KNOWN);
+        this.channel = requireNonNull(channel, "channel can't be null");
+    }
+
+    @NotNull
+    WritableByteChannel getChannel() {
+        return channel;
+    }
+}
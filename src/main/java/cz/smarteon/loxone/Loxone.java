@@ -2,18 +2,36 @@ package cz.smarteon.loxone;
 
 import cz.smarteon.loxone.app.Control;
 import cz.smarteon.loxone.app.LoxoneApp;
+import cz.smarteon.loxone.app.LoxoneAppDiff;
+import cz.smarteon.loxone.message.ApiInfo;
 import cz.smarteon.loxone.message.ControlCommand;
+import cz.smarteon.loxone.message.DateValue;
 import cz.smarteon.loxone.message.JsonValue;
+import cz.smarteon.loxone.message.LoxoneMessage;
+import cz.smarteon.loxone.message.LoxoneMessageCommand;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static cz.smarteon.loxone.message.ControlCommand.genericControlCommand;
 import static java.util.Objects.requireNonNull;
@@ -26,6 +44,9 @@ import static java.util.Objects.requireNonNull;
  * allows to listen for newly fetched {@link LoxoneApp} using {@link LoxoneAppListener}, set by
  * {@link #registerLoxoneAppListener(LoxoneAppListener)}.
  *
+ * Optionally keeps the fetched {@link LoxoneApp} in {@link LoxoneAppCache}, set by
+ * {@link #setAppCache(LoxoneAppCache)}, so it's downloaded only when changed.
+ *
  * Allows to configure the connection to receive update events using {@link #setEventsEnabled(boolean)}. Use
  * {@link LoxoneWebSocket#registerListener(LoxoneEventListener)} to listen for those events.
  *
@@ -38,13 +59,25 @@ public class Loxone {
     private final LoxoneHttp loxoneHttp;
     private final LoxoneWebSocket loxoneWebSocket;
     private final LoxoneAuth loxoneAuth;
+    private final LoxoneStateStore stateStore = new LoxoneStateStore();
 
     private final List<LoxoneAppListener> loxoneAppListeners = new LinkedList<>();
-    private final LoxoneWebSocketListener webSocketListener = this::start;
+    private final Map<Class<? extends Control>, List<LoxoneEventListener>> controlTypeSubscriptions =
+            new LinkedHashMap<>();
+    private final Map<Class<? extends Control>, ValueFilter> controlTypeFilters = new LinkedHashMap<>();
+    // refetch without waiting, the commands are parked until the restarted web socket is authenticated
+    private final LoxoneWebSocketListener webSocketListener = () -> checkAppVersion().thenRun(this::enableEvents)
+            .whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    log.error("Loxone application refetch failed", throwable);
+                }
+            });
 
-    private CountDownLatch appLatch;
     private LoxoneApp loxoneApp;
+    private LoxoneAppCache appCache;
     private boolean eventsEnabled = false;
+    private int appVersionPollingSeconds = 0;
+    private ScheduledFuture<?> appVersionPolling;
 
     /**
      * Creates new instance of given endpoint, user, password and visualization password.
@@ -62,6 +95,28 @@ public class Loxone {
         init();
     }
 
+    /**
+     * Creates new instance of given endpoint, user, password and visualization password, using the given executors for
+     * web socket tasks. Allows to share the threads among many instances, see
+     * {@link LoxoneWebSocket#LoxoneWebSocket(LoxoneEndpoint, LoxoneAuth, ScheduledExecutorService, Executor)}.
+     * @param endpoint endpoint, can't be null
+     * @param user user name, can't be null
+     * @param pass password, can't be null
+     * @param visuPass visualization password, can't be null
+     * @param scheduler scheduler of web socket timeouts, keepalive and token refresh, can't be null
+     * @param dispatchExecutor executor of web socket connection, authentication and application loading tasks, which
+     *                         may block, can't be null
+     */
+    public Loxone(final @NotNull LoxoneEndpoint endpoint,
+                  final @NotNull String user, final @NotNull String pass, final @NotNull String visuPass,
+                  final @NotNull ScheduledExecutorService scheduler, final @NotNull Executor dispatchExecutor) {
+        // parameters checked in the constructors below
+        this.loxoneHttp = new LoxoneHttp(endpoint);
+        this.loxoneAuth = new LoxoneAuth(loxoneHttp, user, pass, visuPass);
+        this.loxoneWebSocket = new LoxoneWebSocket(endpoint, loxoneAuth, scheduler, dispatchExecutor);
+        init();
+    }
+
     @TestOnly
     Loxone(final @NotNull LoxoneHttp loxoneHttp, final @NotNull LoxoneWebSocket loxoneWebSocket,
            final @NotNull LoxoneAuth loxoneAuth) {
@@ -73,6 +128,7 @@ public class Loxone {
 
     private void init() {
         loxoneWebSocket.registerListener(new LoxAppResponseListener());
+        loxoneWebSocket.setStateStore(stateStore);
     }
 
     /**
@@ -89,20 +145,15 @@ public class Loxone {
      * @throws LoxoneException in case something went wrong
      */
     public void start() {
-        appLatch = new CountDownLatch(1);
-        loxoneWebSocket.sendCommand(Command.LOX_APP);
         try {
             final int timeout = loxoneWebSocket.getAuthTimeoutSeconds() * loxoneWebSocket.getRetries() + 1;
-            if (appLatch.await(timeout, TimeUnit.SECONDS)) {
-                log.info("Loxone application fetched");
-                if (eventsEnabled) {
-                    log.info("Signing to receive events");
-                    loxoneWebSocket.sendCommand(Command.ENABLE_STATUS_UPDATE);
-                }
-            } else {
-                log.error("Loxone application wasn't fetched within timeout");
-                throw new LoxoneException("Loxone application wasn't fetched within timeout");
-            }
+            fetchApp().get(timeout, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.error("Loxone application wasn't fetched within timeout");
+            throw new LoxoneException("Loxone application wasn't fetched within timeout");
+        } catch (ExecutionException e) {
+            log.error("Loxone application fetch failed", e.getCause());
+            throw new LoxoneException("Loxone application fetch failed", e.getCause());
         } catch (InterruptedException e) {
             log.error("Interrupted while waiting for loxone application fetch", e);
             throw new LoxoneException("Interrupted while waiting for loxone application fetch", e);
@@ -110,6 +161,128 @@ public class Loxone {
 
         // let's listen to next websocket open event ie when websocket was restarted
         webSocket().registerWebSocketListener(webSocketListener);
+
+        if (appVersionPollingSeconds > 0) {
+            appVersionPolling = loxoneWebSocket.scheduler.scheduleAtFixedRate(
+                    () -> checkAppVersion().whenComplete((changed, throwable) -> {
+                        if (throwable != null) {
+                            log.error("Loxone application version check failed", throwable);
+                        }
+                    }),
+                    appVersionPollingSeconds, appVersionPollingSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Asks for the last modification date of the {@link LoxoneApp} and fetches it in case it has changed. The
+     * registered {@link LoxoneAppListener}s then receive the new application together with its difference from the
+     * previous one, see {@link LoxoneAppListener#onLoxoneAppChanged(LoxoneApp, LoxoneAppDiff)}. Done automatically
+     * when the web socket reconnects and periodically when set by {@link #setAppVersionPollingSeconds(int)}.
+     * @return future completed by true if the application has been refetched, false if it's unchanged
+     */
+    @NotNull
+    public CompletableFuture<Boolean> checkAppVersion() {
+        return sendAppVersion().thenCompose(lastModified -> {
+            final LoxoneApp app = loxoneApp;
+            if (app != null && app.getLastModified().equals(lastModified)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            log.info("Loxone application modified at " + lastModified + ", fetching it");
+            final LoxoneAppCache cache = appCache;
+            if (cache != null) {
+                return fetchApp(cache, lastModified).thenApply(ignored -> true);
+            } else {
+                return loxoneWebSocket.sendCommand(Command.LOX_APP).thenApply(ignored -> true);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> fetchApp() {
+        final LoxoneAppCache cache = appCache;
+        final CompletableFuture<?> fetched = cache != null
+                ? sendAppVersion().thenCompose(lastModified -> fetchApp(cache, lastModified))
+                : loxoneWebSocket.sendCommand(Command.LOX_APP);
+        return fetched.thenRun(() -> {
+            log.info("Loxone application fetched");
+            enableEvents();
+        });
+    }
+
+    private void enableEvents() {
+        if (eventsEnabled) {
+            log.info("Signing to receive events");
+            loxoneWebSocket.sendCommand(Command.ENABLE_STATUS_UPDATE);
+        }
+    }
+
+    private CompletableFuture<Date> sendAppVersion() {
+        return loxoneWebSocket.sendCommand(LoxoneMessageCommand.LOX_APP_VERSION).thenApply(message -> {
+            final DateValue version = message.getValue();
+            if (version == null || version.getDate() == null) {
+                throw new LoxoneException("Loxone application version not received, got " + message);
+            }
+            return version.getDate();
+        });
+    }
+
+    private CompletableFuture<Void> fetchApp(final LoxoneAppCache cache, final Date lastModified) {
+        final String serial = serial();
+        final LoxoneApp cached = serial != null ? cache.load(serial, lastModified) : null;
+        if (cached != null) {
+            log.info("Loxone application of " + lastModified + " loaded from cache");
+            appLoaded(cached);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final Path file = cache.newFile();
+        // the download is completed by the web socket read thread, parse the app off it, so the events don't stall
+        return loxoneWebSocket.download(Command.LOX_APP.getCommand(), file)
+                .thenAcceptAsync(written -> appLoaded(cache.store(file)), loxoneWebSocket.getDispatchExecutor());
+    }
+
+    @Nullable
+    private String serial() {
+        final ApiInfo apiInfo = loxoneAuth.getApiInfo();
+        if (apiInfo != null) {
+            return apiInfo.getMac();
+        }
+        final LoxoneApp app = loxoneApp;
+        return app != null ? app.getMiniserverInfo().getSerialNumber() : null;
+    }
+
+    private void appLoaded(final LoxoneApp app) {
+        final LoxoneApp previous = loxoneApp;
+        loxoneApp = app;
+        loxoneWebSocket.setUuidRegistry(app.getUuidRegistry());
+        // keeps the values of the states present in both applications
+        stateStore.load(app.getUuidRegistry());
+        if (previous == null) {
+            subscribeControlTypes(app.getControls().values());
+            filterControlTypes(app.getControls().values());
+            loxoneAppListeners.forEach(listener -> listener.onLoxoneApp(app));
+        } else {
+            final LoxoneAppDiff diff = LoxoneAppDiff.of(previous, app);
+            log.info("Loxone application reloaded: " + diff);
+            // only the added controls and the controls with changed states or type need to be subscribed and filtered
+            // again, the subscriptions and filters (including their last delivered values) of other states are kept
+            if (!diff.getRemovedStates().isEmpty()) {
+                loxoneWebSocket.forget(diff.getRemovedStates());
+            }
+            final List<Control> updated = new ArrayList<>(diff.getAddedControls());
+            diff.getChangedControls().stream()
+                    .filter(change -> change.isStatesChanged() || change.isTypeChanged())
+                    .forEach(change -> updated.add(change.getCurrent()));
+            if (!updated.isEmpty()) {
+                subscribeControlTypes(updated);
+                filterControlTypes(updated);
+            }
+            loxoneAppListeners.forEach(listener -> {
+                listener.onLoxoneApp(app);
+                if (!diff.isEmpty()) {
+                    listener.onLoxoneAppChanged(app, diff);
+                }
+            });
+        }
     }
 
     /**
@@ -149,36 +322,176 @@ public class Loxone {
     }
 
     /**
-     * Send 'pulse' on given control. Use {@link CommandResponseListener} added to {@link #webSocket()} to process the response.
+     * Provides the store of the latest state values, updated by received events (see
+     * {@link #setEventsEnabled(boolean)}). It keeps the states of fetched {@link LoxoneApp}, so it's empty until
+     * the app is fetched.
+     * @return state store
+     */
+    @NotNull
+    public LoxoneStateStore stateStore() {
+        return stateStore;
+    }
+
+    /**
+     * Subscribes the listener to the events of all the states of given control, see
+     * {@link LoxoneWebSocket#subscribe(LoxoneUuid, LoxoneEventListener)}.
+     * @param control control to subscribe to, can't be null
+     * @param listener listener to subscribe, can't be null
+     */
+    public void subscribe(final @NotNull Control control, final @NotNull LoxoneEventListener listener) {
+        requireNonNull(control, "control can't be null");
+        requireNonNull(listener, "listener can't be null");
+        loxoneWebSocket.subscribe(stateUuids(Collections.singletonList(control)), listener);
+    }
+
+    /**
+     * Subscribes the listener to the events of all the states of all the controls of given type. The subscription is
+     * applied to every fetched {@link LoxoneApp}, so it can be done before {@link #start()}.
+     * @param controlType type of controls to subscribe to, can't be null
+     * @param listener listener to subscribe, can't be null
+     */
+    public void subscribe(final @NotNull Class<? extends Control> controlType,
+                          final @NotNull LoxoneEventListener listener) {
+        requireNonNull(controlType, "controlType can't be null");
+        requireNonNull(listener, "listener can't be null");
+        final LoxoneApp app;
+        synchronized (controlTypeSubscriptions) {
+            controlTypeSubscriptions.computeIfAbsent(controlType, type -> new ArrayList<>()).add(listener);
+            app = loxoneApp;
+        }
+        if (app != null) {
+            loxoneWebSocket.subscribe(stateUuids(app.getControls(controlType)), listener);
+        }
+    }
+
+    /**
+     * Cancels all the subscriptions of given listener, made by any of the subscribe methods.
+     * @param listener listener to unsubscribe, can't be null
+     */
+    public void unsubscribe(final @NotNull LoxoneEventListener listener) {
+        requireNonNull(listener, "listener can't be null");
+        synchronized (controlTypeSubscriptions) {
+            controlTypeSubscriptions.values().forEach(listeners -> listeners.remove(listener));
+        }
+        loxoneWebSocket.unsubscribe(listener);
+    }
+
+    private void subscribeControlTypes(final Collection<Control> controls) {
+        synchronized (controlTypeSubscriptions) {
+            controlTypeSubscriptions.forEach((type, listeners) -> {
+                final List<LoxoneUuid> uuids = stateUuids(ofType(controls, type));
+                if (!uuids.isEmpty()) {
+                    listeners.forEach(listener -> loxoneWebSocket.subscribe(uuids, listener));
+                }
+            });
+        }
+    }
+
+    private static List<Control> ofType(final Collection<Control> controls, final Class<? extends Control> type) {
+        return controls.stream().filter(type::isInstance).collect(Collectors.toList());
+    }
+
+    private static List<LoxoneUuid> stateUuids(final Collection<? extends Control> controls) {
+        final List<LoxoneUuid> uuids = new ArrayList<>();
+        for (Control control : controls) {
+            if (control.getStates() != null) {
+                control.getStates().values().forEach(uuids::addAll);
+            }
+        }
+        return uuids;
+    }
+
+    /**
+     * Sets the filter of value events of all the states of given control, see
+     * {@link LoxoneWebSocket#setValueFilter(LoxoneUuid, ValueFilter)}.
+     * @param control control to filter the value events of, can't be null
+     * @param filter filter to set, null to remove the filter
+     */
+    public void setValueFilter(final @NotNull Control control, final @Nullable ValueFilter filter) {
+        requireNonNull(control, "control can't be null");
+        loxoneWebSocket.setValueFilter(stateUuids(Collections.singletonList(control)), filter);
+    }
+
+    /**
+     * Sets the filter of value events of all the states of all the controls of given type. The filter is applied to
+     * every fetched {@link LoxoneApp}, so it can be set before {@link #start()}.
+     * @param controlType type of controls to filter the value events of, can't be null
+     * @param filter filter to set, null to remove the filter
+     */
+    public void setValueFilter(final @NotNull Class<? extends Control> controlType, final @Nullable ValueFilter filter) {
+        requireNonNull(controlType, "controlType can't be null");
+        final LoxoneApp app;
+        synchronized (controlTypeFilters) {
+            if (filter != null) {
+                controlTypeFilters.put(controlType, filter);
+            } else {
+                controlTypeFilters.remove(controlType);
+            }
+            app = loxoneApp;
+        }
+        if (app != null) {
+            loxoneWebSocket.setValueFilter(stateUuids(app.getControls(controlType)), filter);
+        }
+    }
+
+    private void filterControlTypes(final Collection<Control> controls) {
+        synchronized (controlTypeFilters) {
+            controlTypeFilters.forEach((type, filter) -> {
+                final List<LoxoneUuid> uuids = stateUuids(ofType(controls, type));
+                if (!uuids.isEmpty()) {
+                    loxoneWebSocket.setValueFilter(uuids, filter);
+                }
+            });
+        }
+    }
+
+    /**
+     * Send 'pulse' on given control. Use returned future or {@link CommandResponseListener} added to {@link #webSocket()}
+     * to process the response.
      * @param control control to send 'pulse' on, can't be null
+     * @return future of the command response
      */
-    public void sendControlPulse(final @NotNull Control control) {
-        sendControlCommand(control, "Pulse");
+    @NotNull
+    public CompletableFuture<LoxoneMessage<JsonValue>> sendControlPulse(final @NotNull Control control) {
+        return sendControlCommand(control, "Pulse");
     }
 
     /**
-     * Send 'on' on given control. Use {@link CommandResponseListener} added to {@link #webSocket()} to process the response.
+     * Send 'on' on given control. Use returned future or {@link CommandResponseListener} added to {@link #webSocket()}
+     * to process the response.
      * @param control control to send 'on' on, can't be null
+     * @return future of the command response
      */
-    public void sendControlOn(final @NotNull Control control) {
-        sendControlCommand(control, "On");
+    @NotNull
+    public CompletableFuture<LoxoneMessage<JsonValue>> sendControlOn(final @NotNull Control control) {
+        return sendControlCommand(control, "On");
     }
 
     /**
-     * Send 'off' on given control. Use {@link CommandResponseListener} added to {@link #webSocket()} to process the response.
+     * Send 'off' on given control. Use returned future or {@link CommandResponseListener} added to {@link #webSocket()}
+     * to process the response.
      * @param control control to send 'off' on, can't be null
+     * @return future of the command response
      */
-    public void sendControlOff(final @NotNull Control control) {
-        sendControlCommand(control, "Off");
+    @NotNull
+    public CompletableFuture<LoxoneMessage<JsonValue>> sendControlOff(final @NotNull Control control) {
+        return sendControlCommand(control, "Off");
     }
 
-    public void sendControlCommand(final Control control, final String command) {
+    /**
+     * Send the given command on given control, secured in case the control is secured.
+     * @param control control to send the command on, can't be null
+     * @param command command to send
+     * @return future of the command response
+     */
+    @NotNull
+    public CompletableFuture<LoxoneMessage<JsonValue>> sendControlCommand(final Control control, final String command) {
         requireNonNull(control, "control can't be null");
         final ControlCommand<JsonValue> controlCommand = genericControlCommand(control.getUuid().toString(), command);
         if (control.isSecured()) {
-            webSocket().sendSecureCommand(controlCommand);
+            return webSocket().sendSecureCommand(controlCommand);
         } else {
-            webSocket().sendCommand(controlCommand);
+            return webSocket().sendCommand(controlCommand);
         }
     }
 
@@ -188,6 +501,10 @@ public class Loxone {
      * @throws LoxoneException in case the proper close failed
      */
     public void stop() {
+        if (appVersionPolling != null) {
+            appVersionPolling.cancel(false);
+            appVersionPolling = null;
+        }
         loxoneWebSocket.close();
     }
 
@@ -208,15 +525,48 @@ public class Loxone {
         this.eventsEnabled = eventsEnabled;
     }
 
+    /**
+     * Cache of fetched {@link LoxoneApp}, null by default.
+     * @return application cache or null if not set
+     */
+    @Nullable
+    public LoxoneAppCache getAppCache() {
+        return appCache;
+    }
+
+    /**
+     * Sets the cache of fetched {@link LoxoneApp}. When set, the application last modification date is asked first
+     * and the application is downloaded only when there is no cached application of the same date. Changing the value
+     * only has effect before calling {@link #start()} or before the web socket reconnects.
+     * @param appCache application cache, null to always download the application (default)
+     */
+    public void setAppCache(final @Nullable LoxoneAppCache appCache) {
+        this.appCache = appCache;
+    }
+
+    /**
+     * Period of {@link LoxoneApp} version checks, see {@link #checkAppVersion()}. Zero by default, which means the
+     * version is checked only when the web socket reconnects.
+     * @return polling period in seconds
+     */
+    public int getAppVersionPollingSeconds() {
+        return appVersionPollingSeconds;
+    }
+
+    /**
+     * Sets the period of {@link LoxoneApp} version checks, see {@link #checkAppVersion()}. Changing the value only
+     * has effect before calling {@link #start()}.
+     * @param appVersionPollingSeconds polling period in seconds, zero (default) or less to check only on reconnect
+     */
+    public void setAppVersionPollingSeconds(final int appVersionPollingSeconds) {
+        this.appVersionPollingSeconds = appVersionPollingSeconds;
+    }
+
     private class LoxAppResponseListener implements CommandResponseListener<LoxoneApp> {
 
         @Override
         public @NotNull State onCommand(final @NotNull Command<? extends LoxoneApp> command, final @NotNull LoxoneApp message) {
-            loxoneApp = command.ensureResponse(message);
-            if (appLatch != null) {
-                appLatch.countDown();
-            }
-            loxoneAppListeners.forEach(listener -> listener.onLoxoneApp(loxoneApp));
+            appLoaded(command.ensureResponse(message));
             return State.READ;
         }
 
@@ -0,0 +1,157 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.app.LoxoneApp;
+import cz.smarteon.loxone.app.LoxoneAppSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Locale;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Persistent cache of {@link LoxoneApp}, keeping the structure files (LoxAPP3.json) downloaded from miniserver in
+ * given directory, as {@link LoxoneAppSnapshot}s, so the cached application loads without JSON parsing. The files are
+ * keyed by the miniserver serial number and the application last modification date, so the cached application is
+ * valid as long as the miniserver reports the same last modification date (see
+ * {@link cz.smarteon.loxone.message.LoxoneMessageCommand#LOX_APP_VERSION}). Only the latest file of each miniserver
+ * is kept, so the directory can be shared by many miniservers.
+ * <p>
+ * Used by {@link Loxone} when set by {@link Loxone#setAppCache(LoxoneAppCache)}.
+ */
+public class LoxoneAppCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LoxoneAppCache.class);
+
+    private static final String SUFFIX = ".snapshot";
+
+    private final Path directory;
+
+    /**
+     * Creates new instance keeping the files in given directory, the directory is created if doesn't exist.
+     * @param directory cache directory, can't be null
+     * @throws LoxoneException in case the directory can't be created
+     */
+    public LoxoneAppCache(final @NotNull Path directory) {
+        this.directory = requireNonNull(directory, "directory can't be null");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new LoxoneException("Can't create loxone application cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return cache directory
+     */
+    @NotNull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads the cached application of given miniserver, if it was last modified at the given date.
+     * @param serial miniserver serial number, with or without colons (as in {@link cz.smarteon.loxone.message.ApiInfo})
+     * @param lastModified application last modification date, reported by miniserver
+     * @return cached application or null if there is none or it's outdated or unreadable
+     */
+    @Nullable
+    public LoxoneApp load(final @NotNull String serial, final @NotNull Date lastModified) {
+        final Path file = file(serial, lastModified);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return LoxoneAppSnapshot.read(file);
+        } catch (IOException e) {
+            log.warn("Can't read cached loxone application " + file + ", removing it", e);
+            deleteQuietly(file);
+            return null;
+        }
+    }
+
+    /**
+     * Creates new temporary file in the cache directory, to download the structure file to.
+     * Use {@link #store(Path)} to put it into the cache.
+     * @return created file
+     * @throws LoxoneException in case the file can't be created
+     */
+    @NotNull
+    public Path newFile() {
+        try {
+            return Files.createTempFile(directory, "LoxAPP3", ".tmp");
+        } catch (IOException e) {
+            throw new LoxoneException("Can't create file in loxone application cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Parses the downloaded structure file and puts its snapshot into the cache, replacing the previous file of the same
+     * miniserver. The downloaded file is overwritten by the snapshot, it's removed when it can't be parsed or the
+     * snapshot can't be stored, in the latter case the parsed application is still returned, just not cached.
+     * @param downloaded downloaded structure file, see {@link #newFile()}
+     * @return parsed application
+     * @throws LoxoneException in case the file can't be parsed
+     */
+    @NotNull
+    public LoxoneApp store(final @NotNull Path downloaded) {
+        requireNonNull(downloaded, "downloaded can't be null");
+        final LoxoneApp app;
+        try (InputStream in = Files.newInputStream(downloaded)) {
+            app = Codec.readLoxoneApp(in);
+        } catch (IOException e) {
+            deleteQuietly(downloaded);
+            throw new LoxoneException("Can't parse downloaded loxone application " + downloaded, e);
+        }
+
+        final String serial = normalizeSerial(app.getMiniserverInfo().getSerialNumber());
+        final Path file = file(serial, app.getLastModified());
+        try {
+            LoxoneAppSnapshot.write(app, downloaded);
+            Files.move(downloaded, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Can't store loxone application to " + file + ", it won't be cached", e);
+            deleteQuietly(downloaded);
+            return app;
+        }
+        removeOutdated(serial, file);
+        return app;
+    }
+
+    private Path file(final String serial, final Date lastModified) {
+        return directory.resolve(normalizeSerial(serial) + "-" + lastModified.getTime() + SUFFIX);
+    }
+
+    private void removeOutdated(final String serial, final Path current) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, serial + "-*" + SUFFIX)) {
+            for (Path file : files) {
+                if (!file.equals(current)) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Can't remove outdated loxone applications of " + serial, e);
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Can't remove file " + file, e);
+        }
+    }
+
+    static String normalizeSerial(final String serial) {
+        return requireNonNull(serial, "serial can't be null").replace(":", "").toUpperCase(Locale.ROOT);
+    }
+}
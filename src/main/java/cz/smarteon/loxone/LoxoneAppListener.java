@@ -1,10 +1,20 @@
 package cz.smarteon.loxone;
 
 import cz.smarteon.loxone.app.LoxoneApp;
+import cz.smarteon.loxone.app.LoxoneAppDiff;
 import org.jetbrains.annotations.NotNull;
 
 @FunctionalInterface
 public interface LoxoneAppListener {
 
     void onLoxoneApp(final @NotNull LoxoneApp loxoneApp);
+
+    /**
+     * Called after {@link #onLoxoneApp(LoxoneApp)} when the refetched {@link LoxoneApp} differs from the previous one.
+     * Does nothing by default.
+     * @param loxoneApp refetched application
+     * @param diff difference from the previous application
+     */
+    default void onLoxoneAppChanged(final @NotNull LoxoneApp loxoneApp, final @NotNull LoxoneAppDiff diff) {
+    }
 }
@@ -289,6 +289,7 @@ public class LoxoneAuth implements CommandResponseListener<LoxoneMessage<?>> {
                         loxoneUser, tokenPermissionType, CLIENT_UUID, clientInfo, this::encryptCommand
                 );
             }
+            authListeners.forEach(AuthListener::tokenRequested);
             sendCommand(lastTokenCommand);
             return State.CONSUMED;
         } else if (getVisuHashCommand.equals(command)) {
@@ -1,7 +1,9 @@
 package cz.smarteon.loxone;
 
+import cz.smarteon.loxone.message.DaytimerEvent;
 import cz.smarteon.loxone.message.TextEvent;
 import cz.smarteon.loxone.message.ValueEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -21,4 +23,16 @@ public interface LoxoneEventListener {
      * @param event text event received (should not be null)
      */
     default void onEvent(final @NotNull TextEvent event) {}
+
+    /**
+     * Receives {@link DaytimerEvent}
+     * @param event daytimer event received (should not be null)
+     */
+    default void onEvent(final @NotNull DaytimerEvent event) {}
+
+    /**
+     * Receives {@link WeatherEvent}
+     * @param event weather event received (should not be null)
+     */
+    default void onEvent(final @NotNull WeatherEvent event) {}
 }
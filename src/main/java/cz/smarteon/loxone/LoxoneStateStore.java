@@ -0,0 +1,242 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.TextEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the latest value of every known state. Each uuid of the loaded {@link LoxoneUuidRegistry} (usually the one of
+ * {@link cz.smarteon.loxone.app.LoxoneApp}, see {@link #load(LoxoneUuidRegistry)}) has its slot, given by its
+ * registry index. Values are kept as primitive double bits, so neither update nor read allocates, reads are lock-free
+ * and can be done from any thread.
+ * <p>
+ * Fed by {@link LoxoneWebSocket} when set by {@link LoxoneWebSocket#setStateStore(LoxoneStateStore)}, which is done
+ * automatically by {@link Loxone} (see {@link Loxone#stateStore()}). Can be also fed directly by
+ * {@link Codec#readValueEvents(java.nio.ByteBuffer, LoxoneValueListener)} and {@link #onText(TextEvent)}. Updates are
+ * expected to come from single thread (the web socket read thread), which also takes over the registries loaded by
+ * other threads, so no update is lost by the load.
+ * <p>
+ * Events of uuids not in the loaded registry are ignored, except the weather forecasts (see
+ * {@link #weather(LoxoneUuid)}), which are kept for any uuid.
+ */
+public class LoxoneStateStore implements LoxoneValueListener {
+
+    // only the initial value, received NaN is a value as well, the presence is kept by Slots.received bits
+    private static final long NO_VALUE = Double.doubleToRawLongBits(Double.NaN);
+
+    private volatile Slots slots = new Slots(LoxoneUuidRegistry.empty());
+    // loaded registry waiting to be taken over by the update thread
+    private final AtomicReference<LoxoneUuidRegistry> loaded = new AtomicReference<>();
+    private final Map<LoxoneUuid, WeatherEvent> weather = new ConcurrentHashMap<>();
+
+    /**
+     * Creates new empty store, use {@link #load(LoxoneUuidRegistry)} to make it keep the values.
+     */
+    public LoxoneStateStore() {
+    }
+
+    /**
+     * Creates new store keeping the values of given uuids.
+     * @param registry registry of uuids to keep the values of
+     */
+    public LoxoneStateStore(final @NotNull LoxoneUuidRegistry registry) {
+        load(registry);
+    }
+
+    /**
+     * Loads new registry of uuids (e.g. when {@link cz.smarteon.loxone.app.LoxoneApp} was refetched). The slots are
+     * rebuilt for the new registry, the values of uuids known by both the previous and the new registry are kept, the
+     * others are discarded.
+     * <p>
+     * In case the store already keeps some uuids, the new registry is taken over by the update thread with its next
+     * update, so the values updated meanwhile are not lost. Until then the values are read by the previous registry.
+     * @param registry registry of uuids to keep the values of
+     */
+    public void load(final @NotNull LoxoneUuidRegistry registry) {
+        requireNonNull(registry, "registry can't be null");
+        if (slots.registry.size() == 0) {
+            // there are no values to keep
+            slots = new Slots(registry);
+        } else {
+            loaded.set(registry);
+        }
+    }
+
+    /**
+     * @return registry of uuids which values are kept
+     */
+    @NotNull
+    public LoxoneUuidRegistry getRegistry() {
+        return slots.registry;
+    }
+
+    /**
+     * Slot of given uuid, allows to read the value without the uuid lookup. Valid until the registry of the next
+     * {@link #load(LoxoneUuidRegistry)} is taken over.
+     * @param uuid state uuid
+     * @return slot of given uuid or -1 if the uuid is not known
+     */
+    public int slotOf(final @NotNull LoxoneUuid uuid) {
+        return slots.registry.indexOf(uuid);
+    }
+
+    /**
+     * Latest value of given state.
+     * @param uuid state uuid
+     * @return latest value or {@link Double#NaN} if the state is not known or has not received any value yet
+     */
+    public double value(final @NotNull LoxoneUuid uuid) {
+        final Slots current = slots;
+        final int slot = current.registry.indexOf(uuid);
+        return slot < 0 ? Double.NaN : Double.longBitsToDouble(current.values.get(slot));
+    }
+
+    /**
+     * Latest value of given slot.
+     * @param slot state slot, see {@link #slotOf(LoxoneUuid)}
+     * @return latest value or {@link Double#NaN} if the state has not received any value yet
+     * @throws IndexOutOfBoundsException in case there is no such slot
+     */
+    public double value(final int slot) {
+        return Double.longBitsToDouble(slots.values.get(slot));
+    }
+
+    /**
+     * Whether given state has received any value.
+     * @param uuid state uuid
+     * @return true if the state has value, false otherwise
+     */
+    public boolean hasValue(final @NotNull LoxoneUuid uuid) {
+        final Slots current = slots;
+        final int slot = current.registry.indexOf(uuid);
+        return slot >= 0 && current.isReceived(slot);
+    }
+
+    /**
+     * Latest text of given state.
+     * @param uuid state uuid
+     * @return latest text or null if the state is not known or has not received any text yet
+     */
+    @Nullable
+    public String text(final @NotNull LoxoneUuid uuid) {
+        final Slots current = slots;
+        final int slot = current.registry.indexOf(uuid);
+        final TextEvent event = slot < 0 ? null : current.texts.get(slot);
+        return event != null ? event.getText() : null;
+    }
+
+    @Override
+    public void onValue(final long uuidHi, final long uuidLo, final double value) {
+        final Slots current = updated();
+        final int slot = current.registry.indexOf(uuidHi, uuidLo);
+        if (slot >= 0) {
+            current.values.lazySet(slot, Double.doubleToRawLongBits(value));
+            if (!current.isReceived(slot)) {
+                current.setReceived(slot);
+            }
+        }
+    }
+
+    /**
+     * Updates the text of the event state.
+     * @param event text event
+     */
+    public void onText(final @NotNull TextEvent event) {
+        final Slots current = updated();
+        final int slot = current.registry.indexOf(event.getUuid());
+        if (slot >= 0) {
+            current.texts.lazySet(slot, event);
+        }
+    }
+
+    /**
+     * Updates the texts of the event states.
+     * @param events text events
+     */
+    public void onTexts(final @NotNull Collection<TextEvent> events) {
+        for (TextEvent event : events) {
+            onText(event);
+        }
+    }
+
+    /**
+     * Latest weather forecast of given uuid.
+     * @param uuid weather state uuid
+     * @return latest forecast or null if none received yet
+     */
+    @Nullable
+    public WeatherEvent weather(final @NotNull LoxoneUuid uuid) {
+        return weather.get(uuid);
+    }
+
+    /**
+     * Updates the weather forecast of the event uuid.
+     * @param event weather event
+     */
+    public void onWeather(final @NotNull WeatherEvent event) {
+        weather.put(event.getUuid(), event);
+    }
+
+    /**
+     * Slots to update, takes over the loaded registry, if any, called by the update thread only.
+     */
+    private Slots updated() {
+        if (loaded.get() == null) {
+            return slots;
+        }
+        final LoxoneUuidRegistry registry = loaded.getAndSet(null);
+        final Slots previous = slots;
+        final Slots next = new Slots(registry);
+        for (int i = 0; i < previous.registry.size(); i++) {
+            final int slot = registry.indexOf(previous.registry.get(i));
+            if (slot >= 0) {
+                next.values.set(slot, previous.values.get(i));
+                if (previous.isReceived(i)) {
+                    next.setReceived(slot);
+                }
+                next.texts.set(slot, previous.texts.get(i));
+            }
+        }
+        slots = next;
+        return next;
+    }
+
+    private static final class Slots {
+        private final LoxoneUuidRegistry registry;
+        private final AtomicLongArray values;
+        // bit per slot, set once the slot has received a value
+        private final AtomicLongArray received;
+        // events kept rather than texts, so the text is decoded only when read
+        private final AtomicReferenceArray<TextEvent> texts;
+
+        private Slots(final LoxoneUuidRegistry registry) {
+            this.registry = registry;
+            this.values = new AtomicLongArray(registry.size());
+            this.received = new AtomicLongArray((registry.size() + Long.SIZE - 1) / Long.SIZE);
+            this.texts = new AtomicReferenceArray<>(registry.size());
+            for (int i = 0; i < registry.size(); i++) {
+                values.set(i, NO_VALUE);
+            }
+        }
+
+        private boolean isReceived(final int slot) {
+            return (received.get(slot / Long.SIZE) & (1L << slot)) != 0;
+        }
+
+        // updates are expected from single thread, so the read and write of the bits word doesn't need to be atomic
+        private void setReceived(final int slot) {
+            final int word = slot / Long.SIZE;
+            received.lazySet(word, received.get(word) | (1L << slot));
+        }
+    }
+}
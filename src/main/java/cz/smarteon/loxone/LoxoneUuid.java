@@ -3,42 +3,83 @@ package cz.smarteon.loxone;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
-import java.nio.ByteBuffer;
-import java.util.Arrays;
 import java.util.Objects;
 
-import static cz.smarteon.loxone.Codec.bytesToHex;
-import static cz.smarteon.loxone.Codec.hexToBytes;
-import static cz.smarteon.loxone.Codec.readUnsignedShort;
-import static cz.smarteon.loxone.Codec.readUnsingedInt;
-import static cz.smarteon.loxone.Codec.toUnsignedIntHex;
-import static cz.smarteon.loxone.Codec.toUnsignedShortHex;
+import static cz.smarteon.loxone.Codec.hexDigit;
+import static cz.smarteon.loxone.Codec.writeHex;
 
+/**
+ * Loxone uuid, in string form like {@code 0f86a2fe-0378-3e08-ffffb2d4efc8b5b6}. Held as two longs, see
+ * {@link #getHi()} and {@link #getLo()}, with the hash code computed upfront.
+ */
 public final class LoxoneUuid {
 
-    private final long id1;
-    private final int id2;
-    private final int id3;
-    private final byte[] id4;
+    private static final int STRING_LENGTH = 35;
+    private static final int[] DASH_POSITIONS = {8, 13, 18};
+
+    private final long hi;
+    private final long lo;
+    private final int hash;
 
     public LoxoneUuid(long id1, int id2, int id3, byte[] id4) {
-        this.id1 = id1;
-        this.id2 = id2;
-        this.id3 = id3;
-        this.id4 = id4;
+        this(((id1 & 0xffffffffL) << 32) | ((long) (id2 & 0xffff) << 16) | (id3 & 0xffff), bytesToLong(id4));
+    }
+
+    /**
+     * Creates the uuid from its 128 bits.
+     * @param hi higher 64 bits, see {@link #getHi()}
+     * @param lo lower 64 bits, see {@link #getLo()}
+     */
+    public LoxoneUuid(final long hi, final long lo) {
+        this.hi = hi;
+        this.lo = lo;
+        this.hash = calculateHash();
     }
 
     @JsonCreator
     public LoxoneUuid(String value) {
-        final String[] parts = Objects.requireNonNull(value).split("-");
-        if (parts.length != 4) {
+        Objects.requireNonNull(value);
+        if (value.length() != STRING_LENGTH
+                || value.charAt(DASH_POSITIONS[0]) != '-'
+                || value.charAt(DASH_POSITIONS[1]) != '-'
+                || value.charAt(DASH_POSITIONS[2]) != '-') {
             throw new IllegalArgumentException("Unparseable uuid " + value);
-        } else {
-            id1 = readUnsingedInt(ByteBuffer.wrap(hexToBytes(parts[0])));
-            id2 = readUnsignedShort(ByteBuffer.wrap(hexToBytes(parts[1])));
-            id3 = readUnsignedShort(ByteBuffer.wrap(hexToBytes(parts[2])));
-            id4 = hexToBytes(parts[3]);
         }
+        long parsedHi = 0;
+        long parsedLo = 0;
+        for (int i = 0; i < STRING_LENGTH; i++) {
+            if (i == DASH_POSITIONS[0] || i == DASH_POSITIONS[1] || i == DASH_POSITIONS[2]) {
+                continue;
+            }
+            final int digit = hexDigit(value.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Unparseable uuid " + value);
+            }
+            if (i < DASH_POSITIONS[2]) {
+                parsedHi = (parsedHi << 4) | digit;
+            } else {
+                parsedLo = (parsedLo << 4) | digit;
+            }
+        }
+        this.hi = parsedHi;
+        this.lo = parsedLo;
+        this.hash = calculateHash();
+    }
+
+    /**
+     * Higher 64 bits of the uuid, consisting of the first three parts of its string representation.
+     * @return higher 64 bits
+     */
+    public long getHi() {
+        return hi;
+    }
+
+    /**
+     * Lower 64 bits of the uuid, the last part of its string representation.
+     * @return lower 64 bits
+     */
+    public long getLo() {
+        return lo;
     }
 
     @Override
@@ -48,27 +89,39 @@ public final class LoxoneUuid {
 
         LoxoneUuid that = (LoxoneUuid) o;
 
-        if (id1 != that.id1) return false;
-        if (id2 != that.id2) return false;
-        if (id3 != that.id3) return false;
-        return Arrays.equals(id4, that.id4);
+        return hi == that.hi && lo == that.lo;
     }
 
     @Override
     public int hashCode() {
-        int result = (int) (id1 ^ (id1 >>> 32));
-        result = 31 * result + id2;
-        result = 31 * result + id3;
-        result = 31 * result + Arrays.hashCode(id4);
-        return result;
+        return hash;
     }
 
     @Override
     @JsonValue
     public String toString() {
-        return toUnsignedIntHex(id1) + "-"
-                + toUnsignedShortHex(id2) + "-"
-                + toUnsignedShortHex(id3) + "-"
-                + bytesToHex(id4);
+        final char[] chars = new char[STRING_LENGTH];
+        writeHex(chars, 0, hi >>> 32, 8);
+        chars[DASH_POSITIONS[0]] = '-';
+        writeHex(chars, 9, hi >>> 16, 4);
+        chars[DASH_POSITIONS[1]] = '-';
+        writeHex(chars, 14, hi, 4);
+        chars[DASH_POSITIONS[2]] = '-';
+        writeHex(chars, 19, lo, 16);
+        return new String(chars);
+    }
+
+    private int calculateHash() {
+        // uuids of one miniserver share most of the bits, so spread the differences
+        final long mixed = (hi * 0x9E3779B97F4A7C15L) ^ lo;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static long bytesToLong(final byte[] bytes) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (i < bytes.length ? bytes[i] & 0xff : 0);
+        }
+        return value;
     }
 }
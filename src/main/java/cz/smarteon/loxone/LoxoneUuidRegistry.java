@@ -0,0 +1,154 @@
+package cz.smarteon.loxone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable registry of known uuids (usually all the uuids of {@link cz.smarteon.loxone.app.LoxoneApp}), allowing to
+ * resolve the uuid received in binary event to its canonical instance. Uuids resolved by the registry can be compared
+ * by identity and no new instance is created for them.
+ * <p>
+ * Each registered uuid has its index, dense in range from 0 to {@link #size()} - 1, in order of registration.
+ * The lookup is done by open addressing table over the raw 128 bits of uuid, so it doesn't allocate.
+ */
+public final class LoxoneUuidRegistry {
+
+    private static final LoxoneUuidRegistry EMPTY = new LoxoneUuidRegistry(new LoxoneUuid[0]);
+
+    private final LoxoneUuid[] uuids;
+    private final int size;
+    // index + 1 of uuid, zero means empty slot
+    private final int[] table;
+    private final int mask;
+
+    private LoxoneUuidRegistry(final LoxoneUuid[] uuids) {
+        this.uuids = uuids;
+        this.size = uuids.length;
+        // keep the load factor at most 0.5
+        final int capacity = Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = slot(uuids[i].getHi(), uuids[i].getLo());
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Creates the registry of given uuids. The first of equal uuids is used as the canonical instance.
+     * @param uuids uuids to register
+     * @return new registry
+     */
+    @NotNull
+    public static LoxoneUuidRegistry of(final @NotNull Collection<LoxoneUuid> uuids) {
+        requireNonNull(uuids, "uuids can't be null");
+        final Set<LoxoneUuid> distinct = new LinkedHashSet<>(uuids);
+        return new LoxoneUuidRegistry(distinct.toArray(new LoxoneUuid[0]));
+    }
+
+    /**
+     * @return registry without any uuid
+     */
+    @NotNull
+    public static LoxoneUuidRegistry empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Index of the uuid of given bits.
+     * @param hi higher 64 bits of uuid
+     * @param lo lower 64 bits of uuid
+     * @return index of uuid or -1 if the uuid is not registered
+     */
+    public int indexOf(final long hi, final long lo) {
+        int slot = slot(hi, lo);
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            final LoxoneUuid candidate = uuids[entry - 1];
+            if (candidate.getHi() == hi && candidate.getLo() == lo) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the given uuid.
+     * @param uuid uuid to look for
+     * @return index of uuid or -1 if the uuid is not registered
+     */
+    public int indexOf(final @NotNull LoxoneUuid uuid) {
+        return indexOf(uuid.getHi(), uuid.getLo());
+    }
+
+    /**
+     * Canonical instance of the uuid of given bits.
+     * @param hi higher 64 bits of uuid
+     * @param lo lower 64 bits of uuid
+     * @return canonical uuid or null if the uuid is not registered
+     */
+    @Nullable
+    public LoxoneUuid get(final long hi, final long lo) {
+        final int index = indexOf(hi, lo);
+        return index < 0 ? null : uuids[index];
+    }
+
+    /**
+     * Uuid of given index.
+     * @param index index of uuid
+     * @return uuid of given index
+     * @throws IndexOutOfBoundsException in case there is no such index
+     */
+    @NotNull
+    public LoxoneUuid get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of registry of size " + size);
+        }
+        return uuids[index];
+    }
+
+    /**
+     * Canonical instance of given uuid.
+     * @param uuid uuid to intern
+     * @return canonical uuid if registered, the given uuid otherwise
+     */
+    @NotNull
+    public LoxoneUuid intern(final @NotNull LoxoneUuid uuid) {
+        final LoxoneUuid canonical = get(uuid.getHi(), uuid.getLo());
+        return canonical != null ? canonical : uuid;
+    }
+
+    /**
+     * Canonical instance of the uuid of given bits, or the new instance if not registered.
+     * @param hi higher 64 bits of uuid
+     * @param lo lower 64 bits of uuid
+     * @return canonical or new uuid
+     */
+    @NotNull
+    public LoxoneUuid resolve(final long hi, final long lo) {
+        final LoxoneUuid canonical = get(hi, lo);
+        return canonical != null ? canonical : new LoxoneUuid(hi, lo);
+    }
+
+    /**
+     * @return number of registered uuids
+     */
+    public int size() {
+        return size;
+    }
+
+    private int slot(final long hi, final long lo) {
+        final long mixed = (hi * 0x9E3779B97F4A7C15L) ^ (lo * 0xC2B2AE3D27D4EB4FL);
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
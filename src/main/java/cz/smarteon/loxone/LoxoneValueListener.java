@@ -0,0 +1,25 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.ValueEvent;
+
+/**
+ * Allows to react on loxone value events without any allocation. The value events are passed as primitives directly
+ * from the received message, so no {@link ValueEvent} nor {@link LoxoneUuid} is created.
+ * <p>
+ * The listener is called by the web socket read thread, even if the {@link RingBufferEventDispatcher} is used, so it
+ * should return quickly.
+ * @see LoxoneWebSocket#registerListener(LoxoneValueListener)
+ * @see LoxoneUuid#getHi()
+ * @see LoxoneUuid#getLo()
+ */
+@FunctionalInterface
+public interface LoxoneValueListener {
+
+    /**
+     * Receives value event.
+     * @param uuidHi higher 64 bits of the event uuid, see {@link LoxoneUuid#getHi()}
+     * @param uuidLo lower 64 bits of the event uuid, see {@link LoxoneUuid#getLo()}
+     * @param value event value
+     */
+    void onValue(long uuidHi, long uuidLo, double value);
+}
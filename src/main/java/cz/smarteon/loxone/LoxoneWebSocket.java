@@ -1,10 +1,15 @@
 package cz.smarteon.loxone;
 
+import cz.smarteon.loxone.PendingCommands.PendingCommand;
 import cz.smarteon.loxone.message.ControlCommand;
+import cz.smarteon.loxone.message.DaytimerEvent;
+import cz.smarteon.loxone.message.LoxoneEvent;
 import cz.smarteon.loxone.message.LoxoneMessage;
+import cz.smarteon.loxone.message.LoxoneValue;
 import cz.smarteon.loxone.message.MessageHeader;
 import cz.smarteon.loxone.message.TextEvent;
 import cz.smarteon.loxone.message.ValueEvent;
+import cz.smarteon.loxone.message.WeatherEvent;
 import org.java_websocket.client.WebSocketClient;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -16,21 +21,30 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
 
 import static cz.smarteon.loxone.Command.KEEP_ALIVE;
@@ -48,6 +62,10 @@ public class LoxoneWebSocket {
     private static final int HTTP_UNAUTHORIZED = 500;
 
     private static final String C_SYS_ENC = "dev/sys/enc";
+    private static final long RETRY_DELAY_MILLIS = 10;
+    private static final int MIN_FILE_CHUNK_SIZE = 4 * 1024;
+    private static final int MAX_FILE_CHUNK_SIZE = 64 * 1024;
+    private static final int DEFAULT_COMMAND_RESPONSE_TIMEOUT_SECONDS = 30;
 
     private final BiFunction<LoxoneWebSocket, URI, WebSocketClient> webSocketClientProvider;
     private WebSocketClient webSocketClient;
@@ -57,36 +75,99 @@ public class LoxoneWebSocket {
     private Set<LoxoneWebSocketListener> webSocketListeners;
     private final List<CommandResponseListener> commandResponseListeners;
     private final List<LoxoneEventListener> eventListeners;
-    private final Queue<Command<?>> commands;
+    // array copied on write, so it's iterated without allocation
+    private volatile LoxoneValueListener[] valueListeners = new LoxoneValueListener[0];
+    private final EventSubscriptions subscriptions = new EventSubscriptions();
+    private final ValueFilters valueFilters = new ValueFilters();
+    private final LoxoneValueListener valueEventsProcessor = this::processValueEvent;
+    private final PendingCommands pendingCommands;
+    private final CommandPipeline commandPipeline;
+    private volatile RingBufferEventDispatcher eventDispatcher;
+    private volatile LoxoneUuidRegistry uuidRegistry = LoxoneUuidRegistry.empty();
+    private volatile LoxoneStateStore stateStore;
 
-    private ReentrantReadWriteLock connectRwLock = new ReentrantReadWriteLock();
-    private CountDownLatch authSeqLatch;
-    private CountDownLatch visuLatch;
+    private final Object stateLock = new Object();
+    private volatile ConnectionState connectionState = ConnectionState.DISCONNECTED;
+    private int connectAttempts;
+    private ScheduledFuture<?> authTimeoutFuture;
+    private CompletableFuture<String> visuHashFuture;
+    private int visuAttempts;
+    private ScheduledFuture<?> visuTimeoutFuture;
+    private boolean closed = false;
 
     private int authTimeoutSeconds = 3;
     private int visuTimeoutSeconds = 3;
     private int retries = 5;
 
     private boolean autoRestart = false;
-    final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private ScheduledFuture autoRestartFuture;
+    final ScheduledExecutorService scheduler;
+    private final Executor dispatchExecutor;
+    private final boolean ownExecutors;
+    private ScheduledFuture<?> autoRestartFuture;
 
+    /**
+     * Creates new instance running its tasks by its own scheduler and dispatch thread, which are shut down by
+     * {@link #close()}.
+     *
+     * @param endpoint miniserver endpoint
+     * @param loxoneAuth authentication of the miniserver
+     */
     public LoxoneWebSocket(final @NotNull LoxoneEndpoint endpoint, final @NotNull LoxoneAuth loxoneAuth) {
-        this(endpoint, loxoneAuth, LoxoneWebsocketClient::new);
+        this(endpoint, loxoneAuth, LoxoneWebsocketClient::new, Executors.newScheduledThreadPool(1),
+                Executors.newSingleThreadExecutor(), true);
+    }
+
+    /**
+     * Creates new instance running its tasks by the given executors, so they can be shared by many instances (e.g. one
+     * per connected miniserver) and the number of threads doesn't grow with the number of instances. The executors
+     * are not shut down by {@link #close()}, it's up to the caller.
+     *
+     * @param endpoint miniserver endpoint
+     * @param loxoneAuth authentication of the miniserver
+     * @param scheduler scheduler of timeouts, keepalive, token refresh and automatic restart, only short non-blocking
+     *                  tasks are run by it
+     * @param dispatchExecutor executor running the connection opening (including the blocking authentication
+     *                         initialization), authentication start, the web socket listeners notification and the
+     *                         application loading of {@link Loxone}
+     */
+    public LoxoneWebSocket(final @NotNull LoxoneEndpoint endpoint, final @NotNull LoxoneAuth loxoneAuth,
+                           final @NotNull ScheduledExecutorService scheduler, final @NotNull Executor dispatchExecutor) {
+        this(endpoint, loxoneAuth, LoxoneWebsocketClient::new,
+                requireNonNull(scheduler, "scheduler shouldn't be null"),
+                requireNonNull(dispatchExecutor, "dispatchExecutor shouldn't be null"), false);
     }
 
     // This class is tightly coupled with LoxoneWebsocketClient, however for tests we need to provide different instance
     @TestOnly
     LoxoneWebSocket(final @NotNull  LoxoneEndpoint endpoint, final @NotNull LoxoneAuth loxoneAuth,
                     final @NotNull BiFunction<LoxoneWebSocket, URI, WebSocketClient> webSocketClientProvider) {
+        this(endpoint, loxoneAuth, webSocketClientProvider, Executors.newScheduledThreadPool(1),
+                Executors.newSingleThreadExecutor(), true);
+    }
+
+    /**
+     * @param ownExecutors whether the executors were created for this instance, in that case they are
+     *                     {@link ExecutorService}s shut down on {@link #close()}
+     */
+    private LoxoneWebSocket(final @NotNull  LoxoneEndpoint endpoint, final @NotNull LoxoneAuth loxoneAuth,
+                            final @NotNull BiFunction<LoxoneWebSocket, URI, WebSocketClient> webSocketClientProvider,
+                            final @NotNull ScheduledExecutorService scheduler, final @NotNull Executor dispatchExecutor,
+                            final boolean ownExecutors) {
         this.endpoint = requireNonNull(endpoint, "loxone endpoint shouldn't be null");
         this.loxoneAuth = requireNonNull(loxoneAuth, "loxoneAuth shouldn't be null");
         this.webSocketClientProvider = requireNonNull(webSocketClientProvider, "webSocketClientProvider shouldn't be null");
+        this.scheduler = scheduler;
+        this.dispatchExecutor = dispatchExecutor;
+        this.ownExecutors = ownExecutors;
 
         this.webSocketListeners = new HashSet<>();
         this.commandResponseListeners = new LinkedList<>();
-        this.eventListeners = new LinkedList<>();
-        this.commands = new ConcurrentLinkedQueue<>();
+        this.eventListeners = new CopyOnWriteArrayList<>();
+        this.pendingCommands = new PendingCommands();
+        this.commandPipeline = new CommandPipeline(this::sendInternal, scheduler);
+        commandPipeline.setResponseTimeoutMillis(TimeUnit.SECONDS.toMillis(DEFAULT_COMMAND_RESPONSE_TIMEOUT_SECONDS));
+        // commands are parked until the connection is ready
+        commandPipeline.pause();
 
         // link loxoneAuth as command listener
         registerListener(loxoneAuth);
@@ -109,24 +190,229 @@ public class LoxoneWebSocket {
         eventListeners.add(listener);
     }
 
-    public void sendCommand(@NotNull final Command command) {
+    /**
+     * Subscribes the listener to the events of given uuid only. Unlike the listeners registered by
+     * {@link #registerListener(LoxoneEventListener)}, the subscribed listener doesn't receive all the events, so it
+     * doesn't need to filter them. In case there is no {@link LoxoneEventListener} registered, only the value events
+     * of subscribed uuids are allocated.
+     *
+     * @param uuid uuid of the events (usually the state uuid)
+     * @param listener listener to subscribe
+     */
+    public void subscribe(@NotNull final LoxoneUuid uuid, @NotNull final LoxoneEventListener listener) {
+        subscriptions.subscribe(uuid, listener);
+    }
+
+    /**
+     * Subscribes the listener to the events of all given uuids at once, which is much cheaper than subscribing them
+     * one by one, see {@link #subscribe(LoxoneUuid, LoxoneEventListener)}.
+     *
+     * @param uuids uuids of the events (usually the state uuids)
+     * @param listener listener to subscribe
+     */
+    public void subscribe(@NotNull final Collection<LoxoneUuid> uuids, @NotNull final LoxoneEventListener listener) {
+        subscriptions.subscribe(uuids, listener);
+    }
+
+    /**
+     * Cancels all the subscriptions of given listener made by {@link #subscribe(LoxoneUuid, LoxoneEventListener)}.
+     *
+     * @param listener listener to unsubscribe
+     */
+    public void unsubscribe(@NotNull final LoxoneEventListener listener) {
+        subscriptions.unsubscribe(listener);
+    }
+
+    /**
+     * @return executor running the connection tasks and listeners notification, usable to move the work off the web
+     * socket read thread
+     */
+    @NotNull
+    Executor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * Drops the subscriptions and value filters of given uuids, e.g. of the states removed from refetched
+     * {@link cz.smarteon.loxone.app.LoxoneApp}.
+     *
+     * @param uuids uuids to drop
+     */
+    void forget(@NotNull final Collection<LoxoneUuid> uuids) {
+        subscriptions.unsubscribeAll(uuids);
+        valueFilters.remove(uuids);
+    }
+
+    /**
+     * Sets the filter of value events of given uuid. The filtered out value events are not passed to any of the
+     * listeners (nor subscribed ones), only the {@link LoxoneStateStore} receives all the values. Changing the filter
+     * of the uuid resets its last delivered value, so its next value is delivered. Setting the same filter again keeps
+     * the last delivered value.
+     *
+     * @param uuid uuid of value events
+     * @param filter filter to set, null to remove the filter
+     */
+    public void setValueFilter(@NotNull final LoxoneUuid uuid, @Nullable final ValueFilter filter) {
+        valueFilters.set(uuid, filter);
+    }
+
+    /**
+     * Sets the filter of value events of all given uuids at once, which is much cheaper than setting them one by one,
+     * see {@link #setValueFilter(LoxoneUuid, ValueFilter)}.
+     *
+     * @param uuids uuids of value events
+     * @param filter filter to set, null to remove the filters
+     */
+    public void setValueFilter(@NotNull final Collection<LoxoneUuid> uuids, @Nullable final ValueFilter filter) {
+        valueFilters.set(uuids, filter);
+    }
+
+    /**
+     * Get the filter of value events of given uuid.
+     *
+     * @param uuid uuid of value events
+     * @return filter of given uuid or null if there is none
+     */
+    @Nullable
+    public ValueFilter getValueFilter(@NotNull final LoxoneUuid uuid) {
+        return valueFilters.get(uuid);
+    }
+
+    /**
+     * Registers the listener receiving value events as primitives, without allocating the {@link ValueEvent}s. In case
+     * there is no {@link LoxoneEventListener} registered, the value events are processed without any allocation.
+     *
+     * @param listener listener to register
+     */
+    public synchronized void registerListener(@NotNull final LoxoneValueListener listener) {
+        requireNonNull(listener, "listener can't be null");
+        final LoxoneValueListener[] listeners = Arrays.copyOf(valueListeners, valueListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        valueListeners = listeners;
+    }
+
+    /**
+     * Sends the given command. The response is correlated to the command by its control path, so many commands can be
+     * sent without waiting for the responses of the previous ones. The response is also passed to registered
+     * {@link CommandResponseListener}s, before the returned future is completed.
+     * <p>
+     * The calling thread doesn't wait for the connection. In case it's not {@link ConnectionState#READY} the command is
+     * parked, the connection is (re)established and the command is sent once authenticated. In case the connection
+     * can't be established even with {@link #setRetries(int)} retries, the returned future is completed exceptionally.
+     *
+     * @param command command to send
+     * @param <T> type of command response
+     * @return future completed by the command response, or exceptionally when the command failed or the web socket
+     * was closed before the response came
+     * @throws LoxoneException in case the command can't be sent, including the full command queue rejecting it
+     * (see {@link #setCommandQueuePolicy(CommandQueuePolicy)})
+     */
+    @NotNull
+    public <T> CompletableFuture<T> sendCommand(@NotNull final Command<T> command) {
         requireNonNull(command, "command can't be null");
         if (command.isWsSupported()) {
-            sendWithRetry(command, retries);
+            ensureConnection();
+            return commandPipeline.submit(command);
         } else {
             throw new IllegalArgumentException("Only websocket commands are supported");
         }
     }
 
-    public void sendSecureCommand(@NotNull final ControlCommand command) {
-        sendSecureWithRetry(command, retries);
+    /**
+     * Downloads the file from miniserver, writing its content to the given channel. The content is written as it was
+     * received, without being processed as command response. Text files are written UTF-8 encoded, in chunks sized by
+     * the message size announced by the miniserver, so no other copy of whole file is made. The channel is written by
+     * the web socket read thread and it's not closed.
+     * <p>
+     * Like the other commands, the download is parked until the connection is ready, see {@link #sendCommand(Command)}.
+     *
+     * @param path path of the file to download, e.g. "data/LoxAPP3.json"
+     * @param channel channel to write the file content to
+     * @return future completed by the number of bytes written
+     */
+    @NotNull
+    public CompletableFuture<Long> download(@NotNull final String path, @NotNull final WritableByteChannel channel) {
+        return sendCommand(new FileCommand(path, channel));
+    }
+
+    /**
+     * Downloads the file from miniserver to the given local file, which is created or overwritten.
+     * @see #download(String, WritableByteChannel)
+     *
+     * @param path path of the file to download, e.g. "data/LoxAPP3.json"
+     * @param file local file to write the file content to
+     * @return future completed by the number of bytes written
+     */
+    @NotNull
+    public CompletableFuture<Long> download(@NotNull final String path, @NotNull final Path file) {
+        requireNonNull(file, "file can't be null");
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            final CompletableFuture<Long> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new LoxoneException("Can't open file " + file + " to download " + path, e));
+            return failed;
+        }
+        final CompletableFuture<Long> download;
+        try {
+            download = download(path, channel);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        return download.whenComplete((written, throwable) -> closeQuietly(channel));
+    }
+
+    /**
+     * Sends the given command secured by visualization password.
+     * @see #sendCommand(Command)
+     * @param command command to send
+     * @param <V> type of command response value
+     * @return future completed by the command response
+     */
+    @NotNull
+    public <V extends LoxoneValue> CompletableFuture<LoxoneMessage<V>> sendSecureCommand(
+            @NotNull final ControlCommand<V> command) {
+        requireNonNull(command, "command can't be null");
+        ensureConnection();
+        return commandPipeline.submit(command, this::sendSecured);
     }
 
     public void close() {
-        scheduler.shutdownNow();
+        synchronized (stateLock) {
+            closed = true;
+            commandPipeline.pause();
+            cancelAuthTimeout();
+            cancelAutoRestart();
+            transition(ConnectionState.DISCONNECTED);
+        }
+        if (ownExecutors) {
+            scheduler.shutdownNow();
+            // not interrupted, close may be called by the dispatch thread (e.g. from a web socket listener)
+            ((ExecutorService) dispatchExecutor).shutdown();
+        }
+        if (eventDispatcher != null) {
+            eventDispatcher.stop();
+        }
+        final LoxoneException closedException = new LoxoneException("Web socket has been closed");
+        commandPipeline.failQueued(closedException);
+        failVisuHash(closedException);
         closeWebSocket();
     }
 
+    /**
+     * Current state of the connection.
+     * Once {@link ConnectionState#READY}, the commands parked while connecting have already been sent.
+     *
+     * @return connection state
+     */
+    @NotNull
+    public ConnectionState getConnectionState() {
+        return connectionState;
+    }
+
     @NotNull
     public LoxoneAuth getLoxoneAuth() {
         return loxoneAuth;
@@ -177,6 +463,85 @@ public class LoxoneWebSocket {
         return retries;
     }
 
+    /**
+     * Set the maximum number of commands sent and waiting for response at the same time. Commands sent above this limit
+     * are queued and sent as soon as responses to the previous ones are received. Unlimited by default.
+     *
+     * @param maxInFlightCommands maximum number of commands in flight, has to be positive
+     */
+    public void setMaxInFlightCommands(final int maxInFlightCommands) {
+        commandPipeline.setMaxInFlight(maxInFlightCommands);
+    }
+
+    /**
+     * Get the maximum number of commands sent and waiting for response at the same time.
+     *
+     * @return maximum number of commands in flight
+     */
+    public int getMaxInFlightCommands() {
+        return commandPipeline.getMaxInFlight();
+    }
+
+    /**
+     * Set the capacity of queue holding the commands waiting to be sent, because of
+     * {@link #setMaxInFlightCommands(int)}. When the queue is full, the {@link #setCommandQueuePolicy(CommandQueuePolicy)}
+     * is applied. Unlimited by default.
+     *
+     * @param commandQueueCapacity capacity of command queue, zero means commands are never queued
+     */
+    public void setCommandQueueCapacity(final int commandQueueCapacity) {
+        commandPipeline.setCapacity(commandQueueCapacity);
+    }
+
+    /**
+     * Get the capacity of queue holding the commands waiting to be sent.
+     *
+     * @return capacity of command queue
+     */
+    public int getCommandQueueCapacity() {
+        return commandPipeline.getCapacity();
+    }
+
+    /**
+     * Set the policy applied when the command queue is full. {@link CommandQueuePolicy#BLOCK} by default.
+     *
+     * @param commandQueuePolicy policy applied when command queue is full
+     */
+    public void setCommandQueuePolicy(final @NotNull CommandQueuePolicy commandQueuePolicy) {
+        commandPipeline.setPolicy(commandQueuePolicy);
+    }
+
+    /**
+     * Get the policy applied when the command queue is full.
+     *
+     * @return policy applied when command queue is full
+     */
+    @NotNull
+    public CommandQueuePolicy getCommandQueuePolicy() {
+        return commandPipeline.getPolicy();
+    }
+
+    /**
+     * Set the time to wait for command response, counted from the command being sent (not queued). The command which
+     * response doesn't come in time is completed exceptionally and its slot in {@link #setMaxInFlightCommands(int)}
+     * window is freed. It applies to the file downloads as well, so it should cover the download of the largest file.
+     * 30 seconds by default, zero means no timeout.
+     *
+     * @param commandResponseTimeoutSeconds command response timeout in seconds
+     */
+    public void setCommandResponseTimeoutSeconds(final int commandResponseTimeoutSeconds) {
+        commandPipeline.setResponseTimeoutMillis(TimeUnit.SECONDS.toMillis(commandResponseTimeoutSeconds));
+    }
+
+    /**
+     * Get the time to wait for command response.
+     *
+     * @return command response timeout in seconds
+     */
+    public int getCommandResponseTimeoutSeconds() {
+        return (int) TimeUnit.MILLISECONDS.toSeconds(commandPipeline.getResponseTimeoutMillis());
+    }
+
     /**
      * Web socket auto restart. If enabled it tries to reestablish the connection in case the remote end was closed.
      * @return true when auto restart is enabled, false otherwise
@@ -194,6 +559,73 @@ public class LoxoneWebSocket {
         this.autoRestart = autoRestart;
     }
 
+    /**
+     * Set the dispatcher passing the events to {@link LoxoneEventListener}s by its own thread, instead of passing them
+     * directly by the web socket read thread. Slow listeners then can't stall the web socket reading. The dispatcher is
+     * started immediately and stopped by {@link #close()}. Not set by default.
+     *
+     * @param eventDispatcher dispatcher to use, can't be used by other web socket
+     */
+    public void setEventDispatcher(final @NotNull RingBufferEventDispatcher eventDispatcher) {
+        requireNonNull(eventDispatcher, "eventDispatcher can't be null");
+        eventDispatcher.start(this::notifyEventListeners);
+        final RingBufferEventDispatcher previous = this.eventDispatcher;
+        this.eventDispatcher = eventDispatcher;
+        if (previous != null) {
+            previous.stop();
+        }
+    }
+
+    /**
+     * Get the dispatcher passing the events to {@link LoxoneEventListener}s.
+     *
+     * @return event dispatcher or null when events are passed directly by the web socket read thread
+     */
+    @Nullable
+    public RingBufferEventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * Set the registry of known uuids. The uuids of received events are resolved to the canonical instances of the
+     * registry, so they can be compared by identity. Usually set from {@link cz.smarteon.loxone.app.LoxoneApp}, see
+     * {@link cz.smarteon.loxone.app.LoxoneApp#getUuidRegistry()}.
+     *
+     * @param uuidRegistry registry of known uuids, null to not resolve the event uuids
+     */
+    public void setUuidRegistry(final @Nullable LoxoneUuidRegistry uuidRegistry) {
+        this.uuidRegistry = uuidRegistry != null ? uuidRegistry : LoxoneUuidRegistry.empty();
+    }
+
+    /**
+     * Get the registry of known uuids.
+     *
+     * @return registry of known uuids
+     */
+    @NotNull
+    public LoxoneUuidRegistry getUuidRegistry() {
+        return uuidRegistry;
+    }
+
+    /**
+     * Set the store of the latest state values, it's updated by every received value and text event.
+     *
+     * @param stateStore store to update, null to not update any
+     */
+    public void setStateStore(final @Nullable LoxoneStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * Get the store of the latest state values.
+     *
+     * @return store of the latest state values or null if not set
+     */
+    @Nullable
+    public LoxoneStateStore getStateStore() {
+        return stateStore;
+    }
+
     /**
      * Register the web socket listener allowing to handle web socket events.
      * @param webSocketListener web socket listener
@@ -203,155 +635,338 @@ public class LoxoneWebSocket {
     }
 
     private void ensureConnection() {
-        if (!loxoneAuth.isInitialized()) {
-            loxoneAuth.init();
-        }
-        if (webSocketClient == null || !webSocketClient.isOpen()) {
-            log.trace("(Re)opening websocket connection");
-            if (connectRwLock.writeLock().tryLock()) {
-                try {
-                    authSeqLatch = new CountDownLatch(1);
-                    webSocketClient = webSocketClientProvider.apply(this, endpoint.webSocketUri());
-                    webSocketClient.connect();
-                } finally {
-                    connectRwLock.writeLock().unlock();
-                }
+        synchronized (stateLock) {
+            if (closed) {
+                throw new LoxoneException("Web socket has been closed");
+            }
+            if (connectionState == ConnectionState.DISCONNECTED) {
+                connectAttempts = 0;
+                connect(0);
+            } else if (connectionState == ConnectionState.READY && !loxoneAuth.isUsable()) {
+                log.info("Authentication is not usable => starting the authentication");
+                commandPipeline.pause();
+                transition(ConnectionState.KEY_EXCHANGE);
+                scheduleAuthTimeout();
+                dispatchExecutor.execute(loxoneAuth::startAuthentication);
             }
-        } else if (!loxoneAuth.isUsable()) {
-            log.info("Authentication is not usable => starting the authentication");
-            authSeqLatch = new CountDownLatch(1);
-            loxoneAuth.startAuthentication();
         }
     }
 
-    private void waitForAuth(final CountDownLatch latch, final int timeout, final boolean close) {
+    /**
+     * Moves to {@link ConnectionState#CONNECTING} and schedules the web socket opening. Has to be called holding
+     * the state lock.
+     */
+    private void connect(final long delayMillis) {
+        commandPipeline.pause();
+        transition(ConnectionState.CONNECTING);
+        scheduleAuthTimeout();
+        if (delayMillis > 0) {
+            scheduler.schedule(() -> dispatchExecutor.execute(this::openWebSocket), delayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            dispatchExecutor.execute(this::openWebSocket);
+        }
+    }
+
+    private void openWebSocket() {
+        final WebSocketClient client;
         try {
-            if (latch.await(timeout, TimeUnit.SECONDS)) {
-                log.trace("Waiting for authentication has been successful");
-            } else {
-                if (close) {
-                    closeWebSocket();
-                }
-                throw new LoxoneConnectionException("Unable to authenticate within timeout");
+            if (!loxoneAuth.isInitialized()) {
+                loxoneAuth.init();
             }
-        } catch (InterruptedException e) {
-            log.error("Interrupted while waiting for authentication sequence completion", e);
+            client = webSocketClientProvider.apply(this, endpoint.webSocketUri());
+        } catch (RuntimeException e) {
+            log.info("Unable to open websocket connection", e);
+            connectionFailed(e);
+            return;
         }
+
+        synchronized (stateLock) {
+            if (connectionState != ConnectionState.CONNECTING || webSocketClient != null) {
+                return;
+            }
+            webSocketClient = client;
+        }
+        log.trace("(Re)opening websocket connection");
+        client.connect();
     }
 
-    private void sendWithRetry(final Command command, final int retries) {
-        ensureConnection();
+    private void restart() {
+        synchronized (stateLock) {
+            if (!closed && connectionState == ConnectionState.DISCONNECTED) {
+                connectAttempts = 0;
+                connect(0);
+            }
+        }
+    }
 
-        try {
-            connectRwLock.readLock().lock();
-            try {
-                waitForAuth(authSeqLatch, authTimeoutSeconds, true);
-                sendInternal(command);
-            } finally {
-                connectRwLock.readLock().unlock();
-            }
-        } catch (LoxoneConnectionException e) {
-            if (retries > 0) {
-                log.info("Connection or authentication failed, retrying...");
-                waitForRetry();
-                sendWithRetry(command, retries - 1);
-            } else {
-                log.info("Connection or authentication failed too many times, give up");
-                throw new LoxoneException("Unable to authenticate within timeout with retry", e);
+    private void scheduleAuthTimeout() {
+        cancelAuthTimeout();
+        authTimeoutFuture = scheduler.schedule(this::authTimedOut, authTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    private void cancelAuthTimeout() {
+        if (authTimeoutFuture != null) {
+            authTimeoutFuture.cancel(false);
+            authTimeoutFuture = null;
+        }
+    }
+
+    private void authTimedOut() {
+        synchronized (stateLock) {
+            if (connectionState == ConnectionState.READY || connectionState == ConnectionState.DISCONNECTED) {
+                return;
             }
+            authTimeoutFuture = null;
         }
+        connectionFailed(new LoxoneConnectionException("Unable to authenticate within timeout"));
     }
 
-    private void sendSecureWithRetry(final ControlCommand<?> command, final int retries) {
-        ensureConnection();
+    /**
+     * Closes the connection which failed to connect or authenticate and retries, or gives up and fails the parked
+     * commands when there is no retry left.
+     */
+    private void connectionFailed(final Throwable cause) {
+        final WebSocketClient client;
+        final boolean retry;
+        synchronized (stateLock) {
+            if (closed) {
+                return;
+            }
+            cancelAuthTimeout();
+            client = webSocketClient;
+            webSocketClient = null;
+            retry = connectAttempts < retries;
+            if (retry) {
+                connectAttempts++;
+            } else {
+                transition(ConnectionState.DISCONNECTED);
+            }
+        }
 
-        try {
-            connectRwLock.readLock().lock();
-            try {
-                waitForAuth(authSeqLatch, authTimeoutSeconds, true);
-                if (visuLatch == null || visuLatch.getCount() == 0) {
-                    visuLatch = new CountDownLatch(1);
-                    loxoneAuth.startVisuAuthentication();
+        if (client != null) {
+            // detached connection, its close is not waited for and it's not handled by wsClosed
+            connectionLost(new LoxoneConnectionException("Web socket connection or authentication failed"));
+            client.close();
+        }
+
+        if (retry) {
+            log.info("Connection or authentication failed, retrying...");
+            synchronized (stateLock) {
+                if (!closed) {
+                    connect(RETRY_DELAY_MILLIS);
                 }
-                waitForAuth(visuLatch, visuTimeoutSeconds, false);
+            }
+        } else {
+            log.info("Connection or authentication failed too many times, give up");
+            commandPipeline.failQueued(new LoxoneException("Unable to authenticate within timeout with retry", cause));
+        }
+    }
+
+    /**
+     * Sends the command secured by visualization hash. Cancelling the returned future (on response timeout) drops
+     * the command waiting for response, so the later responses of the same control are not matched to it.
+     */
+    private <V extends LoxoneValue> CompletableFuture<LoxoneMessage<V>> sendSecured(final ControlCommand<V> command) {
+        final CompletableFuture<LoxoneMessage<V>> secured = new CompletableFuture<>();
+        visuHash().whenComplete((visuHash, throwable) -> {
+            if (throwable != null) {
+                secured.completeExceptionally(throwable);
+            } else if (!secured.isDone()) {
+                final CompletableFuture<LoxoneMessage<V>> response =
+                        sendInternal(new SecuredCommand<>(command, visuHash));
+                secured.whenComplete((value, cause) -> {
+                    if (secured.isCancelled()) {
+                        response.cancel(false);
+                    }
+                });
+                response.whenComplete((value, cause) -> {
+                    if (cause != null) {
+                        secured.completeExceptionally(cause);
+                    } else {
+                        secured.complete(value);
+                    }
+                });
+            }
+        });
+        return secured;
+    }
 
-                sendInternal(new SecuredCommand<>(command, loxoneAuth.getVisuHash()));
-            } finally {
-                connectRwLock.readLock().unlock();
+    /**
+     * Visualization hash for secured commands. Commands secured at the same time share the same visualization
+     * authentication.
+     */
+    private CompletableFuture<String> visuHash() {
+        final CompletableFuture<String> future;
+        synchronized (stateLock) {
+            if (visuHashFuture != null) {
+                return visuHashFuture;
             }
-        } catch (LoxoneConnectionException e) {
-            if (retries > 0) {
-                log.info("Connection or authentication failed, retrying...");
-                waitForRetry();
-                sendSecureWithRetry(command, retries - 1);
+            future = visuHashFuture = new CompletableFuture<>();
+            visuAttempts = 0;
+            visuTimeoutFuture = scheduler.schedule(this::visuTimedOut, visuTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        loxoneAuth.startVisuAuthentication();
+        return future;
+    }
+
+    private void visuTimedOut() {
+        final boolean retry;
+        synchronized (stateLock) {
+            if (visuHashFuture == null) {
+                return;
+            }
+            retry = visuAttempts < retries;
+            if (retry) {
+                visuAttempts++;
+                visuTimeoutFuture = scheduler.schedule(this::visuTimedOut, visuTimeoutSeconds, TimeUnit.SECONDS);
             } else {
-                log.info("Connection or authentication failed too many times, give up");
-                throw new LoxoneException("Unable to authenticate within timeout with retry", e);
+                visuTimeoutFuture = null;
             }
         }
+        if (retry) {
+            log.info("Visualization authentication failed, retrying...");
+            loxoneAuth.startVisuAuthentication();
+        } else {
+            log.info("Visualization authentication failed too many times, give up");
+            failVisuHash(new LoxoneException("Unable to authenticate visualization within timeout with retry"));
+        }
     }
 
-    private void waitForRetry() {
-        try {
-            Thread.sleep(10);
-        } catch (InterruptedException ignored) {
+    private void failVisuHash(final Throwable cause) {
+        final CompletableFuture<String> future;
+        synchronized (stateLock) {
+            future = visuHashFuture;
+            visuHashFuture = null;
+            if (visuTimeoutFuture != null) {
+                visuTimeoutFuture.cancel(false);
+                visuTimeoutFuture = null;
+            }
+        }
+        if (future != null) {
+            future.completeExceptionally(cause);
         }
     }
 
+    private void transition(final ConnectionState state) {
+        if (connectionState != state) {
+            log.debug("Connection state " + connectionState + " -> " + state);
+            connectionState = state;
+        }
+    }
 
-    // TODO Contains potential race condition when response to the sent command is received faster than command is added to queue
-    // however, the probability it happens with real miniserver is very low
-    void sendInternal(final Command command) {
+    <T> CompletableFuture<T> sendInternal(final Command<T> command) {
         log.debug("Sending websocket message: " + command.getCommand());
-        webSocketClient.send(command.getCommand());
+        final WebSocketClient client = webSocketClient;
+        if (client == null) {
+            final CompletableFuture<T> notConnected = new CompletableFuture<>();
+            notConnected.completeExceptionally(new LoxoneConnectionException("Web socket is not connected"));
+            return notConnected;
+        }
+
         // KEEP_ALIVE command has no response at all
-        if (! KEEP_ALIVE.getCommand().equals(command.getCommand())) {
-            commands.add(command);
+        if (KEEP_ALIVE.getCommand().equals(command.getCommand())) {
+            client.send(command.getCommand());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // register before sending, so the response can't come earlier than the command is expected
+        final PendingCommand<T> pending = pendingCommands.add(command);
+        try {
+            client.send(command.getCommand());
+        } catch (RuntimeException e) {
+            pendingCommands.remove(pending);
+            pending.fail(e);
         }
+        return pending.getFuture();
     }
 
     void processMessage(final String message) {
+        final String control;
+        try {
+            control = Codec.readControl(message);
+        } catch (IOException e) {
+            log.error("Can't parse response: " + e.getMessage());
+            return;
+        }
+
+        final PendingCommand<?> pending = pendingCommands.poll(control);
+        if (pending == null) {
+            log.error("No command expected for response with control " + control);
+            return;
+        }
+
+        final Command<?> command = pending.getCommand();
         try {
-            final Command<?> command = commands.remove();
-            if (! Void.class.equals(command.getResponseType())) {
+            if (Void.class.equals(command.getResponseType())) {
+                pending.complete(null);
+            } else {
                 final Object parsedMessage = Codec.readMessage(message, command.getResponseType());
                 if (parsedMessage instanceof LoxoneMessage) {
                     final LoxoneMessage loxoneMessage = (LoxoneMessage) parsedMessage;
                     if (checkLoxoneMessage(command, loxoneMessage)) {
                         processCommand(command, loxoneMessage);
+                        pending.complete(loxoneMessage);
                     } else {
                         log.debug(loxoneMessage.toString());
+                        pending.fail(new LoxoneException("Command " + command.getCommand()
+                                + " responded by code " + loxoneMessage.getCode()));
                     }
                 } else {
-                    processCommand(command, command.ensureResponse(parsedMessage));
+                    final Object response = command.ensureResponse(parsedMessage);
+                    processCommand(command, response);
+                    pending.complete(response);
                 }
             }
-        } catch (NoSuchElementException e) {
-            log.error("No command expected!", e);
         } catch (IOException e) {
             log.error("Can't parse response: " + e.getMessage());
+            pending.fail(new LoxoneException("Can't parse response of command " + command.getCommand(), e));
+        } catch (RuntimeException e) {
+            pending.fail(e);
+            throw e;
         }
-
     }
 
     void processEvents(final MessageHeader msgHeader, final ByteBuffer bytes) {
         switch (msgHeader.getKind()) {
             case EVENT_VALUE:
-                final Collection<ValueEvent> valueEvents = Codec.readValueEvents(bytes);
-                log.trace("Incoming " + valueEvents);
-                for (ValueEvent event : valueEvents) {
-                    for (LoxoneEventListener eventListener : eventListeners) {
-                        eventListener.onEvent(event);
-                    }
-                }
+                Codec.readValueEvents(bytes, valueEventsProcessor);
                 break;
             case EVENT_TEXT:
-                final Collection<TextEvent> textEvents = Codec.readTextEvents(bytes);
-                log.trace(("Incoming " + textEvents));
+                final Collection<TextEvent> textEvents = Codec.readTextEvents(bytes, uuidRegistry);
+                if (log.isTraceEnabled()) {
+                    log.trace("Incoming " + textEvents);
+                }
+                final LoxoneStateStore store = stateStore;
+                if (store != null) {
+                    store.onTexts(textEvents);
+                }
                 for (TextEvent event : textEvents) {
-                    for (LoxoneEventListener eventListener : eventListeners) {
-                        eventListener.onEvent(event);
+                    dispatchEvent(event);
+                }
+                break;
+            case FILE:
+                processFile(msgHeader, bytes);
+                break;
+            case EVENT_DAYTIMER:
+                final Collection<DaytimerEvent> daytimerEvents = Codec.readDaytimerEvents(bytes, uuidRegistry);
+                if (log.isTraceEnabled()) {
+                    log.trace("Incoming " + daytimerEvents);
+                }
+                for (DaytimerEvent event : daytimerEvents) {
+                    dispatchEvent(event);
+                }
+                break;
+            case EVENT_WEATHER:
+                final Collection<WeatherEvent> weatherEvents = Codec.readWeatherEvents(bytes, uuidRegistry);
+                if (log.isTraceEnabled()) {
+                    log.trace("Incoming " + weatherEvents);
+                }
+                final LoxoneStateStore weatherStore = stateStore;
+                for (WeatherEvent event : weatherEvents) {
+                    if (weatherStore != null) {
+                        weatherStore.onWeather(event);
                     }
+                    dispatchEvent(event);
                 }
                 break;
             default:
@@ -359,12 +974,155 @@ public class LoxoneWebSocket {
         }
     }
 
+    /**
+     * Processes the text message announced as {@link cz.smarteon.loxone.message.MessageKind#FILE}. It's written by the oldest pending
+     * {@link FileCommand} if any, processed as regular text message otherwise.
+     */
+    void processFile(final MessageHeader msgHeader, final String message) {
+        final PendingCommand<?> pending = pendingCommands.pollRaw(FileCommand.class);
+        if (pending == null) {
+            processMessage(message);
+            return;
+        }
+        final FileCommand command = (FileCommand) pending.getCommand();
+        final int chunkSize = (int) Math.max(MIN_FILE_CHUNK_SIZE, Math.min(MAX_FILE_CHUNK_SIZE,
+                msgHeader.getMessageSize()));
+        final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = CharBuffer.wrap(message);
+        final ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        long written = 0;
+        try {
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, chunk, true);
+                written += writeChunk(command.getChannel(), chunk);
+            } while (result.isOverflow());
+            while (encoder.flush(chunk).isOverflow()) {
+                written += writeChunk(command.getChannel(), chunk);
+            }
+            written += writeChunk(command.getChannel(), chunk);
+            pending.complete(written);
+        } catch (IOException e) {
+            pending.fail(new LoxoneException("Can't write downloaded file " + command.getCommand(), e));
+        }
+    }
+
+    /**
+     * Processes the binary message announced as {@link cz.smarteon.loxone.message.MessageKind#FILE}. It's written by the oldest pending
+     * {@link FileCommand} if any, ignored otherwise.
+     */
+    private void processFile(final MessageHeader msgHeader, final ByteBuffer bytes) {
+        final PendingCommand<?> pending = pendingCommands.pollRaw(FileCommand.class);
+        if (pending == null) {
+            log.trace("Incoming file " + msgHeader + " not expected");
+            return;
+        }
+        final FileCommand command = (FileCommand) pending.getCommand();
+        if (!msgHeader.isSizeEstimated() && msgHeader.getMessageSize() != bytes.limit()) {
+            log.warn("Downloaded file " + command.getCommand() + " has " + bytes.limit() + " bytes, but "
+                    + msgHeader.getMessageSize() + " were announced");
+        }
+        try {
+            bytes.rewind();
+            long written = 0;
+            while (bytes.hasRemaining()) {
+                written += command.getChannel().write(bytes);
+            }
+            pending.complete(written);
+        } catch (IOException e) {
+            pending.fail(new LoxoneException("Can't write downloaded file " + command.getCommand(), e));
+        }
+    }
+
+    private static long writeChunk(final WritableByteChannel channel, final ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        long written = 0;
+        while (chunk.hasRemaining()) {
+            written += channel.write(chunk);
+        }
+        chunk.clear();
+        return written;
+    }
+
+    private static void closeQuietly(final FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Can't close downloaded file", e);
+        }
+    }
+
+    /**
+     * Processes single value event read from the message. The state store always receives the value, the listeners only
+     * when the value passes the value filter. The {@link ValueEvent} is allocated only when there is any event listener
+     * registered, or subscribed to the event uuid.
+     */
+    private void processValueEvent(final long uuidHi, final long uuidLo, final double value) {
+        final LoxoneStateStore store = stateStore;
+        if (store != null) {
+            store.onValue(uuidHi, uuidLo, value);
+        }
+        if (!valueFilters.accept(uuidHi, uuidLo, value)) {
+            return;
+        }
+        final LoxoneValueListener[] listeners = valueListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onValue(uuidHi, uuidLo, value);
+        }
+        final LoxoneUuid uuid = eventListeners.isEmpty()
+                ? subscriptions.subscribed(uuidHi, uuidLo)
+                : uuidRegistry.resolve(uuidHi, uuidLo);
+        if (uuid != null) {
+            final ValueEvent event = new ValueEvent(uuid, value);
+            if (log.isTraceEnabled()) {
+                log.trace("Incoming " + event);
+            }
+            dispatchEvent(event);
+        }
+    }
+
+    private void dispatchEvent(final LoxoneEvent event) {
+        final RingBufferEventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            if (!dispatcher.publish(event)) {
+                log.trace("Event dispatcher buffer full, dropping " + event);
+            }
+        } else {
+            notifyEventListeners(event);
+        }
+    }
+
+    private void notifyEventListeners(final LoxoneEvent event) {
+        if (event instanceof ValueEvent) {
+            for (LoxoneEventListener eventListener : eventListeners) {
+                eventListener.onEvent((ValueEvent) event);
+            }
+        } else if (event instanceof TextEvent) {
+            for (LoxoneEventListener eventListener : eventListeners) {
+                eventListener.onEvent((TextEvent) event);
+            }
+        } else if (event instanceof DaytimerEvent) {
+            for (LoxoneEventListener eventListener : eventListeners) {
+                eventListener.onEvent((DaytimerEvent) event);
+            }
+        } else if (event instanceof WeatherEvent) {
+            for (LoxoneEventListener eventListener : eventListeners) {
+                eventListener.onEvent((WeatherEvent) event);
+            }
+        }
+        subscriptions.notify(event);
+    }
+
     void connectionOpened() {
-        if (autoRestartFuture != null) {
-            autoRestartFuture.cancel(true);
-            autoRestartFuture = null;
+        synchronized (stateLock) {
+            cancelAutoRestart();
+            if (connectionState == ConnectionState.CONNECTING) {
+                transition(ConnectionState.KEY_EXCHANGE);
+            }
         }
-        scheduler.execute(() -> {
+        dispatchExecutor.execute(() -> {
             loxoneAuth.startAuthentication();
             webSocketListeners.forEach(LoxoneWebSocketListener::webSocketOpened);
         });
@@ -385,7 +1143,20 @@ public class LoxoneWebSocket {
         if (autoRestart) {
             final int rateSeconds = (retries + 1) * authTimeoutSeconds + 1;
             log.info("Scheduling automatic web socket restart in " + rateSeconds + " seconds");
-            autoRestartFuture = scheduler.scheduleAtFixedRate(this::ensureConnection, rateSeconds, rateSeconds, TimeUnit.SECONDS);
+            synchronized (stateLock) {
+                if (!closed) {
+                    cancelAutoRestart();
+                    autoRestartFuture = scheduler.scheduleAtFixedRate(this::restart, rateSeconds, rateSeconds,
+                            TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    private void cancelAutoRestart() {
+        if (autoRestartFuture != null) {
+            autoRestartFuture.cancel(false);
+            autoRestartFuture = null;
         }
     }
 
@@ -399,8 +1170,37 @@ public class LoxoneWebSocket {
         }
     }
 
-    void wsClosed() {
-        commands.clear();
+    void wsClosed(final @NotNull WebSocketClient closedClient) {
+        final ConnectionState closedState;
+        synchronized (stateLock) {
+            if (closedClient != webSocketClient) {
+                log.trace("Detached web socket connection closed");
+                return;
+            }
+            commandPipeline.pause();
+            closedState = connectionState;
+            webSocketClient = null;
+            if (closedState == ConnectionState.READY) {
+                transition(ConnectionState.DISCONNECTED);
+            }
+        }
+        final LoxoneConnectionException closedException =
+                new LoxoneConnectionException("Web socket closed before the response received");
+        connectionLost(closedException);
+
+        if (closedState == ConnectionState.READY) {
+            // parked commands wait for the automatic restart, nothing else would send them
+            if (!autoRestart) {
+                commandPipeline.failQueued(closedException);
+            }
+        } else if (closedState != ConnectionState.DISCONNECTED) {
+            connectionFailed(closedException);
+        }
+    }
+
+    private void connectionLost(final LoxoneConnectionException cause) {
+        pendingCommands.failAll(cause);
+        failVisuHash(cause);
         loxoneAuth.wsClosed();
     }
 
@@ -458,23 +1258,50 @@ public class LoxoneWebSocket {
 
     private class LoxoneAuthListener implements AuthListener {
 
+        @Override
+        public void tokenRequested() {
+            synchronized (stateLock) {
+                if (connectionState == ConnectionState.KEY_EXCHANGE) {
+                    transition(ConnectionState.TOKEN);
+                }
+            }
+        }
+
         @Override
         public void authCompleted() {
             log.info("Authentication completed");
-            if (authSeqLatch != null) {
-                authSeqLatch.countDown();
-            } else {
-                throw new IllegalStateException("Authentication not guarded");
+            synchronized (stateLock) {
+                if (closed || connectionState == ConnectionState.DISCONNECTED) {
+                    return;
+                }
+                cancelAuthTimeout();
+                connectAttempts = 0;
+            }
+            // flush the parked commands before announcing ready
+            commandPipeline.resume();
+            synchronized (stateLock) {
+                if (!closed && connectionState != ConnectionState.DISCONNECTED) {
+                    transition(ConnectionState.READY);
+                }
             }
         }
 
         @Override
         public void visuAuthCompleted() {
             log.info("Visualization authentication completed");
-            if (visuLatch != null) {
-                visuLatch.countDown();
+            final CompletableFuture<String> future;
+            synchronized (stateLock) {
+                future = visuHashFuture;
+                visuHashFuture = null;
+                if (visuTimeoutFuture != null) {
+                    visuTimeoutFuture.cancel(false);
+                    visuTimeoutFuture = null;
+                }
+            }
+            if (future != null) {
+                future.complete(loxoneAuth.getVisuHash());
             } else {
-                throw new IllegalStateException("Visualization authentication not guarded");
+                log.warn("Visualization authentication completed, but it hasn't been requested");
             }
         }
     }
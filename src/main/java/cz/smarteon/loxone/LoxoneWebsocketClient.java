@@ -9,7 +9,6 @@ import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -38,8 +37,9 @@ class LoxoneWebsocketClient extends WebSocketClient {
     private AtomicReference<MessageHeader> msgHeaderRef = new AtomicReference<>();
 
     private Runnable keepAliveTask;
-    private CountDownLatch keepAliveLatch;
-    private ScheduledFuture keepAliveFuture;
+    private volatile boolean keepAliveReceived;
+    private ScheduledFuture<?> keepAliveFuture;
+    private ScheduledFuture<?> keepAliveTimeoutFuture;
 
     /**
      * Creates new instance
@@ -49,17 +49,18 @@ class LoxoneWebsocketClient extends WebSocketClient {
     LoxoneWebsocketClient(final LoxoneWebSocket ws, final URI uri) {
         super(uri);
         this.ws = requireNonNull(ws);
+        // the keepalive guard below is used instead, the lost connection checker would run own thread per connection
+        setConnectionLostTimeout(0);
+        // the scheduler can be shared by many connections, so the response is not waited for, but checked later
         this.keepAliveTask = () -> {
+            keepAliveReceived = false;
             LoxoneWebsocketClient.this.ws.sendInternal(KEEP_ALIVE);
-            keepAliveLatch = new CountDownLatch(1);
-            try {
-                if (!keepAliveLatch.await(KEEP_ALIVE_RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            keepAliveTimeoutFuture = LoxoneWebsocketClient.this.ws.scheduler.schedule(() -> {
+                if (!keepAliveReceived) {
                     log.info("Keepalive response not received within timeout, closing connection");
-                    LoxoneWebsocketClient.this.ws.closeWebSocket();
+                    close();
                 }
-            } catch (InterruptedException e) {
-                log.debug("Keepalive latch has been interrupted");
-            }
+            }, KEEP_ALIVE_RESPONSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         };
     }
 
@@ -75,13 +76,18 @@ class LoxoneWebsocketClient extends WebSocketClient {
     }
 
     /**
-     * Processes text message. The previous message header should have been of kind {@link MessageKind#TEXT}
+     * Processes text message. The previous message header should have been of kind {@link MessageKind#TEXT}, or
+     * {@link MessageKind#FILE} in case of text file
      * @param message message.
      */
     @Override
     public void onMessage(final String message) {
         log.trace("Incoming message " + message);
         final MessageHeader msgHeader = msgHeaderRef.getAndSet(null);
+        if (msgHeader != null && msgHeader.getKind() == MessageKind.FILE) {
+            ws.processFile(msgHeader, message);
+            return;
+        }
         if (msgHeader != null && msgHeader.getKind() != MessageKind.TEXT) {
             log.warn("Got text message but " + msgHeader.getKind() + " has been expected");
         }
@@ -104,7 +110,7 @@ class LoxoneWebsocketClient extends WebSocketClient {
                 final MessageHeader header = Codec.readHeader(bytes);
                 if (MessageHeader.KEEP_ALIVE.equals(header)) {
                     log.trace("Incoming keepalive");
-                    keepAliveLatch.countDown();
+                    keepAliveReceived = true;
                 } else if (msgHeaderRef.compareAndSet(null, header)) {
                     log.trace("Incoming message header " + msgHeaderRef.get());
                 } else {
@@ -123,10 +129,13 @@ class LoxoneWebsocketClient extends WebSocketClient {
     @Override
     public void onClose(int code, String reason, boolean remote) {
         log.info("Closed by " + (remote ? "remote" : "local") + " end because of " + code +": " + reason);
-        ws.wsClosed();
+        ws.wsClosed(this);
         if (keepAliveFuture != null) {
             keepAliveFuture.cancel(true);
         }
+        if (keepAliveTimeoutFuture != null) {
+            keepAliveTimeoutFuture.cancel(false);
+        }
         ws.connectionClosed(code, remote);
         if (remote) {
             ws.autoRestart();
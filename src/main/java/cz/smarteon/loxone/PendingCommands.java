@@ -0,0 +1,218 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.LoxoneMessage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Correlation table of commands sent over web socket and waiting for their response. Commands are indexed by the
+ * control path the response is expected to carry (see {@link LoxoneMessage#getControl()}), so the responses are
+ * matched to their commands independently of the order they arrive in. Commands which responses don't carry the
+ * control path (for example {@link Command#LOX_APP}) are correlated in the order they were sent.
+ */
+class PendingCommands {
+
+    private static final String RAW_RESPONSE_KEY = "";
+
+    private final Map<String, Deque<PendingCommand<?>>> byControl = new HashMap<>();
+    private long sequence = 0;
+    private int size = 0;
+
+    /**
+     * Registers the command as waiting for response.
+     * @param command command to register
+     * @param <T> command response type
+     * @return pending command holding the future of command response
+     */
+    @NotNull
+    synchronized <T> PendingCommand<T> add(final @NotNull Command<T> command) {
+        final PendingCommand<T> pending = new PendingCommand<>(command, sequence++);
+        byControl.computeIfAbsent(pending.key, k -> new ArrayDeque<>()).add(pending);
+        size++;
+        pending.future.whenComplete((response, throwable) -> {
+            if (pending.future.isCancelled()) {
+                remove(pending);
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Removes and returns the command the response of given control path belongs to.
+     * @param control control path of the response, null in case the response doesn't carry one
+     * @return the matching pending command or null if there is no such
+     */
+    @Nullable
+    synchronized PendingCommand<?> poll(final @Nullable String control) {
+        final PendingCommand<?> pending = control == null ? pollFirst(RAW_RESPONSE_KEY) : pollControl(control);
+        if (pending != null) {
+            size--;
+        }
+        return pending;
+    }
+
+    /**
+     * Removes and returns the oldest command which response doesn't carry the control path, in case it's of given
+     * type.
+     * @param commandType type of the command to poll
+     * @return the oldest command without control path or null if there is no such or it's of other type
+     */
+    @Nullable
+    synchronized PendingCommand<?> pollRaw(final @NotNull Class<?> commandType) {
+        final Deque<PendingCommand<?>> queue = byControl.get(RAW_RESPONSE_KEY);
+        if (queue != null && commandType.isInstance(queue.peek().command)) {
+            return poll(null);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given command, in case it's still pending.
+     * @param pending command to remove
+     */
+    synchronized void remove(final @NotNull PendingCommand<?> pending) {
+        final Deque<PendingCommand<?>> queue = byControl.get(pending.key);
+        if (queue != null && queue.remove(pending)) {
+            size--;
+            if (queue.isEmpty()) {
+                byControl.remove(pending.key);
+            }
+        }
+    }
+
+    /**
+     * Completes all the pending commands exceptionally with the given cause and clears this table.
+     * @param cause cause of the failure
+     */
+    void failAll(final @NotNull Throwable cause) {
+        final List<PendingCommand<?>> toFail = new ArrayList<>();
+        synchronized (this) {
+            byControl.values().forEach(toFail::addAll);
+            byControl.clear();
+            size = 0;
+        }
+        toFail.forEach(pending -> pending.future.completeExceptionally(cause));
+    }
+
+    /**
+     * @return number of commands waiting for response
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private PendingCommand<?> pollControl(final String control) {
+        final PendingCommand<?> exact = pollFirst(controlKey(control));
+        if (exact != null) {
+            return exact;
+        }
+
+        // response path differs from the command (e.g. encrypted commands) - fallback to the oldest matching command
+        PendingCommand<?> oldest = null;
+        for (Deque<PendingCommand<?>> queue : byControl.values()) {
+            for (PendingCommand<?> pending : queue) {
+                if (pending.command.is(control) && (oldest == null || pending.sequence < oldest.sequence)) {
+                    oldest = pending;
+                }
+            }
+        }
+        if (oldest != null) {
+            final Deque<PendingCommand<?>> queue = byControl.get(oldest.key);
+            queue.remove(oldest);
+            if (queue.isEmpty()) {
+                byControl.remove(oldest.key);
+            }
+        }
+        return oldest;
+    }
+
+    private PendingCommand<?> pollFirst(final String key) {
+        final Deque<PendingCommand<?>> queue = byControl.get(key);
+        if (queue != null) {
+            final PendingCommand<?> pending = queue.poll();
+            if (queue.isEmpty()) {
+                byControl.remove(key);
+            }
+            return pending;
+        }
+        return null;
+    }
+
+    /**
+     * Normalizes the control path, miniserver responds to "jdev/..." commands with both "jdev/..." and "dev/..."
+     * control paths.
+     */
+    private static String controlKey(final String control) {
+        return control.startsWith("j") ? control.substring(1) : control;
+    }
+
+    private static String correlationKey(final Command<?> command) {
+        final Class<?> responseType = command.getResponseType();
+        if (Void.class.equals(responseType) || LoxoneMessage.class.isAssignableFrom(responseType)) {
+            return controlKey(command.getCommand());
+        } else {
+            return RAW_RESPONSE_KEY;
+        }
+    }
+
+    /**
+     * Command waiting for the response.
+     * @param <T> command response type
+     */
+    static final class PendingCommand<T> {
+        private final Command<T> command;
+        private final long sequence;
+        private final String key;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private PendingCommand(final Command<T> command, final long sequence) {
+            this.command = requireNonNull(command, "command can't be null");
+            this.sequence = sequence;
+            this.key = correlationKey(command);
+        }
+
+        @NotNull
+        Command<T> getCommand() {
+            return command;
+        }
+
+        @NotNull
+        CompletableFuture<T> getFuture() {
+            return future;
+        }
+
+        /**
+         * Completes the command with given response, ensuring its type.
+         * @param response response to complete with
+         */
+        void complete(final @Nullable Object response) {
+            if (Void.class.equals(command.getResponseType())) {
+                future.complete(null);
+            } else {
+                future.complete(command.ensureResponse(response));
+            }
+        }
+
+        void fail(final @NotNull Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+
+        @Override
+        public String toString() {
+            return "PendingCommand{" +
+                    "command=" + command.getCommand() +
+                    ", sequence=" + sequence +
+                    '}';
+        }
+    }
+}
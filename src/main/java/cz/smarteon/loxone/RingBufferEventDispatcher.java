@@ -0,0 +1,206 @@
+package cz.smarteon.loxone;
+
+import cz.smarteon.loxone.message.LoxoneEvent;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decouples the {@link LoxoneEventListener}s from the web socket read thread. Events are put to preallocated ring buffer
+ * by the read thread (single producer) and passed to the listeners by own consumer thread. The producer never waits:
+ * when the buffer is full, the event is dropped and counted (see {@link #getDroppedEvents()}).
+ * <p>
+ * Set to {@link LoxoneWebSocket} by {@link LoxoneWebSocket#setEventDispatcher(RingBufferEventDispatcher)}, which also
+ * starts the consumer thread. The consumer thread is stopped when the web socket is closed.
+ */
+public class RingBufferEventDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(RingBufferEventDispatcher.class);
+
+    private static final int SPIN_TRIES = 100;
+    private static final long SLEEP_NANOS = 100_000;
+
+    /**
+     * The way the consumer thread waits for the events, when there is none in the buffer.
+     */
+    public enum WaitStrategy {
+        /**
+         * Parks the consumer until it's woken up by the producer. Lowest CPU usage, highest latency.
+         */
+        BLOCKING,
+
+        /**
+         * Spins for a while, then sleeps for short periods.
+         */
+        SLEEPING,
+
+        /**
+         * Spins for a while, then yields the CPU to other threads.
+         */
+        YIELDING,
+
+        /**
+         * Spins all the time. Lowest latency, occupies whole CPU core.
+         */
+        BUSY_SPIN
+    }
+
+    private final LoxoneEvent[] buffer;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final ThreadFactory threadFactory;
+
+    // sequence of next event to be published, written by producer only
+    private final AtomicLong published = new AtomicLong();
+    // sequence of next event to be consumed, written by consumer only
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile boolean consumerWaiting;
+    private volatile Thread consumerThread;
+
+    /**
+     * Creates new instance with consumer thread created as daemon.
+     * @param bufferSize size of the ring buffer, has to be power of two
+     * @param waitStrategy the way consumer waits for the events
+     */
+    public RingBufferEventDispatcher(final int bufferSize, final @NotNull WaitStrategy waitStrategy) {
+        this(bufferSize, waitStrategy, runnable -> {
+            final Thread thread = new Thread(runnable, "loxone-event-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates new instance.
+     * @param bufferSize size of the ring buffer, has to be power of two
+     * @param waitStrategy the way consumer waits for the events
+     * @param threadFactory factory of the consumer thread
+     */
+    public RingBufferEventDispatcher(final int bufferSize, final @NotNull WaitStrategy waitStrategy,
+                                     final @NotNull ThreadFactory threadFactory) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize has to be positive power of two");
+        }
+        this.buffer = new LoxoneEvent[bufferSize];
+        this.mask = bufferSize - 1;
+        this.waitStrategy = requireNonNull(waitStrategy, "waitStrategy can't be null");
+        this.threadFactory = requireNonNull(threadFactory, "threadFactory can't be null");
+    }
+
+    /**
+     * Number of events dropped because the buffer was full.
+     * @return number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.get();
+    }
+
+    /**
+     * Number of events waiting in the buffer to be passed to listeners.
+     * @return number of buffered events
+     */
+    public int getBufferedEvents() {
+        return (int) (published.get() - consumed.get());
+    }
+
+    /**
+     * Starts the consumer thread passing the events to the given sink.
+     * @param sink consumer of the events
+     */
+    synchronized void start(final @NotNull Consumer<LoxoneEvent> sink) {
+        requireNonNull(sink, "sink can't be null");
+        if (consumerThread != null) {
+            throw new IllegalStateException("Event dispatcher already started");
+        }
+        running = true;
+        consumerThread = threadFactory.newThread(() -> consume(sink));
+        consumerThread.start();
+    }
+
+    /**
+     * Stops the consumer thread. Events still in the buffer are not dispatched.
+     */
+    synchronized void stop() {
+        running = false;
+        if (consumerThread != null) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    /**
+     * Publishes the event to the buffer, never waits. Has to be called by single thread.
+     * @param event event to publish
+     * @return true if published, false if dropped because the buffer is full
+     */
+    boolean publish(final @NotNull LoxoneEvent event) {
+        final long sequence = published.get();
+        if (sequence - consumed.get() >= buffer.length) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        buffer[(int) sequence & mask] = event;
+        published.set(sequence + 1);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumerThread);
+        }
+        return true;
+    }
+
+    private void consume(final Consumer<LoxoneEvent> sink) {
+        long next = consumed.get();
+        int idle = 0;
+        while (running) {
+            if (next < published.get()) {
+                final int index = (int) next & mask;
+                final LoxoneEvent event = buffer[index];
+                buffer[index] = null;
+                consumed.set(++next);
+                idle = 0;
+                try {
+                    sink.accept(event);
+                } catch (RuntimeException e) {
+                    log.error("Event listener failed to process " + event, e);
+                }
+            } else {
+                idle = waitForEvent(next, idle);
+            }
+        }
+    }
+
+    private int waitForEvent(final long next, final int idle) {
+        switch (waitStrategy) {
+            case BLOCKING:
+                consumerWaiting = true;
+                // recheck after announcing the waiting, so the wake up from producer can't be missed
+                if (running && next >= published.get()) {
+                    LockSupport.park(this);
+                }
+                consumerWaiting = false;
+                return 0;
+            case SLEEPING:
+                if (idle < SPIN_TRIES) {
+                    return idle + 1;
+                }
+                LockSupport.parkNanos(this, SLEEP_NANOS);
+                return idle;
+            case YIELDING:
+                if (idle < SPIN_TRIES) {
+                    return idle + 1;
+                }
+                Thread.yield();
+                return idle;
+            default:
+                return idle;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package cz.smarteon.loxone;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Immutable rule deciding whether the value event is delivered, based on the last delivered value of the same uuid.
+ * The first value is always delivered. All the conditions of the rule have to be met, the next value is delivered when:
+ * <ul>
+ *     <li>it's not equal to the last delivered one, in case of {@link #changeOnly()}</li>
+ *     <li>it differs from the last delivered one by more than given absolute deadband, see {@link #deadband(double)}</li>
+ *     <li>it differs from the last delivered one by more than given fraction of it, see {@link #relativeDeadband(double)}</li>
+ *     <li>given time elapsed since the last delivery, see {@link #minInterval(long, TimeUnit)}</li>
+ * </ul>
+ * The rules can be combined, e.g. {@code ValueFilter.deadband(0.5).withMinInterval(1, TimeUnit.SECONDS)}.
+ * @see LoxoneWebSocket#setValueFilter(LoxoneUuid, ValueFilter)
+ */
+public final class ValueFilter {
+
+    private static final ValueFilter NONE = new ValueFilter(false, 0, 0, 0);
+
+    private final boolean changeOnly;
+    private final double deadband;
+    private final double relativeDeadband;
+    private final long minIntervalNanos;
+
+    private ValueFilter(final boolean changeOnly, final double deadband, final double relativeDeadband,
+                        final long minIntervalNanos) {
+        if (deadband < 0 || relativeDeadband < 0 || minIntervalNanos < 0) {
+            throw new IllegalArgumentException("Deadband and min interval can't be negative");
+        }
+        this.changeOnly = changeOnly;
+        this.deadband = deadband;
+        this.relativeDeadband = relativeDeadband;
+        this.minIntervalNanos = minIntervalNanos;
+    }
+
+    /**
+     * Filter suppressing the values equal to the last delivered one.
+     * @return change only filter
+     */
+    @NotNull
+    public static ValueFilter changeOnly() {
+        return NONE.withChangeOnly();
+    }
+
+    /**
+     * Filter suppressing the values not differing from the last delivered one by more than given deadband.
+     * @param deadband absolute deadband, can't be negative
+     * @return deadband filter
+     */
+    @NotNull
+    public static ValueFilter deadband(final double deadband) {
+        return NONE.withDeadband(deadband);
+    }
+
+    /**
+     * Filter suppressing the values not differing from the last delivered one by more than given fraction of it.
+     * @param fraction relative deadband (e.g. 0.01 for 1%), can't be negative
+     * @return relative deadband filter
+     */
+    @NotNull
+    public static ValueFilter relativeDeadband(final double fraction) {
+        return NONE.withRelativeDeadband(fraction);
+    }
+
+    /**
+     * Filter suppressing the values received sooner than given interval after the last delivered one.
+     * @param interval min interval, can't be negative
+     * @param unit unit of interval
+     * @return min interval filter
+     */
+    @NotNull
+    public static ValueFilter minInterval(final long interval, final @NotNull TimeUnit unit) {
+        return NONE.withMinInterval(interval, unit);
+    }
+
+    /**
+     * @return copy of this filter, suppressing also the values equal to the last delivered one
+     */
+    @NotNull
+    public ValueFilter withChangeOnly() {
+        return new ValueFilter(true, deadband, relativeDeadband, minIntervalNanos);
+    }
+
+    /**
+     * @param deadband absolute deadband, can't be negative
+     * @return copy of this filter with given absolute deadband
+     */
+    @NotNull
+    public ValueFilter withDeadband(final double deadband) {
+        return new ValueFilter(changeOnly, deadband, relativeDeadband, minIntervalNanos);
+    }
+
+    /**
+     * @param fraction relative deadband, can't be negative
+     * @return copy of this filter with given relative deadband
+     */
+    @NotNull
+    public ValueFilter withRelativeDeadband(final double fraction) {
+        return new ValueFilter(changeOnly, deadband, fraction, minIntervalNanos);
+    }
+
+    /**
+     * @param interval min interval, can't be negative
+     * @param unit unit of interval
+     * @return copy of this filter with given min interval
+     */
+    @NotNull
+    public ValueFilter withMinInterval(final long interval, final @NotNull TimeUnit unit) {
+        requireNonNull(unit, "unit can't be null");
+        return new ValueFilter(changeOnly, deadband, relativeDeadband, unit.toNanos(interval));
+    }
+
+    /**
+     * Whether the value should be delivered.
+     * @param last last delivered value
+     * @param lastNanos {@link System#nanoTime()} of the last delivery
+     * @param value value to decide
+     * @param nanos current {@link System#nanoTime()}
+     * @return true if the value should be delivered, false otherwise
+     */
+    boolean accepts(final double last, final long lastNanos, final double value, final long nanos) {
+        final double difference = Math.abs(value - last);
+        if (changeOnly && Double.compare(value, last) == 0) {
+            return false;
+        }
+        if (deadband > 0 && !(difference > deadband)) {
+            return false;
+        }
+        if (relativeDeadband > 0 && !(difference > relativeDeadband * Math.abs(last))) {
+            return false;
+        }
+        return minIntervalNanos == 0 || nanos - lastNanos >= minIntervalNanos;
+    }
+
+    /**
+     * @return true if the filter checks the time of delivery
+     */
+    boolean isTimed() {
+        return minIntervalNanos > 0;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final ValueFilter that = (ValueFilter) o;
+        return changeOnly == that.changeOnly &&
+                Double.compare(that.deadband, deadband) == 0 &&
+                Double.compare(that.relativeDeadband, relativeDeadband) == 0 &&
+                minIntervalNanos == that.minIntervalNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(changeOnly, deadband, relativeDeadband, minIntervalNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "ValueFilter{" +
+                "changeOnly=" + changeOnly +
+                ", deadband=" + deadband +
+                ", relativeDeadband=" + relativeDeadband +
+                ", minIntervalNanos=" + minIntervalNanos +
+                '}';
+    }
+}
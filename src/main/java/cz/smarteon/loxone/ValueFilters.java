@@ -0,0 +1,138 @@
+package cz.smarteon.loxone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of {@link ValueFilter}s of particular uuids, remembering the last delivered value of each filtered uuid.
+ * The values of uuids without filter are always accepted. Filters are read without locking nor allocation, changing
+ * the filters rebuilds the index. The last delivered values are carried over to the rebuilt index, except the ones of
+ * uuids which filter has changed to not equal one.
+ * <p>
+ * {@link #accept(long, long, double)} is expected to be called by single thread (the web socket read thread).
+ */
+class ValueFilters {
+
+    private final Map<LoxoneUuid, ValueFilter> filters = new LinkedHashMap<>();
+
+    private volatile Index index = new Index(LoxoneUuidRegistry.empty(), new ValueFilter[0]);
+
+    /**
+     * Sets the filter of given uuid.
+     * @param uuid uuid of value events
+     * @param filter filter to set, null to remove the filter
+     */
+    void set(final @NotNull LoxoneUuid uuid, final @Nullable ValueFilter filter) {
+        set(Collections.singletonList(requireNonNull(uuid, "uuid can't be null")), filter);
+    }
+
+    /**
+     * Sets the filter of all given uuids, the index is rebuilt only once.
+     * @param uuids uuids of value events
+     * @param filter filter to set, null to remove the filters
+     */
+    synchronized void set(final @NotNull Collection<LoxoneUuid> uuids, final @Nullable ValueFilter filter) {
+        requireNonNull(uuids, "uuids can't be null");
+        boolean changed = false;
+        for (LoxoneUuid uuid : uuids) {
+            requireNonNull(uuid, "uuid can't be null");
+            final ValueFilter previous = filter != null ? filters.put(uuid, filter) : filters.remove(uuid);
+            changed |= !Objects.equals(previous, filter);
+        }
+        if (changed) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Removes the filters of given uuids.
+     * @param uuids uuids of value events
+     */
+    synchronized void remove(final @NotNull Collection<LoxoneUuid> uuids) {
+        requireNonNull(uuids, "uuids can't be null");
+        if (filters.keySet().removeAll(uuids)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @param uuid uuid of value events
+     * @return filter of given uuid or null if there is none
+     */
+    @Nullable
+    synchronized ValueFilter get(final @NotNull LoxoneUuid uuid) {
+        return filters.get(uuid);
+    }
+
+    /**
+     * @return true if there is no filter
+     */
+    boolean isEmpty() {
+        return index.filters.length == 0;
+    }
+
+    /**
+     * Decides whether the value should be delivered, remembers it as the last delivered one if so.
+     * @param uuidHi higher 64 bits of the event uuid
+     * @param uuidLo lower 64 bits of the event uuid
+     * @param value event value
+     * @return true if the value should be delivered, false otherwise
+     */
+    boolean accept(final long uuidHi, final long uuidLo, final double value) {
+        final Index current = index;
+        final int slot = current.uuids.indexOf(uuidHi, uuidLo);
+        if (slot < 0) {
+            return true;
+        }
+        final ValueFilter filter = current.filters[slot];
+        final long nanos = filter.isTimed() ? System.nanoTime() : 0;
+        if (current.delivered[slot] && !filter.accepts(current.lastValues[slot], current.lastNanos[slot], value, nanos)) {
+            return false;
+        }
+        current.delivered[slot] = true;
+        current.lastValues[slot] = value;
+        current.lastNanos[slot] = nanos;
+        return true;
+    }
+
+    private void rebuild() {
+        final Index previous = index;
+        final Index rebuilt = new Index(LoxoneUuidRegistry.of(filters.keySet()),
+                filters.values().toArray(new ValueFilter[0]));
+        // the value accepted by the read thread during the copy may be missed, the next one is delivered then
+        for (int slot = 0; slot < rebuilt.filters.length; slot++) {
+            final int previousSlot = previous.uuids.indexOf(rebuilt.uuids.get(slot));
+            if (previousSlot >= 0 && Objects.equals(previous.filters[previousSlot], rebuilt.filters[slot])) {
+                rebuilt.delivered[slot] = previous.delivered[previousSlot];
+                rebuilt.lastValues[slot] = previous.lastValues[previousSlot];
+                rebuilt.lastNanos[slot] = previous.lastNanos[previousSlot];
+            }
+        }
+        index = rebuilt;
+    }
+
+    private static final class Index {
+        private final LoxoneUuidRegistry uuids;
+        // following arrays are indexed by the index of uuid in uuids registry
+        private final ValueFilter[] filters;
+        private final boolean[] delivered;
+        private final double[] lastValues;
+        private final long[] lastNanos;
+
+        private Index(final LoxoneUuidRegistry uuids, final ValueFilter[] filters) {
+            this.uuids = uuids;
+            this.filters = filters;
+            this.delivered = new boolean[filters.length];
+            this.lastValues = new double[filters.length];
+            this.lastNanos = new long[filters.length];
+        }
+    }
+}
@@ -10,6 +10,18 @@ public class AlarmControl extends Control {
 
     public static final String NAME = "Alarm";
 
+    private static final StateSlot ARMED = StateSlot.compulsory(AlarmControl.class, "armed");
+    private static final StateSlot ARMED_DELAY = StateSlot.compulsory(AlarmControl.class, "armedDelay");
+    private static final StateSlot ARMED_DELAY_TOTAL = StateSlot.compulsory(AlarmControl.class, "armedDelayTotal");
+    private static final StateSlot LEVEL = StateSlot.compulsory(AlarmControl.class, "level");
+    private static final StateSlot NEXT_LEVEL = StateSlot.compulsory(AlarmControl.class, "nextLevel");
+    private static final StateSlot NEXT_LEVEL_DELAY = StateSlot.compulsory(AlarmControl.class, "nextLevelDelay");
+    private static final StateSlot NEXT_LEVEL_DELAY_TOTAL =
+            StateSlot.compulsory(AlarmControl.class, "nextLevelDelayTotal");
+    private static final StateSlot SENSORS = StateSlot.compulsory(AlarmControl.class, "sensors");
+    private static final StateSlot START_TIME = StateSlot.compulsory(AlarmControl.class, "startTime");
+    private static final StateSlot DISABLED_MOVE = StateSlot.compulsory(AlarmControl.class, "disabledMove");
+
     @NotNull
     public boolean detailAlert() {
         return (boolean)getCompulsoryDetail("alert");
@@ -23,7 +35,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateArmed() {
-        return getCompulsoryState("armed").only();
+        return getState(ARMED);
     }
 
     /**
@@ -31,7 +43,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateArmedDelay() {
-        return getCompulsoryState("armedDelay").only();
+        return getState(ARMED_DELAY);
     }
 
     /**
@@ -39,7 +51,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateArmedDelayTotal() {
-        return getCompulsoryState("armedDelayTotal").only();
+        return getState(ARMED_DELAY_TOTAL);
     }
 
     /**
@@ -47,7 +59,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateLevel() {
-        return getCompulsoryState("level").only();
+        return getState(LEVEL);
     }
 
     /**
@@ -55,7 +67,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevel() {
-        return getCompulsoryState("nextLevel").only();
+        return getState(NEXT_LEVEL);
     }
 
     /**
@@ -63,7 +75,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevelDelay() {
-        return getCompulsoryState("nextLevelDelay").only();
+        return getState(NEXT_LEVEL_DELAY);
     }
 
     /**
@@ -71,7 +83,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevelDelayTotal() {
-        return getCompulsoryState("nextLevelDelayTotal").only();
+        return getState(NEXT_LEVEL_DELAY_TOTAL);
     }
 
     /**
@@ -79,7 +91,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateSensors() {
-        return getCompulsoryState("sensors").only();
+        return getState(SENSORS);
     }
 
     /**
@@ -87,7 +99,7 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateStartTime() {
-        return getCompulsoryState("startTime").only();
+        return getState(START_TIME);
     }
 
     /**
@@ -95,6 +107,6 @@ public class AlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateDisabledMove() {
-        return getCompulsoryState("disabledMove").only();
+        return getState(DISABLED_MOVE);
     }
 }
@@ -8,120 +8,152 @@ public class AudioZoneControl extends Control {
 
     public static final String NAME = "MediaClient";
 
+    private static final StateSlot SERVER_STATE = StateSlot.compulsory(AudioZoneControl.class, "serverState");
+    private static final StateSlot PLAY_STATE = StateSlot.compulsory(AudioZoneControl.class, "playState");
+    private static final StateSlot CLIENT_STATE = StateSlot.compulsory(AudioZoneControl.class, "clientState");
+    private static final StateSlot POWER = StateSlot.compulsory(AudioZoneControl.class, "power");
+    private static final StateSlot VOLUME = StateSlot.compulsory(AudioZoneControl.class, "volume");
+    private static final StateSlot MAX_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "maxVolume");
+    private static final StateSlot VOLUME_STEP = StateSlot.compulsory(AudioZoneControl.class, "volumeStep");
+    private static final StateSlot SHUFFLE = StateSlot.compulsory(AudioZoneControl.class, "shuffle");
+    private static final StateSlot SOURCE_LIST = StateSlot.compulsory(AudioZoneControl.class, "sourceList");
+    private static final StateSlot REPEAT = StateSlot.compulsory(AudioZoneControl.class, "repeat");
+    private static final StateSlot SONG_NAME = StateSlot.compulsory(AudioZoneControl.class, "songName");
+    private static final StateSlot DURATION = StateSlot.compulsory(AudioZoneControl.class, "duration");
+    private static final StateSlot PROGRESS = StateSlot.compulsory(AudioZoneControl.class, "progress");
+    private static final StateSlot ALBUM = StateSlot.compulsory(AudioZoneControl.class, "album");
+    private static final StateSlot ARTIST = StateSlot.compulsory(AudioZoneControl.class, "artist");
+    private static final StateSlot STATION = StateSlot.compulsory(AudioZoneControl.class, "station");
+    private static final StateSlot GENRE = StateSlot.compulsory(AudioZoneControl.class, "genre");
+    private static final StateSlot COVER = StateSlot.compulsory(AudioZoneControl.class, "cover");
+    private static final StateSlot SOURCE = StateSlot.compulsory(AudioZoneControl.class, "source");
+    private static final StateSlot QUEUE_INDEX = StateSlot.compulsory(AudioZoneControl.class, "queueIndex");
+    private static final StateSlot ENABLE_AIR_PLAY = StateSlot.compulsory(AudioZoneControl.class, "enableAirPlay");
+    private static final StateSlot ENABLE_SPOTIFY_CONNECT =
+            StateSlot.compulsory(AudioZoneControl.class, "enableSpotifyConnect");
+    private static final StateSlot ALARM_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "alarmVolume");
+    private static final StateSlot BELL_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "bellVolume");
+    private static final StateSlot BUZZER_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "buzzerVolume");
+    private static final StateSlot TTS_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "ttsVolume");
+    private static final StateSlot DEFAULT_VOLUME = StateSlot.compulsory(AudioZoneControl.class, "defaultVolume");
+    private static final StateSlot EQUALIZER_SETTINGS =
+            StateSlot.compulsory(AudioZoneControl.class, "equalizerSettings");
+    private static final StateSlot MASTERVOLUME = StateSlot.compulsory(AudioZoneControl.class, "mastervolume");
+
     @NotNull
     public LoxoneUuid stateServerState() {
-        return getCompulsoryState("serverState").only();
+        return getState(SERVER_STATE);
     }
     @NotNull
     public LoxoneUuid statePlayState() {
-        return getCompulsoryState("playState").only();
+        return getState(PLAY_STATE);
     }
     @NotNull
     public LoxoneUuid stateClientState() {
-        return getCompulsoryState("clientState").only();
+        return getState(CLIENT_STATE);
     }
     @NotNull
     public LoxoneUuid statePower() {
-        return getCompulsoryState("power").only();
+        return getState(POWER);
     }
     @NotNull
     public LoxoneUuid stateVolume() {
-        return getCompulsoryState("volume").only();
+        return getState(VOLUME);
     }
     @NotNull
     public LoxoneUuid stateMaxVolume() {
-        return getCompulsoryState("● maxVolume").only();
+        return getState(MAX_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateVolumeStep() {
-        return getCompulsoryState("volumeStep").only();
+        return getState(VOLUME_STEP);
     }
     @NotNull
     public LoxoneUuid stateShuffle() {
-        return getCompulsoryState("shuffle").only();
+        return getState(SHUFFLE);
     }
     @NotNull
     public LoxoneUuid stateSourceList() {
-        return getCompulsoryState("sourceList").only();
+        return getState(SOURCE_LIST);
     }
     @NotNull
     public LoxoneUuid stateRepeat() {
-        return getCompulsoryState("repeat").only();
+        return getState(REPEAT);
     }
     @NotNull
     public LoxoneUuid stateSongName() {
-        return getCompulsoryState("songName").only();
+        return getState(SONG_NAME);
     }
     @NotNull
     public LoxoneUuid stateDuration() {
-        return getCompulsoryState("duration").only();
+        return getState(DURATION);
     }
     @NotNull
     public LoxoneUuid stateProgress() {
-        return getCompulsoryState("progress").only();
+        return getState(PROGRESS);
     }
     @NotNull
     public LoxoneUuid stateAlbum() {
-        return getCompulsoryState("album").only();
+        return getState(ALBUM);
     }
     @NotNull
     public LoxoneUuid stateArtist() {
-        return getCompulsoryState("artist").only();
+        return getState(ARTIST);
     }
     @NotNull
     public LoxoneUuid stateStation() {
-        return getCompulsoryState("station").only();
+        return getState(STATION);
     }
     @NotNull
     public LoxoneUuid stateGenre() {
-        return getCompulsoryState("genre").only();
+        return getState(GENRE);
     }
     @NotNull
     public LoxoneUuid stateCover() {
-        return getCompulsoryState("cover").only();
+        return getState(COVER);
     }
     @NotNull
     public LoxoneUuid stateSource() {
-        return getCompulsoryState("source").only();
+        return getState(SOURCE);
     }
     @NotNull
     public LoxoneUuid stateQueueIndex() {
-        return getCompulsoryState("queueIndex").only();
+        return getState(QUEUE_INDEX);
     }
     @NotNull
     public LoxoneUuid stateEnableAirPlay() {
-        return getCompulsoryState("enableAirPlay").only();
+        return getState(ENABLE_AIR_PLAY);
     }
     @NotNull
     public LoxoneUuid stateEnableSpotifyConnect() {
-        return getCompulsoryState("enableSpotifyConnect").only();
+        return getState(ENABLE_SPOTIFY_CONNECT);
     }
     @NotNull
     public LoxoneUuid stateAlarmVolume() {
-        return getCompulsoryState("alarmVolume").only();
+        return getState(ALARM_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateBellVolume() {
-        return getCompulsoryState("bellVolume").only();
+        return getState(BELL_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateBuzzerVolume() {
-        return getCompulsoryState("buzzerVolume").only();
+        return getState(BUZZER_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateTtsVolume() {
-        return getCompulsoryState("ttsVolume").only();
+        return getState(TTS_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateDefaultVolume() {
-        return getCompulsoryState("defaultVolume").only();
+        return getState(DEFAULT_VOLUME);
     }
     @NotNull
     public LoxoneUuid stateEqualizerSettings() {
-        return getCompulsoryState("equalizerSettings").only();
+        return getState(EQUALIZER_SETTINGS);
     }
     @NotNull
     public LoxoneUuid stateMastervolume() {
-        return getCompulsoryState("mastervolume").only();
+        return getState(MASTERVOLUME);
     }
 }
@@ -5,12 +5,17 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import cz.smarteon.loxone.LoxoneException;
 import cz.smarteon.loxone.LoxoneUuid;
 import cz.smarteon.loxone.LoxoneUuids;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Base class for all the controls in loxone application
@@ -51,12 +56,25 @@ public abstract class Control {
     @JsonProperty(value = "isSecured")
     protected boolean secured;
 
-    @JsonProperty("details") @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
-    protected Map<String, Object> details;
+    // details are mapped on the first access only, most of them are never read
+    @JsonProperty("details")
+    private volatile RawJson rawDetails;
 
-    @JsonProperty("states") @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    private Map<String, Object> details;
+
+    // kept compact, most of the states have exactly one uuid and the controls of the same type share the state names
+    private ControlStates compactStates;
+
+    /**
+     * Control states, the same unmodifiable view as returned by {@link #getStates()}.
+     * @deprecated use {@link #getStates()}, the states are kept compact and can't be modified
+     */
+    @Deprecated
     protected Map<String, LoxoneUuids> states;
 
+    // uuids of the states declared by this control type, by StateSlot index
+    private LoxoneUuid[] stateSlots;
+
     /**
      * UUID of this control, should be unique
      * @return control UUID
@@ -93,21 +111,86 @@ public abstract class Control {
     }
 
     /**
-     * Control details map
-     * @return control states
+     * Control details map, mapped from the structure file on the first call.
+     * @return control details
+     * @throws cz.smarteon.loxone.LoxoneException in case the details can't be mapped
      */
     @Nullable
     public Map<String, Object> getDetails() {
+        if (rawDetails != null) {
+            materializeDetails();
+        }
         return details;
     }
 
     /**
-     * Control states map
+     * Initializes already mapped details, used when the control is not read from the structure file.
+     * @param details control details
+     */
+    void initDetails(final @Nullable Map<String, Object> details) {
+        this.details = details;
+        this.rawDetails = null;
+    }
+
+    /**
+     * Compares the details of this and other control, without mapping them in case both are not mapped yet.
+     * @param other control to compare the details with
+     * @return true if both controls have equal details
+     */
+    boolean detailsEqual(final @NotNull Control other) {
+        final RawJson raw = rawDetails;
+        final RawJson otherRaw = other.rawDetails;
+        if (raw != null && otherRaw != null && raw.sameAs(otherRaw)) {
+            return true;
+        }
+        return Objects.equals(getDetails(), other.getDetails());
+    }
+
+    private synchronized void materializeDetails() {
+        if (rawDetails != null) {
+            try {
+                details = rawDetails.readMap();
+            } catch (IOException e) {
+                throw new LoxoneException("Can't read details of control " + uuid, e);
+            }
+            rawDetails = null;
+        }
+    }
+
+    /**
+     * Control states map, an unmodifiable view of compact states, the {@link LoxoneUuids} are created on access.
      * @return control states
      */
     @Nullable
     public Map<String, LoxoneUuids> getStates() {
-        return states;
+        return compactStates;
+    }
+
+    @JsonProperty("states") @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    void setStates(final Map<String, LoxoneUuids> states) {
+        this.compactStates = states != null ? ControlStates.of(states) : null;
+        this.states = compactStates;
+        final StateSlot.Table table = StateSlot.table(getClass());
+        stateSlots = compactStates != null && !table.isEmpty() ? table.resolve(compactStates) : null;
+    }
+
+    /**
+     * Names of the compulsory states declared by this control type, which are missing or don't have exactly one uuid.
+     * @return new list of state names, empty when all the compulsory states are present
+     */
+    @NotNull
+    List<String> getMissingStates() {
+        return StateSlot.table(getClass()).missing(stateSlots);
+    }
+
+    /**
+     * Passes all the uuids of all the states of this control to the consumer, without creating the states view.
+     * @param consumer uuid consumer
+     */
+    void forEachStateUuid(final @NotNull Consumer<LoxoneUuid> consumer) {
+        if (compactStates != null) {
+            compactStates.forEachUuid(consumer);
+        }
     }
 
     /**
@@ -118,12 +201,34 @@ public abstract class Control {
      * @throws IllegalStateException in case there is no state of desired name
      */
     protected Object getCompulsoryDetail(final String detailName) {
+        final Map<String, Object> details = getDetails();
         if (details != null && details.containsKey(detailName)) {
             return details.get(detailName);
         } else {
             throw new IllegalStateException("Missing compulsory detail " + detailName);
         }
     }
+
+    /**
+     * Helper to get the only uuid of state declared by this control type, resolved when the states were loaded.
+     *
+     * @param slot declared state
+     * @return uuid of the state or null in case the optional state is missing
+     * @throws IllegalStateException in case the compulsory state is missing or the state has not exactly one uuid
+     */
+    final LoxoneUuid getState(final StateSlot slot) {
+        final LoxoneUuid[] slots = stateSlots;
+        final LoxoneUuid uuid = slots != null ? slots[slot.getIndex()] : null;
+        if (uuid == null) {
+            if (compactStates != null && compactStates.containsKey(slot.getName())) {
+                return compactStates.get(slot.getName()).only();
+            } else if (slot.isCompulsory()) {
+                throw new IllegalStateException("Missing compulsory state " + slot.getName());
+            }
+        }
+        return uuid;
+    }
+
     /**
      * Helper to get state by name, which should be in this control.
      * Usually, the state contains only one uuid - use {@link LoxoneUuids#only()} to fetch it.
@@ -133,8 +238,9 @@ public abstract class Control {
      * @throws IllegalStateException in case there is no state of desired name
      */
     protected LoxoneUuids getCompulsoryState(final String stateName) {
-        if (states != null && states.containsKey(stateName)) {
-            return states.get(stateName);
+        final LoxoneUuids uuids = compactStates != null ? compactStates.get(stateName) : null;
+        if (uuids != null) {
+            return uuids;
         } else {
             throw new IllegalStateException("Missing compulsory state " + stateName);
         }
@@ -0,0 +1,306 @@
+package cz.smarteon.loxone.app;
+
+import cz.smarteon.loxone.LoxoneException;
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of {@link LoxoneApp} controls, built once per application (see {@link LoxoneApp#getControlIndex()}). Each
+ * control has its dense ordinal, the controls are indexed by bitmaps over those ordinals - by the concrete type, by
+ * every type in their hierarchy, by room, by name and by the secured flag. So the type queries don't scan the controls
+ * at all and the combined queries, like "not secured jalousies in given room", are just bitmap intersections - see
+ * {@link #select()}.
+ */
+public final class ControlIndex {
+
+    private static final BitSet EMPTY = new BitSet(0);
+
+    private final Control[] controls;
+    private final Map<LoxoneUuid, Integer> ordinals;
+    private final Map<Class<?>, BitSet> exactTypes = new HashMap<>();
+    private final Map<Class<?>, BitSet> types = new HashMap<>();
+    private final Map<Class<?>, List<Control>> typeLists = new HashMap<>();
+    private final Map<LoxoneUuid, BitSet> rooms = new HashMap<>();
+    private final Map<String, BitSet> names = new HashMap<>();
+    private final BitSet secured;
+
+    ControlIndex(final @NotNull Collection<Control> controls) {
+        this.controls = controls.toArray(new Control[0]);
+        this.ordinals = new HashMap<>(this.controls.length * 2);
+        this.secured = new BitSet(this.controls.length);
+
+        final Map<Class<?>, Set<Class<?>>> hierarchies = new HashMap<>();
+        for (int ordinal = 0; ordinal < this.controls.length; ordinal++) {
+            final Control control = this.controls[ordinal];
+            ordinals.put(control.getUuid(), ordinal);
+            exactTypes.computeIfAbsent(control.getClass(), type -> new BitSet()).set(ordinal);
+            for (Class<?> type : hierarchies.computeIfAbsent(control.getClass(), ControlIndex::hierarchy)) {
+                types.computeIfAbsent(type, t -> new BitSet()).set(ordinal);
+                typeLists.computeIfAbsent(type, t -> new ArrayList<>()).add(control);
+            }
+            if (control.getRoom() != null) {
+                rooms.computeIfAbsent(control.getRoom(), room -> new BitSet()).set(ordinal);
+            }
+            if (control.getName() != null) {
+                names.computeIfAbsent(control.getName(), name -> new BitSet()).set(ordinal);
+            }
+            if (control.isSecured()) {
+                secured.set(ordinal);
+            }
+        }
+        typeLists.replaceAll((type, list) -> Collections.unmodifiableList(list));
+    }
+
+    /**
+     * @return number of indexed controls
+     */
+    public int size() {
+        return controls.length;
+    }
+
+    /**
+     * @param ordinal control ordinal
+     * @return control of given ordinal
+     * @throws IndexOutOfBoundsException in case there is no such ordinal
+     */
+    @NotNull
+    public Control control(final int ordinal) {
+        return controls[ordinal];
+    }
+
+    /**
+     * @param uuid control uuid
+     * @return ordinal of given control or -1 if there is no such control
+     */
+    public int ordinal(final @NotNull LoxoneUuid uuid) {
+        final Integer ordinal = ordinals.get(uuid);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Controls of given type, including its subtypes. The list is built with the index, so it's not allocated per call.
+     * @param type control type
+     * @param <T> class of control type
+     * @return unmodifiable list of the controls, in the application order
+     */
+    @SuppressWarnings("unchecked")
+    @NotNull
+    public <T> List<T> controls(final @NotNull Class<T> type) {
+        final List<Control> found = typeLists.get(requireNonNull(type, "control type can't be null"));
+        return found != null ? (List<T>) found : Collections.emptyList();
+    }
+
+    /**
+     * The only control of given name and type, without any allocation.
+     * @param name control name
+     * @param type control type, including its subtypes
+     * @param <T> class of control type
+     * @return the control or null if there is no such control
+     * @throws LoxoneException in case there are more such controls
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public <T> T control(final @NotNull String name, final @NotNull Class<T> type) {
+        final BitSet named = bits(names, requireNonNull(name, "control name can't be null"));
+        final BitSet typed = bits(types, requireNonNull(type, "control type can't be null"));
+        int found = -1;
+        for (int i = named.nextSetBit(0); i >= 0; i = named.nextSetBit(i + 1)) {
+            if (typed.get(i)) {
+                if (found >= 0) {
+                    throw new LoxoneException("More than one control of name " + name + " and type "
+                            + type.getSimpleName() + " found!");
+                }
+                found = i;
+            }
+        }
+        return found >= 0 ? (T) controls[found] : null;
+    }
+
+    /**
+     * Starts new selection of all the controls, narrowed by the selection methods. The selection can be reused by
+     * {@link Selection#all()}, so the repeated queries don't allocate.
+     * @return new selection
+     */
+    @NotNull
+    public Selection select() {
+        return new Selection();
+    }
+
+    private static <K> BitSet bits(final Map<K, BitSet> index, final K key) {
+        final BitSet bits = index.get(key);
+        return bits != null ? bits : EMPTY;
+    }
+
+    private static Set<Class<?>> hierarchy(final Class<?> controlType) {
+        final Set<Class<?>> hierarchy = new HashSet<>();
+        final Deque<Class<?>> toVisit = new ArrayDeque<>();
+        toVisit.add(controlType);
+        while (!toVisit.isEmpty()) {
+            final Class<?> type = toVisit.poll();
+            if (type != Object.class && hierarchy.add(type)) {
+                if (type.getSuperclass() != null) {
+                    toVisit.add(type.getSuperclass());
+                }
+                Collections.addAll(toVisit, type.getInterfaces());
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Mutable selection of indexed controls, each narrowing method intersects the selection with the index bitmap
+     * in place. Not thread safe, should be confined to a thread (or reused by single thread).
+     */
+    public final class Selection {
+
+        private final BitSet selected = new BitSet(controls.length);
+
+        private Selection() {
+            all();
+        }
+
+        /**
+         * Selects all the controls again.
+         * @return this selection
+         */
+        @NotNull
+        public Selection all() {
+            selected.set(0, controls.length);
+            return this;
+        }
+
+        /**
+         * Keeps only controls of given type, including its subtypes.
+         * @param type control type
+         * @return this selection
+         */
+        @NotNull
+        public Selection ofType(final @NotNull Class<?> type) {
+            selected.and(bits(types, requireNonNull(type, "control type can't be null")));
+            return this;
+        }
+
+        /**
+         * Keeps only controls of exactly given type, excluding its subtypes.
+         * @param type control type
+         * @return this selection
+         */
+        @NotNull
+        public Selection ofExactType(final @NotNull Class<?> type) {
+            selected.and(bits(exactTypes, requireNonNull(type, "control type can't be null")));
+            return this;
+        }
+
+        /**
+         * Removes controls of given type, including its subtypes.
+         * @param type control type
+         * @return this selection
+         */
+        @NotNull
+        public Selection notOfType(final @NotNull Class<?> type) {
+            selected.andNot(bits(types, requireNonNull(type, "control type can't be null")));
+            return this;
+        }
+
+        /**
+         * Keeps only controls in given room.
+         * @param room room uuid
+         * @return this selection
+         */
+        @NotNull
+        public Selection inRoom(final @NotNull LoxoneUuid room) {
+            selected.and(bits(rooms, requireNonNull(room, "room can't be null")));
+            return this;
+        }
+
+        /**
+         * Keeps only controls of given name.
+         * @param name control name
+         * @return this selection
+         */
+        @NotNull
+        public Selection named(final @NotNull String name) {
+            selected.and(bits(names, requireNonNull(name, "control name can't be null")));
+            return this;
+        }
+
+        /**
+         * Keeps only controls secured by visualization password.
+         * @return this selection
+         */
+        @NotNull
+        public Selection secured() {
+            selected.and(secured);
+            return this;
+        }
+
+        /**
+         * Keeps only controls not secured by visualization password.
+         * @return this selection
+         */
+        @NotNull
+        public Selection notSecured() {
+            selected.andNot(secured);
+            return this;
+        }
+
+        /**
+         * @return number of selected controls
+         */
+        public int count() {
+            return selected.cardinality();
+        }
+
+        /**
+         * @return true if no control is selected
+         */
+        public boolean isEmpty() {
+            return selected.isEmpty();
+        }
+
+        /**
+         * @return first selected control in the application order or null if no control is selected
+         */
+        @Nullable
+        public Control first() {
+            final int ordinal = selected.nextSetBit(0);
+            return ordinal >= 0 ? controls[ordinal] : null;
+        }
+
+        /**
+         * Passes the selected controls to the given consumer, in the application order.
+         * @param consumer consumer of selected controls
+         */
+        public void forEach(final @NotNull Consumer<? super Control> consumer) {
+            for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+                consumer.accept(controls[i]);
+            }
+        }
+
+        /**
+         * @return new list of the selected controls, in the application order
+         */
+        @NotNull
+        public List<Control> toList() {
+            final List<Control> list = new ArrayList<>(count());
+            forEach(list::add);
+            return list;
+        }
+    }
+}
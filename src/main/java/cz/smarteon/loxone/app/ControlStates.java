@@ -0,0 +1,199 @@
+package cz.smarteon.loxone.app;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import cz.smarteon.loxone.LoxoneUuids;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Compact states of {@link Control}, an unmodifiable map view of state names to their uuids. The state names are
+ * interned, so the controls of the same type share single array of them. The uuids are kept in single flat array,
+ * the offsets of particular states are kept only in case some state has other than exactly one uuid.
+ * <p>
+ * The {@link LoxoneUuids} values are created on access, use {@link #uuid(String)} or {@link #forEachUuid(Consumer)}
+ * to read the uuids without allocation.
+ */
+final class ControlStates extends AbstractMap<String, LoxoneUuids> {
+
+    private static final Map<List<String>, String[]> INTERNED_NAMES = new ConcurrentHashMap<>();
+
+    private final String[] names;
+    private final LoxoneUuid[] uuids;
+    // null when every state has exactly one uuid, otherwise uuids of state i are from starts[i] to starts[i + 1]
+    private final int[] starts;
+
+    private ControlStates(final String[] names, final LoxoneUuid[] uuids, final int[] starts) {
+        this.names = names;
+        this.uuids = uuids;
+        this.starts = starts;
+    }
+
+    /**
+     * Creates compact states of given map.
+     * @param states map of state names to their uuids, null values are kept as states without uuids
+     * @return compact states
+     */
+    @NotNull
+    static ControlStates of(final @NotNull Map<String, ? extends List<LoxoneUuid>> states) {
+        final String[] names = new String[states.size()];
+        final int[] starts = new int[states.size() + 1];
+        boolean singles = true;
+        int i = 0;
+        int count = 0;
+        for (Map.Entry<String, ? extends List<LoxoneUuid>> state : states.entrySet()) {
+            names[i] = state.getKey();
+            starts[i] = count;
+            final int size = state.getValue() != null ? state.getValue().size() : 0;
+            singles &= size == 1;
+            count += size;
+            i++;
+        }
+        starts[names.length] = count;
+
+        final LoxoneUuid[] uuids = new LoxoneUuid[count];
+        i = 0;
+        for (List<LoxoneUuid> stateUuids : states.values()) {
+            if (stateUuids != null) {
+                for (LoxoneUuid uuid : stateUuids) {
+                    uuids[i++] = uuid;
+                }
+            }
+        }
+        return new ControlStates(intern(names), uuids, singles ? null : starts);
+    }
+
+    /**
+     * The only uuid of given state.
+     * @param name state name
+     * @return the uuid or null if there is no such state or it has not exactly one uuid
+     */
+    @Nullable
+    LoxoneUuid uuid(final String name) {
+        final int state = indexOf(name);
+        return state >= 0 ? uuidAt(state) : null;
+    }
+
+    /**
+     * Passes all the uuids of all the states to the consumer.
+     * @param consumer uuid consumer
+     */
+    void forEachUuid(final @NotNull Consumer<LoxoneUuid> consumer) {
+        for (LoxoneUuid uuid : uuids) {
+            consumer.accept(uuid);
+        }
+    }
+
+    /**
+     * @return the interned state names
+     */
+    String[] names() {
+        return names;
+    }
+
+    /**
+     * @param internedNames interned state names
+     * @return true if these states have exactly the given names array
+     */
+    boolean hasNames(final String[] internedNames) {
+        return names == internedNames;
+    }
+
+    /**
+     * @param state state position
+     * @return the only uuid of state at given position or null if it has not exactly one uuid
+     */
+    @Nullable
+    LoxoneUuid uuidAt(final int state) {
+        return start(state + 1) - start(state) == 1 ? uuids[start(state)] : null;
+    }
+
+    @Override
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public LoxoneUuids get(final Object key) {
+        final int state = indexOf(key);
+        return state >= 0 ? uuidsOf(state) : null;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, LoxoneUuids>> entrySet() {
+        return new AbstractSet<Entry<String, LoxoneUuids>>() {
+            @Override
+            public Iterator<Entry<String, LoxoneUuids>> iterator() {
+                return new Iterator<Entry<String, LoxoneUuids>>() {
+                    private int state = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return state < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, LoxoneUuids> next() {
+                        if (state >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, LoxoneUuids> entry =
+                                new SimpleImmutableEntry<>(names[state], uuidsOf(state));
+                        state++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return names.length;
+            }
+        };
+    }
+
+    /**
+     * @param name state name
+     * @return position of the state or -1 if there is no such state
+     */
+    int indexOf(final Object name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int start(final int state) {
+        return starts != null ? starts[state] : state;
+    }
+
+    private LoxoneUuids uuidsOf(final int state) {
+        final LoxoneUuids stateUuids = new LoxoneUuids();
+        for (int i = start(state); i < start(state + 1); i++) {
+            stateUuids.add(uuids[i]);
+        }
+        return stateUuids;
+    }
+
+    private static String[] intern(final String[] names) {
+        return INTERNED_NAMES.computeIfAbsent(Arrays.asList(names), key -> names);
+    }
+}
@@ -8,20 +8,25 @@ public class DimmerControl extends Control {
 
     public static final String NAME = "Dimmer";
 
+    private static final StateSlot POSITION = StateSlot.compulsory(DimmerControl.class, "position");
+    private static final StateSlot MIN = StateSlot.compulsory(DimmerControl.class, "min");
+    private static final StateSlot MAX = StateSlot.compulsory(DimmerControl.class, "max");
+    private static final StateSlot STEP = StateSlot.compulsory(DimmerControl.class, "step");
+
     @NotNull
     public LoxoneUuid statePosition() {
-        return getCompulsoryState("position").only();
+        return getState(POSITION);
     }
     @NotNull
     public LoxoneUuid stateMin() {
-        return getCompulsoryState("min").only();
+        return getState(MIN);
     }
     @NotNull
     public LoxoneUuid stateMax() {
-        return getCompulsoryState("max").only();
+        return getState(MAX);
     }
     @NotNull
     public LoxoneUuid stateStep() {
-        return getCompulsoryState("step").only();
+        return getState(STEP);
     }
 }
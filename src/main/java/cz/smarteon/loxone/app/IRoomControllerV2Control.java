@@ -8,64 +8,90 @@ public class IRoomControllerV2Control extends Control {
 
     public static final String NAME = "IRoomControllerV2";
 
+    private static final StateSlot ACTIVE_MODE = StateSlot.compulsory(IRoomControllerV2Control.class, "activeMode");
+    private static final StateSlot OPERATING_MODE =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "operatingMode");
+    private static final StateSlot OVERRIDE_ENTRIES =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "overrideEntries");
+    private static final StateSlot PREPARE_STATE = StateSlot.compulsory(IRoomControllerV2Control.class, "prepareState");
+    private static final StateSlot OVERRIDE_REASON =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "overrideReason");
+    private static final StateSlot TEMP_ACTUAL = StateSlot.compulsory(IRoomControllerV2Control.class, "tempActual");
+    private static final StateSlot TEMP_TARGET = StateSlot.compulsory(IRoomControllerV2Control.class, "tempTarget");
+    private static final StateSlot COMFORT_TEMPERATURE =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "comfortTemperature");
+    private static final StateSlot COMFORT_TOLERANCE =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "comfortTolerance");
+    private static final StateSlot ABSENT_MIN_OFFSET =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "absentMinOffset");
+    private static final StateSlot ABSENT_MAX_OFFSET =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "absentMaxOffset");
+    private static final StateSlot FROST_PROTECT_TEMPERATURE =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "frostProtectTemperature");
+    private static final StateSlot HEAT_PROTECT_TEMPERATURE =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "heatProtectTemperature");
+    private static final StateSlot COMFORT_TEMPERATURE_OFFSET =
+            StateSlot.compulsory(IRoomControllerV2Control.class, "comfortTemperatureOffset");
+    private static final StateSlot OPEN_WINDOW = StateSlot.compulsory(IRoomControllerV2Control.class, "openWindow");
+
     @NotNull
     public LoxoneUuid stateActiveMode() {
-        return getCompulsoryState("activeMode").only();
+        return getState(ACTIVE_MODE);
     }
     @NotNull
     public LoxoneUuid stateOperatingMode() {
-        return getCompulsoryState("operatingMode").only();
+        return getState(OPERATING_MODE);
     }
     @NotNull
     public LoxoneUuid stateOverrideEntries() {
-        return getCompulsoryState("overrideEntries").only();
+        return getState(OVERRIDE_ENTRIES);
     }
     @NotNull
     public LoxoneUuid statePrepareState() {
-        return getCompulsoryState("prepareState").only();
+        return getState(PREPARE_STATE);
     }
     @NotNull
     public LoxoneUuid stateOverrideReason() {
-        return getCompulsoryState("overrideReason").only();
+        return getState(OVERRIDE_REASON);
     }
     @NotNull
     public LoxoneUuid stateTempActual() {
-        return getCompulsoryState("tempActual").only();
+        return getState(TEMP_ACTUAL);
     }
     @NotNull
     public LoxoneUuid stateTempTarget() {
-        return getCompulsoryState("tempTarget").only();
+        return getState(TEMP_TARGET);
     }
     @NotNull
     public LoxoneUuid stateComfortTemperature() {
-        return getCompulsoryState("comfortTemperature").only();
+        return getState(COMFORT_TEMPERATURE);
     }
     @NotNull
     public LoxoneUuid stateComfortTolerance() {
-        return getCompulsoryState("comfortTolerance").only();
+        return getState(COMFORT_TOLERANCE);
     }
     @NotNull
     public LoxoneUuid stateAbsentMinOffset() {
-        return getCompulsoryState("absentMinOffset").only();
+        return getState(ABSENT_MIN_OFFSET);
     }
     @NotNull
     public LoxoneUuid stateAbsentMaxOffset() {
-        return getCompulsoryState("absentMaxOffset").only();
+        return getState(ABSENT_MAX_OFFSET);
     }
     @NotNull
     public LoxoneUuid stateFrostProtectTemperature() {
-        return getCompulsoryState("frostProtectTemperature").only();
+        return getState(FROST_PROTECT_TEMPERATURE);
     }
     @NotNull
     public LoxoneUuid stateHeatProtectTemperature() {
-        return getCompulsoryState("heatProtectTemperature").only();
+        return getState(HEAT_PROTECT_TEMPERATURE);
     }
     @NotNull
     public LoxoneUuid stateComfortTemperatureOffset() {
-        return getCompulsoryState("comfortTemperatureOffset").only();
+        return getState(COMFORT_TEMPERATURE_OFFSET);
     }
     @NotNull
     public LoxoneUuid stateOpenWindow() {
-        return getCompulsoryState("openWindow").only();
+        return getState(OPEN_WINDOW);
     }
 }
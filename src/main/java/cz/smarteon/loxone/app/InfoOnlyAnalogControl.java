@@ -10,6 +10,9 @@ public class InfoOnlyAnalogControl extends Control {
 
     public static final String NAME = "InfoOnlyAnalog";
 
+    private static final StateSlot VALUE = StateSlot.compulsory(InfoOnlyAnalogControl.class, "value");
+    private static final StateSlot ERROR = StateSlot.compulsory(InfoOnlyAnalogControl.class, "error");
+
     @NotNull
     public String detailFormat() {
         return (String)getCompulsoryDetail("format");
@@ -17,10 +20,10 @@ public class InfoOnlyAnalogControl extends Control {
 
     @NotNull
     public LoxoneUuid stateValue() {
-        return getCompulsoryState("value").only();
+        return getState(VALUE);
     }
     @NotNull
     public LoxoneUuid stateError() {
-        return getCompulsoryState("error").only();
+        return getState(ERROR);
     }
 }
@@ -10,6 +10,9 @@ public class InfoOnlyDigitalControl extends Control {
 
     public static final String NAME = "InfoOnlyDigital";
 
+    private static final StateSlot VALUE = StateSlot.compulsory(InfoOnlyDigitalControl.class, "value");
+    private static final StateSlot ERROR = StateSlot.compulsory(InfoOnlyDigitalControl.class, "error");
+
     @NotNull
     public String detailText_On() {
         return ((Map<String,String>)getCompulsoryDetail("text")).get("on");
@@ -28,10 +31,10 @@ public class InfoOnlyDigitalControl extends Control {
     }
     @NotNull
     public LoxoneUuid stateValue() {
-        return getCompulsoryState("value").only();
+        return getState(VALUE);
     }
     @NotNull
     public LoxoneUuid stateError() {
-        return getCompulsoryState("error").only();
+        return getState(ERROR);
     }
 }
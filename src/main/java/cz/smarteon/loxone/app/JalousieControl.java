@@ -8,52 +8,65 @@ public class JalousieControl extends Control {
 
     public static final String NAME = "Jalousie";
 
+    private static final StateSlot UP = StateSlot.compulsory(JalousieControl.class, "up");
+    private static final StateSlot DOWN = StateSlot.compulsory(JalousieControl.class, "down");
+    private static final StateSlot POSITION = StateSlot.compulsory(JalousieControl.class, "position");
+    private static final StateSlot SHADE_POSITION = StateSlot.compulsory(JalousieControl.class, "shadePosition");
+    private static final StateSlot SAFETY_ACTIVE = StateSlot.compulsory(JalousieControl.class, "safetyActive");
+    private static final StateSlot AUTO_ALLOWED = StateSlot.compulsory(JalousieControl.class, "autoAllowed");
+    private static final StateSlot AUTO_ACTIVE = StateSlot.compulsory(JalousieControl.class, "autoActive");
+    private static final StateSlot LOCKED = StateSlot.compulsory(JalousieControl.class, "locked");
+    private static final StateSlot HAS_ENDPOSITION = StateSlot.compulsory(JalousieControl.class, "hasEndposition");
+    private static final StateSlot MODE = StateSlot.compulsory(JalousieControl.class, "mode");
+    private static final StateSlot LEARNING_STEP = StateSlot.compulsory(JalousieControl.class, "learningStep");
+    private static final StateSlot INFO_TEXT = StateSlot.compulsory(JalousieControl.class, "infoText");
+
     @NotNull
     public LoxoneUuid stateUp() {
-        return getCompulsoryState("up").only();
+        return getState(UP);
     }
     @NotNull
     public LoxoneUuid stateDown() {
-        return getCompulsoryState("down").only();
+        return getState(DOWN);
     }
     @NotNull
     public LoxoneUuid statePosition() {
-        return getCompulsoryState("position").only();
+        return getState(POSITION);
     }
     @NotNull
     public LoxoneUuid stateShadePosition() {
-        return getCompulsoryState("shadePosition").only();
+        return getState(SHADE_POSITION);
     }
     @NotNull
     public LoxoneUuid stateSafetyActive() {
-        return getCompulsoryState("safetyActive").only();
+        return getState(SAFETY_ACTIVE);
     }
     @NotNull
     public LoxoneUuid stateAutoAllowed() {
-        return getCompulsoryState("autoAllowed").only();
+        return getState(AUTO_ALLOWED);
     }
     @NotNull
     public LoxoneUuid stateAutoActive() {
-        return getCompulsoryState("autoActive").only();
+        return getState(AUTO_ACTIVE);
     }
     @NotNull
     public LoxoneUuid stateLocked() {
-        return getCompulsoryState("locked").only();
+        return getState(LOCKED);
     }
     @NotNull
     public LoxoneUuid stateHasEndposition() {
-        return getCompulsoryState("hasEndposition").only();
+        return getState(HAS_ENDPOSITION);
     }
     @NotNull
     public LoxoneUuid stateMode() {
-        return getCompulsoryState("mode").only();
+        return getState(MODE);
     }
     @NotNull
     public LoxoneUuid stateLearningStep() {
-        return getCompulsoryState("learningStep").only();
+        return getState(LEARNING_STEP);
     }
     @NotNull
     public LoxoneUuid stateInfoText() {
-        return getCompulsoryState("infoText").only();
+        return getState(INFO_TEXT);
     }
 }
@@ -8,16 +8,19 @@ public class LightControllerControl extends Control {
 
     public static final String NAME = "LightController";
 
+    private static final StateSlot ACTIVE_SCENE = StateSlot.compulsory(LightControllerControl.class, "activeScene");
+    private static final StateSlot SCENE_LIST = StateSlot.compulsory(LightControllerControl.class, "sceneList");
+
     @NotNull
     public int detailMovementScene() {
         return (int)getCompulsoryDetail("movementScene");
     }
     @NotNull
     public LoxoneUuid stateActiveScene() {
-        return getCompulsoryState("activeScene").only();
+        return getState(ACTIVE_SCENE);
     }
     @NotNull
     public LoxoneUuid stateSceneList() {
-        return getCompulsoryState("sceneList").only();
+        return getState(SCENE_LIST);
     }
 }
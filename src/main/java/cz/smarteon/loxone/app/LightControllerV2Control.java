@@ -8,20 +8,27 @@ public class LightControllerV2Control extends Control {
 
     public static final String NAME = "LightControllerV2";
 
+    private static final StateSlot ACTIVE_MOODS = StateSlot.compulsory(LightControllerV2Control.class, "activeMoods");
+    private static final StateSlot MOOD_LIST = StateSlot.compulsory(LightControllerV2Control.class, "moodList");
+    private static final StateSlot FAVORITE_MOODS =
+            StateSlot.compulsory(LightControllerV2Control.class, "favoriteMoods");
+    private static final StateSlot ADDITIONAL_MOODS =
+            StateSlot.compulsory(LightControllerV2Control.class, "additionalMoods");
+
     @NotNull
     public LoxoneUuid stateActiveMoods() {
-        return getCompulsoryState("activeMoods").only();
+        return getState(ACTIVE_MOODS);
     }
     @NotNull
     public LoxoneUuid stateMoodList() {
-        return getCompulsoryState("moodList").only();
+        return getState(MOOD_LIST);
     }
     @NotNull
     public LoxoneUuid stateFavoriteMoods() {
-        return getCompulsoryState("favoriteMoods").only();
+        return getState(FAVORITE_MOODS);
     }
     @NotNull
     public LoxoneUuid stateAdditionalMoods() {
-        return getCompulsoryState("additionalMoods").only();
+        return getState(ADDITIONAL_MOODS);
     }
 }
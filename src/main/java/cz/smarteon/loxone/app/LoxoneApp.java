@@ -6,8 +6,11 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import cz.smarteon.loxone.LoxoneException;
 import cz.smarteon.loxone.LoxoneUuid;
+import cz.smarteon.loxone.LoxoneUuidRegistry;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -15,6 +18,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import static java.util.Objects.requireNonNull;
 
@@ -24,11 +28,17 @@ import static java.util.Objects.requireNonNull;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class LoxoneApp implements Serializable {
 
+    private static final Logger log = LoggerFactory.getLogger(LoxoneApp.class);
+
     private final Date lastModified;
     private final MiniserverInfo miniserverInfo;
     private final Map<LoxoneUuid, Control> controls;
     private final Map<LoxoneUuid, Room> rooms;
 
+    private transient volatile LoxoneUuidRegistry uuidRegistry;
+    private transient volatile ControlIndex controlIndex;
+    private transient volatile NameIndex nameIndex;
+
     @JsonCreator
     public LoxoneApp(@JsonProperty("lastModified") Date lastModified,
                      @JsonProperty("msInfo") MiniserverInfo miniserverInfo,
@@ -38,6 +48,15 @@ public class LoxoneApp implements Serializable {
         this.miniserverInfo = requireNonNull(miniserverInfo, "miniserverInfo can't be null");
         this.rooms = requireNonNull(rooms, "controls can't be null");
         this.controls = requireNonNull(controls, "controls can't be null");
+        if (log.isDebugEnabled()) {
+            for (Control control : controls.values()) {
+                final List<String> missing = control.getMissingStates();
+                if (!missing.isEmpty()) {
+                    log.debug("Control " + control.getUuid() + " of type " + control.getClass().getSimpleName()
+                            + " misses compulsory states " + missing);
+                }
+            }
+        }
     }
 
     @NotNull
@@ -64,6 +83,31 @@ public class LoxoneApp implements Serializable {
         return rooms;
     }
 
+    /**
+     * Registry of all the uuids of this application - controls, their rooms and states and rooms. The instances held by
+     * this application are the canonical ones. Created on the first call.
+     *
+     * @return registry of application uuids
+     */
+    @JsonIgnore
+    @NotNull
+    public LoxoneUuidRegistry getUuidRegistry() {
+        LoxoneUuidRegistry registry = uuidRegistry;
+        if (registry == null) {
+            final List<LoxoneUuid> uuids = new ArrayList<>();
+            for (Control control : controls.values()) {
+                uuids.add(control.getUuid());
+                uuids.add(control.getRoom());
+                control.forEachStateUuid(uuids::add);
+            }
+            uuids.addAll(rooms.keySet());
+            uuids.removeIf(Objects::isNull);
+            registry = LoxoneUuidRegistry.of(uuids);
+            uuidRegistry = registry;
+        }
+        return registry;
+    }
+
     /**
      * @param type control type to get
      * @param <T> class of control type
@@ -84,23 +128,50 @@ public class LoxoneApp implements Serializable {
         }
     }
 
+    /**
+     * Index of the controls of this application, allowing to query them by type, room, name and secured flag without
+     * scanning. Created on the first call.
+     *
+     * @return control index
+     */
+    @JsonIgnore
+    @NotNull
+    public ControlIndex getControlIndex() {
+        ControlIndex index = controlIndex;
+        if (index == null) {
+            index = new ControlIndex(controls.values());
+            controlIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Case and diacritics insensitive index of control and room names, allowing exact and prefix queries without
+     * scanning. Created on the first call.
+     *
+     * @return name index
+     */
+    @JsonIgnore
+    @NotNull
+    public NameIndex getNameIndex() {
+        NameIndex index = nameIndex;
+        if (index == null) {
+            index = new NameIndex(controls.values(), rooms.values());
+            nameIndex = index;
+        }
+        return index;
+    }
+
     /**
      * @param type control type to get
      * @param <T> class of control type
-     * @return collection of found control for given type (may be empty)
+     * @return new collection of found control for given type (may be empty), use {@link ControlIndex#controls(Class)}
+     * to get the shared unmodifiable list without copying
      */
     @JsonIgnore
-    @SuppressWarnings("unchecked")
     @NotNull
     public <T extends Control> Collection<T> getControls(final @NotNull Class<T> type) {
-        requireNonNull(type, "control type can't be null");
-        final List<T> found = new ArrayList<>();
-        for (Control c : controls.values()) {
-            if ( type.isAssignableFrom(c.getClass())) {
-                found.add((T) c);
-            }
-        }
-        return found;
+        return new ArrayList<>(getControlIndex().controls(type));
     }
 
     /**
@@ -114,17 +185,6 @@ public class LoxoneApp implements Serializable {
     @JsonIgnore
     @Nullable
     public <T extends Control> T getControl(final @NotNull String name, final @NotNull Class<T> type) {
-        requireNonNull(name, "control name can't be null");
-        T found = null;
-        for (T control : getControls(type)) {
-            if (name.equals(control.getName())) {
-                if (found != null) {
-                    throw new LoxoneException("More than one control of name " + name + " and type " + type.getSimpleName() + " found!");
-                } else {
-                    found = control;
-                }
-            }
-        }
-        return found;
+        return getControlIndex().control(name, type);
     }
 }
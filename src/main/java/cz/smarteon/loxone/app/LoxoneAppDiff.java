@@ -0,0 +1,230 @@
+package cz.smarteon.loxone.app;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Structural difference of two versions of {@link LoxoneApp}, the controls are matched by their uuids. Lists the added,
+ * removed and changed controls (see {@link ControlChange}) as well as the added and removed states.
+ */
+public final class LoxoneAppDiff {
+
+    private final List<Control> addedControls;
+    private final List<Control> removedControls;
+    private final List<ControlChange> changedControls;
+    private final Set<LoxoneUuid> addedStates;
+    private final Set<LoxoneUuid> removedStates;
+
+    private LoxoneAppDiff(final List<Control> addedControls, final List<Control> removedControls,
+                          final List<ControlChange> changedControls,
+                          final Set<LoxoneUuid> addedStates, final Set<LoxoneUuid> removedStates) {
+        this.addedControls = Collections.unmodifiableList(addedControls);
+        this.removedControls = Collections.unmodifiableList(removedControls);
+        this.changedControls = Collections.unmodifiableList(changedControls);
+        this.addedStates = Collections.unmodifiableSet(addedStates);
+        this.removedStates = Collections.unmodifiableSet(removedStates);
+    }
+
+    /**
+     * Computes the difference of given applications.
+     * @param previous previous version of application
+     * @param current current version of application
+     * @return difference from previous to current application
+     */
+    @NotNull
+    public static LoxoneAppDiff of(final @NotNull LoxoneApp previous, final @NotNull LoxoneApp current) {
+        requireNonNull(previous, "previous can't be null");
+        requireNonNull(current, "current can't be null");
+        final Map<LoxoneUuid, Control> previousControls = previous.getControls();
+        final Map<LoxoneUuid, Control> currentControls = current.getControls();
+
+        final List<Control> added = new ArrayList<>();
+        final List<ControlChange> changed = new ArrayList<>();
+        for (Map.Entry<LoxoneUuid, Control> entry : currentControls.entrySet()) {
+            final Control previousControl = previousControls.get(entry.getKey());
+            if (previousControl == null) {
+                added.add(entry.getValue());
+            } else {
+                final ControlChange change = new ControlChange(previousControl, entry.getValue());
+                if (change.isChanged()) {
+                    changed.add(change);
+                }
+            }
+        }
+
+        final List<Control> removed = new ArrayList<>();
+        for (Map.Entry<LoxoneUuid, Control> entry : previousControls.entrySet()) {
+            if (!currentControls.containsKey(entry.getKey())) {
+                removed.add(entry.getValue());
+            }
+        }
+
+        final Set<LoxoneUuid> previousStates = states(previousControls);
+        final Set<LoxoneUuid> currentStates = states(currentControls);
+        final Set<LoxoneUuid> addedStates = new LinkedHashSet<>(currentStates);
+        addedStates.removeAll(previousStates);
+        final Set<LoxoneUuid> removedStates = new LinkedHashSet<>(previousStates);
+        removedStates.removeAll(currentStates);
+
+        return new LoxoneAppDiff(added, removed, changed, addedStates, removedStates);
+    }
+
+    /**
+     * @return controls of current application not present in the previous one
+     */
+    @NotNull
+    public List<Control> getAddedControls() {
+        return addedControls;
+    }
+
+    /**
+     * @return controls of previous application not present in the current one
+     */
+    @NotNull
+    public List<Control> getRemovedControls() {
+        return removedControls;
+    }
+
+    /**
+     * @return controls present in both applications, which differ
+     */
+    @NotNull
+    public List<ControlChange> getChangedControls() {
+        return changedControls;
+    }
+
+    /**
+     * @return state uuids of current application not present in the previous one
+     */
+    @NotNull
+    public Set<LoxoneUuid> getAddedStates() {
+        return addedStates;
+    }
+
+    /**
+     * @return state uuids of previous application not present in the current one
+     */
+    @NotNull
+    public Set<LoxoneUuid> getRemovedStates() {
+        return removedStates;
+    }
+
+    /**
+     * @return true if there is no difference in controls and states
+     */
+    public boolean isEmpty() {
+        return addedControls.isEmpty() && removedControls.isEmpty() && changedControls.isEmpty()
+                && addedStates.isEmpty() && removedStates.isEmpty();
+    }
+
+    private static Set<LoxoneUuid> states(final Map<LoxoneUuid, Control> controls) {
+        final Set<LoxoneUuid> states = new LinkedHashSet<>();
+        for (Control control : controls.values()) {
+            control.forEachStateUuid(states::add);
+        }
+        return states;
+    }
+
+    @Override
+    public String toString() {
+        return "LoxoneAppDiff{" +
+                "addedControls=" + addedControls.size() +
+                ", removedControls=" + removedControls.size() +
+                ", changedControls=" + changedControls.size() +
+                ", addedStates=" + addedStates.size() +
+                ", removedStates=" + removedStates.size() +
+                '}';
+    }
+
+    /**
+     * Change of the control present in both versions of application.
+     */
+    public static final class ControlChange {
+
+        private final Control previous;
+        private final Control current;
+
+        private ControlChange(final Control previous, final Control current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        /**
+         * @return the control in previous application
+         */
+        @NotNull
+        public Control getPrevious() {
+            return previous;
+        }
+
+        /**
+         * @return the control in current application
+         */
+        @NotNull
+        public Control getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return true if the control name has changed
+         */
+        public boolean isRenamed() {
+            return !Objects.equals(previous.getName(), current.getName());
+        }
+
+        /**
+         * @return true if the control type has changed
+         */
+        public boolean isTypeChanged() {
+            return previous.getClass() != current.getClass();
+        }
+
+        /**
+         * @return true if the control was moved to another room
+         */
+        public boolean isRoomChanged() {
+            return !Objects.equals(previous.getRoom(), current.getRoom());
+        }
+
+        /**
+         * @return true if the control states (their names or uuids) have changed
+         */
+        public boolean isStatesChanged() {
+            return !Objects.equals(previous.getStates(), current.getStates());
+        }
+
+        /**
+         * @return true if the control details or secured flag have changed
+         */
+        public boolean isDetailsChanged() {
+            return previous.isSecured() != current.isSecured()
+                    || !previous.detailsEqual(current);
+        }
+
+        private boolean isChanged() {
+            return isRenamed() || isTypeChanged() || isRoomChanged() || isStatesChanged() || isDetailsChanged();
+        }
+
+        @Override
+        public String toString() {
+            return "ControlChange{" +
+                    "uuid=" + current.getUuid() +
+                    ", renamed=" + isRenamed() +
+                    ", typeChanged=" + isTypeChanged() +
+                    ", roomChanged=" + isRoomChanged() +
+                    ", statesChanged=" + isStatesChanged() +
+                    ", detailsChanged=" + isDetailsChanged() +
+                    '}';
+        }
+    }
+}
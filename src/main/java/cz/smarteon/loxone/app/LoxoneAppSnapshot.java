@@ -0,0 +1,532 @@
+package cz.smarteon.loxone.app;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import cz.smarteon.loxone.LoxoneUuid;
+import cz.smarteon.loxone.LoxoneUuids;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compact binary snapshot of {@link LoxoneApp}, much faster to load than the structure file (LoxAPP3.json), since
+ * there is nothing to parse nor to look up - all the strings, uuids and control types are written once into tables
+ * read by bulk copy, the rest of the snapshot refers them by index. The loaded application is equal to the one the
+ * snapshot was written from, including the control types, details and states.
+ * <p>
+ * Layout (big endian): magic, {@link #VERSION}, string table (count, total length, lengths, UTF-8 bytes), uuid table
+ * (count, hi/lo pairs), control type table, last modified, miniserver info, rooms and controls. Snapshots of other
+ * version are refused, so they need to be written again from the structure file.
+ */
+public final class LoxoneAppSnapshot {
+
+    /**
+     * Version of the snapshot format, incremented on every incompatible change.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4C584150; // "LXAP"
+    private static final int NULL = -1;
+
+    private static final byte DETAIL_NULL = 0;
+    private static final byte DETAIL_FALSE = 1;
+    private static final byte DETAIL_TRUE = 2;
+    private static final byte DETAIL_INT = 3;
+    private static final byte DETAIL_LONG = 4;
+    private static final byte DETAIL_DOUBLE = 5;
+    private static final byte DETAIL_STRING = 6;
+    private static final byte DETAIL_LIST = 7;
+    private static final byte DETAIL_MAP = 8;
+
+    private static final Map<String, Class<? extends Control>> CONTROL_TYPES = new HashMap<>();
+    private static final Map<Class<? extends Control>, String> CONTROL_NAMES = new HashMap<>();
+
+    static {
+        for (JsonSubTypes.Type type : Control.class.getAnnotation(JsonSubTypes.class).value()) {
+            @SuppressWarnings("unchecked")
+            final Class<? extends Control> controlClass = (Class<? extends Control>) type.value();
+            CONTROL_TYPES.put(type.name(), controlClass);
+            CONTROL_NAMES.put(controlClass, type.name());
+        }
+    }
+
+    private LoxoneAppSnapshot() {}
+
+    /**
+     * Writes the snapshot of given application.
+     * @param app application to write
+     * @return snapshot bytes
+     * @throws IOException in case the application contains details which can't be written
+     */
+    @NotNull
+    public static byte[] write(final @NotNull LoxoneApp app) throws IOException {
+        return new Writer().write(requireNonNull(app, "app can't be null"));
+    }
+
+    /**
+     * Writes the snapshot of given application to the given file, which is created or overwritten.
+     * @param app application to write
+     * @param file file to write to
+     * @throws IOException in case the application contains details which can't be written or the file can't be
+     * written
+     */
+    public static void write(final @NotNull LoxoneApp app, final @NotNull Path file) throws IOException {
+        Files.write(requireNonNull(file, "file can't be null"), write(app));
+    }
+
+    /**
+     * Reads the application from the snapshot, from the buffer position to its limit.
+     * @param buffer snapshot
+     * @return read application
+     * @throws IOException in case the buffer doesn't contain valid snapshot of supported version
+     */
+    @NotNull
+    public static LoxoneApp read(final @NotNull ByteBuffer buffer) throws IOException {
+        try {
+            return new Reader(requireNonNull(buffer, "buffer can't be null").slice()).read();
+        } catch (RuntimeException e) {
+            // truncated buffer, out of range indexes or values of unexpected types
+            throw new IOException("Truncated or corrupted LoxoneApp snapshot", e);
+        }
+    }
+
+    /**
+     * Reads the application from the snapshot file, which is memory mapped for the time of reading.
+     * @param file snapshot file
+     * @return read application
+     * @throws IOException in case the file can't be read or doesn't contain valid snapshot of supported version
+     */
+    @NotNull
+    public static LoxoneApp read(final @NotNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(requireNonNull(file, "file can't be null"),
+                StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static final class Writer {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<LoxoneUuid, Integer> uuids = new LinkedHashMap<>();
+        private final Map<String, Integer> types = new LinkedHashMap<>();
+
+        private byte[] write(final LoxoneApp app) throws IOException {
+            final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            final DataOutputStream body = new DataOutputStream(bodyBytes);
+            body.writeLong(app.getLastModified().getTime());
+            writeMiniserverInfo(body, app.getMiniserverInfo());
+
+            body.writeInt(app.getRooms().size());
+            for (Map.Entry<LoxoneUuid, Room> entry : app.getRooms().entrySet()) {
+                writeUuid(body, entry.getKey());
+                writeRoom(body, entry.getValue());
+            }
+
+            body.writeInt(app.getControls().size());
+            for (Map.Entry<LoxoneUuid, Control> entry : app.getControls().entrySet()) {
+                writeUuid(body, entry.getKey());
+                writeControl(body, entry.getValue());
+            }
+            body.flush();
+
+            final ByteArrayOutputStream snapshot = new ByteArrayOutputStream(bodyBytes.size() + 1024);
+            final DataOutputStream out = new DataOutputStream(snapshot);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            final List<byte[]> encoded = new ArrayList<>(strings.size());
+            int totalLength = 0;
+            for (String string : strings.keySet()) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                totalLength += bytes.length;
+            }
+            out.writeInt(encoded.size());
+            out.writeInt(totalLength);
+            for (byte[] bytes : encoded) {
+                out.writeInt(bytes.length);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+
+            out.writeInt(uuids.size());
+            for (LoxoneUuid uuid : uuids.keySet()) {
+                out.writeLong(uuid.getHi());
+                out.writeLong(uuid.getLo());
+            }
+
+            out.writeInt(types.size());
+            for (String type : types.keySet()) {
+                out.writeInt(strings.get(type));
+            }
+
+            bodyBytes.writeTo(out);
+            out.flush();
+            return snapshot.toByteArray();
+        }
+
+        private void writeMiniserverInfo(final DataOutputStream out, final MiniserverInfo info) throws IOException {
+            writeString(out, info.getSerialNumber());
+            writeString(out, info.getName());
+            writeString(out, info.getProjectName());
+            writeString(out, info.getLocalUrl());
+            writeString(out, info.getRemoteUrl());
+            out.writeInt(info.getTemperatureUnit() != null ? info.getTemperatureUnit().ordinal() : NULL);
+            writeString(out, info.getCurrency());
+            writeString(out, info.getSquareMeasure());
+            writeString(out, info.getLocation());
+            writeString(out, info.getCategoryTitle());
+            writeString(out, info.getRoomTitle());
+            out.writeInt(info.getType() != null ? info.getType().ordinal() : NULL);
+            out.writeBoolean(info.shouldSortByRating());
+
+            final MiniserverUser user = info.getCurrentUser();
+            out.writeBoolean(user != null);
+            if (user != null) {
+                writeString(out, user.getName());
+                writeUuid(out, user.getUuid());
+                out.writeBoolean(user.isAdmin());
+                out.writeBoolean(user.canChangePassword());
+                out.writeBoolean(user.getRights() != null);
+                out.writeInt(user.getRights() != null ? user.getRights() : 0);
+            }
+        }
+
+        private void writeRoom(final DataOutputStream out, final Room room) throws IOException {
+            writeUuid(out, room.getUuid());
+            writeString(out, room.getName());
+            writeString(out, room.getImage());
+            out.writeInt(room.getDefaultRating());
+            out.writeBoolean(room.getIsFavorite());
+            out.writeInt(room.getType());
+        }
+
+        private void writeControl(final DataOutputStream out, final Control control) throws IOException {
+            final String type = CONTROL_NAMES.get(control.getClass());
+            if (type == null && !(control instanceof UnknownControl)) {
+                throw new IOException("Unsupported control type " + control.getClass().getName());
+            }
+            out.writeInt(type != null ? types.computeIfAbsent(type, t -> {
+                string(t);
+                return types.size();
+            }) : NULL);
+            writeUuid(out, control.uuid);
+            writeString(out, control.name);
+            writeUuid(out, control.room);
+            out.writeBoolean(control.secured);
+            writeDetail(out, control.getDetails());
+
+            final Map<String, LoxoneUuids> states = control.getStates();
+            if (states == null) {
+                out.writeInt(NULL);
+            } else {
+                out.writeInt(states.size());
+                for (Map.Entry<String, LoxoneUuids> state : states.entrySet()) {
+                    writeString(out, state.getKey());
+                    if (state.getValue() == null) {
+                        out.writeInt(NULL);
+                    } else {
+                        out.writeInt(state.getValue().size());
+                        for (LoxoneUuid uuid : state.getValue()) {
+                            writeUuid(out, uuid);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void writeDetail(final DataOutputStream out, final Object detail) throws IOException {
+            if (detail == null) {
+                out.writeByte(DETAIL_NULL);
+            } else if (detail instanceof Boolean) {
+                out.writeByte((Boolean) detail ? DETAIL_TRUE : DETAIL_FALSE);
+            } else if (detail instanceof Integer) {
+                out.writeByte(DETAIL_INT);
+                out.writeInt((Integer) detail);
+            } else if (detail instanceof Long) {
+                out.writeByte(DETAIL_LONG);
+                out.writeLong((Long) detail);
+            } else if (detail instanceof Double) {
+                out.writeByte(DETAIL_DOUBLE);
+                out.writeDouble((Double) detail);
+            } else if (detail instanceof String) {
+                out.writeByte(DETAIL_STRING);
+                writeString(out, (String) detail);
+            } else if (detail instanceof List) {
+                final List<?> list = (List<?>) detail;
+                out.writeByte(DETAIL_LIST);
+                out.writeInt(list.size());
+                for (Object item : list) {
+                    writeDetail(out, item);
+                }
+            } else if (detail instanceof Map) {
+                final Map<?, ?> map = (Map<?, ?>) detail;
+                out.writeByte(DETAIL_MAP);
+                out.writeInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeString(out, String.valueOf(entry.getKey()));
+                    writeDetail(out, entry.getValue());
+                }
+            } else {
+                throw new IOException("Unsupported detail value type " + detail.getClass().getName());
+            }
+        }
+
+        private void writeString(final DataOutputStream out, final String string) throws IOException {
+            out.writeInt(string != null ? string(string) : NULL);
+        }
+
+        private int string(final String string) {
+            return strings.computeIfAbsent(string, s -> strings.size());
+        }
+
+        private void writeUuid(final DataOutputStream out, final LoxoneUuid uuid) throws IOException {
+            out.writeInt(uuid != null ? uuids.computeIfAbsent(uuid, u -> uuids.size()) : NULL);
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private String[] strings;
+        private LoxoneUuid[] uuids;
+        private Constructor<? extends Control>[] types;
+
+        private Reader(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private LoxoneApp read() throws IOException {
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a LoxoneApp snapshot");
+            }
+            final int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported LoxoneApp snapshot version " + version + ", expected " + VERSION);
+            }
+
+            readStrings();
+            readUuids();
+            readTypes();
+
+            final Date lastModified = new Date(buffer.getLong());
+            final MiniserverInfo miniserverInfo = readMiniserverInfo();
+
+            final int roomCount = readCount();
+            final Map<LoxoneUuid, Room> rooms = new LinkedHashMap<>(capacity(roomCount));
+            for (int i = 0; i < roomCount; i++) {
+                rooms.put(readUuid(), readRoom());
+            }
+
+            final int controlCount = readCount();
+            final Map<LoxoneUuid, Control> controls = new LinkedHashMap<>(capacity(controlCount));
+            for (int i = 0; i < controlCount; i++) {
+                controls.put(readUuid(), readControl());
+            }
+
+            return new LoxoneApp(lastModified, miniserverInfo, rooms, controls);
+        }
+
+        private void readStrings() throws IOException {
+            final int count = readCount(4);
+            final int totalLength = readCount();
+            final int[] lengths = new int[count];
+            buffer.asIntBuffer().get(lengths);
+            buffer.position(buffer.position() + count * 4);
+            final byte[] bytes = new byte[totalLength];
+            buffer.get(bytes);
+
+            strings = new String[count];
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                strings[i] = new String(bytes, offset, lengths[i], StandardCharsets.UTF_8);
+                offset += lengths[i];
+            }
+        }
+
+        private void readUuids() throws IOException {
+            final int count = readCount(16);
+            final long[] bits = new long[count * 2];
+            buffer.asLongBuffer().get(bits);
+            buffer.position(buffer.position() + count * 16);
+
+            uuids = new LoxoneUuid[count];
+            for (int i = 0; i < count; i++) {
+                uuids[i] = new LoxoneUuid(bits[2 * i], bits[2 * i + 1]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readTypes() throws IOException {
+            final int count = readCount(4);
+            types = new Constructor[count];
+            for (int i = 0; i < count; i++) {
+                final String name = readString();
+                final Class<? extends Control> type = CONTROL_TYPES.get(name);
+                if (type == null) {
+                    throw new IOException("Unknown control type " + name + " in LoxoneApp snapshot");
+                }
+                try {
+                    types[i] = type.getDeclaredConstructor();
+                } catch (NoSuchMethodException e) {
+                    throw new IOException("Can't create control of type " + name, e);
+                }
+            }
+        }
+
+        private MiniserverInfo readMiniserverInfo() {
+            final String serialNumber = readString();
+            final String name = readString();
+            final String projectName = readString();
+            final String localUrl = readString();
+            final String remoteUrl = readString();
+            final int temperatureUnit = buffer.getInt();
+            final String currency = readString();
+            final String squareMeasure = readString();
+            final String location = readString();
+            final String categoryTitle = readString();
+            final String roomTitle = readString();
+            final int type = buffer.getInt();
+            final boolean sortByRating = readBoolean();
+
+            final MiniserverUser currentUser;
+            if (readBoolean()) {
+                final String userName = readString();
+                final LoxoneUuid uuid = readUuid();
+                final boolean admin = readBoolean();
+                final boolean changePassword = readBoolean();
+                final boolean hasRights = readBoolean();
+                final int rights = buffer.getInt();
+                currentUser = new MiniserverUser(userName, uuid, admin, changePassword, hasRights ? rights : null);
+            } else {
+                currentUser = null;
+            }
+
+            return new MiniserverInfo(serialNumber, name, projectName, localUrl, remoteUrl,
+                    temperatureUnit != NULL ? TemperatureUnit.values()[temperatureUnit] : null,
+                    currency, squareMeasure, location, categoryTitle, roomTitle,
+                    type != NULL ? MiniserverType.values()[type] : null,
+                    sortByRating, currentUser);
+        }
+
+        private Room readRoom() {
+            return new Room(readUuid(), readString(), readString(), buffer.getInt(), readBoolean(), buffer.getInt());
+        }
+
+        @SuppressWarnings("unchecked")
+        private Control readControl() throws IOException {
+            final int type = buffer.getInt();
+            final Control control;
+            try {
+                control = type != NULL ? types[type].newInstance() : new UnknownControl();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Can't create control of type " + types[type].getDeclaringClass(), e);
+            }
+            control.uuid = readUuid();
+            control.name = readString();
+            control.room = readUuid();
+            control.secured = readBoolean();
+            control.initDetails((Map<String, Object>) readDetail());
+
+            final int stateCount = buffer.getInt();
+            if (stateCount != NULL) {
+                final Map<String, LoxoneUuids> states = new LinkedHashMap<>(capacity(stateCount));
+                for (int i = 0; i < stateCount; i++) {
+                    final String name = readString();
+                    final int uuidCount = buffer.getInt();
+                    LoxoneUuids uuids = null;
+                    if (uuidCount != NULL) {
+                        uuids = new LoxoneUuids();
+                        for (int j = 0; j < uuidCount; j++) {
+                            uuids.add(readUuid());
+                        }
+                    }
+                    states.put(name, uuids);
+                }
+                control.setStates(states);
+            }
+            return control;
+        }
+
+        private Object readDetail() throws IOException {
+            final byte tag = buffer.get();
+            switch (tag) {
+                case DETAIL_NULL:
+                    return null;
+                case DETAIL_FALSE:
+                    return Boolean.FALSE;
+                case DETAIL_TRUE:
+                    return Boolean.TRUE;
+                case DETAIL_INT:
+                    return buffer.getInt();
+                case DETAIL_LONG:
+                    return buffer.getLong();
+                case DETAIL_DOUBLE:
+                    return buffer.getDouble();
+                case DETAIL_STRING:
+                    return readString();
+                case DETAIL_LIST:
+                    final int size = readCount();
+                    final List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readDetail());
+                    }
+                    return list;
+                case DETAIL_MAP:
+                    final int entries = readCount();
+                    final Map<String, Object> map = new LinkedHashMap<>(capacity(entries));
+                    for (int i = 0; i < entries; i++) {
+                        map.put(readString(), readDetail());
+                    }
+                    return map;
+                default:
+                    throw new IOException("Unknown detail value tag " + tag + " in LoxoneApp snapshot");
+            }
+        }
+
+        private int readCount() throws IOException {
+            return readCount(1);
+        }
+
+        private int readCount(final int elementLength) throws IOException {
+            final int count = buffer.getInt();
+            if (count < 0 || (long) count * elementLength > buffer.remaining()) {
+                throw new IOException("Invalid count " + count + " in LoxoneApp snapshot");
+            }
+            return count;
+        }
+
+        private String readString() {
+            final int index = buffer.getInt();
+            return index != NULL ? strings[index] : null;
+        }
+
+        private LoxoneUuid readUuid() {
+            final int index = buffer.getInt();
+            return index != NULL ? uuids[index] : null;
+        }
+
+        private boolean readBoolean() {
+            return buffer.get() != 0;
+        }
+
+        private static int capacity(final int size) {
+            return size < 3 ? size + 1 : (int) (size / 0.75f + 1);
+        }
+    }
+}
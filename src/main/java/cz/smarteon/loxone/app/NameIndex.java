@@ -0,0 +1,155 @@
+package cz.smarteon.loxone.app;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Case and diacritics insensitive index of {@link LoxoneApp} control and room names, built once per application (see
+ * {@link LoxoneApp#getNameIndex()}). The names are normalized by {@link #normalize(String)} and kept in sorted arrays,
+ * so both the exact and the prefix queries are binary searches - e.g. "kuchyn" finds "Kuchyň" as well as
+ * "Kuchyňská linka".
+ */
+public final class NameIndex {
+
+    private final Entries<Control> controls;
+    private final Entries<Room> rooms;
+
+    NameIndex(final @NotNull Collection<Control> controls, final @NotNull Collection<Room> rooms) {
+        this.controls = new Entries<>(controls, Control::getName, Control[]::new);
+        this.rooms = new Entries<>(rooms, Room::getName, Room[]::new);
+    }
+
+    /**
+     * Controls of given name, ignoring the case and diacritics.
+     * @param name control name
+     * @return new list of found controls (may be empty), ordered by their normalized names
+     */
+    @NotNull
+    public List<Control> controls(final @NotNull String name) {
+        return controls.find(normalize(name), false, null);
+    }
+
+    /**
+     * Controls which names start with the given prefix, ignoring the case and diacritics.
+     * @param prefix control name prefix
+     * @return new list of found controls (may be empty), ordered by their normalized names
+     */
+    @NotNull
+    public List<Control> controlsByPrefix(final @NotNull String prefix) {
+        return controls.find(normalize(prefix), true, null);
+    }
+
+    /**
+     * Controls in given room which names start with the given prefix, ignoring the case and diacritics.
+     * @param prefix control name prefix
+     * @param room room uuid
+     * @return new list of found controls (may be empty), ordered by their normalized names
+     */
+    @NotNull
+    public List<Control> controlsByPrefix(final @NotNull String prefix, final @NotNull LoxoneUuid room) {
+        requireNonNull(room, "room can't be null");
+        return controls.find(normalize(prefix), true, control -> room.equals(control.getRoom()));
+    }
+
+    /**
+     * Rooms of given name, ignoring the case and diacritics.
+     * @param name room name
+     * @return new list of found rooms (may be empty), ordered by their normalized names
+     */
+    @NotNull
+    public List<Room> rooms(final @NotNull String name) {
+        return rooms.find(normalize(name), false, null);
+    }
+
+    /**
+     * Rooms which names start with the given prefix, ignoring the case and diacritics.
+     * @param prefix room name prefix
+     * @return new list of found rooms (may be empty), ordered by their normalized names
+     */
+    @NotNull
+    public List<Room> roomsByPrefix(final @NotNull String prefix) {
+        return rooms.find(normalize(prefix), true, null);
+    }
+
+    /**
+     * Normalizes the name the way the index does - removes diacritics and converts to lower case.
+     * @param name name to normalize
+     * @return normalized name
+     */
+    @NotNull
+    public static String normalize(final @NotNull String name) {
+        requireNonNull(name, "name can't be null");
+        final String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        final StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            final int type = Character.getType(c);
+            if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entries<T> {
+        private final String[] keys;
+        private final T[] values;
+
+        private Entries(final Collection<T> items, final Function<T, String> name, final IntFunction<T[]> newArray) {
+            final List<T> named = new ArrayList<>(items.size());
+            final List<String> normalized = new ArrayList<>(items.size());
+            for (T item : items) {
+                if (name.apply(item) != null) {
+                    named.add(item);
+                    normalized.add(normalize(name.apply(item)));
+                }
+            }
+            final Integer[] order = new Integer[named.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(normalized::get));
+
+            this.keys = new String[order.length];
+            this.values = newArray.apply(order.length);
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = normalized.get(order[i]);
+                values[i] = named.get(order[i]);
+            }
+        }
+
+        private List<T> find(final String key, final boolean prefix, final @Nullable Predicate<T> filter) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i < 0) {
+                i = -i - 1;
+            } else {
+                // binary search finds any of the equal keys, rewind to the first one
+                while (i > 0 && keys[i - 1].equals(key)) {
+                    i--;
+                }
+            }
+            final List<T> found = new ArrayList<>();
+            for (; i < keys.length && (prefix ? keys[i].startsWith(key) : keys[i].equals(key)); i++) {
+                if (filter == null || filter.test(values[i])) {
+                    found.add(values[i]);
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -15,6 +15,11 @@ public class PresenceDetectorControl extends Control {
 
     public static final String NAME = "PresenceDetector";
 
+    private static final StateSlot ACTIVE = StateSlot.compulsory(PresenceDetectorControl.class, "active");
+    private static final StateSlot LOCKED = StateSlot.compulsory(PresenceDetectorControl.class, "locked");
+    private static final StateSlot ACTIVE_SINCE = StateSlot.compulsory(PresenceDetectorControl.class, "activeSince");
+    private static final StateSlot INFO_TEXT = StateSlot.compulsory(PresenceDetectorControl.class, "infoText");
+
     @NotNull
     public String detailText_On() {
         return ((Map<String,String>)getCompulsoryDetail("text")).get("on");
@@ -26,18 +31,18 @@ public class PresenceDetectorControl extends Control {
 
     @NotNull
     public LoxoneUuid stateActive() {
-        return getCompulsoryState("active").only();
+        return getState(ACTIVE);
     }
     @NotNull
     public LoxoneUuid stateLocked() {
-        return getCompulsoryState("locked").only();
+        return getState(LOCKED);
     }
     @NotNull
     public LoxoneUuid stateActiveSince() {
-        return getCompulsoryState("activeSince").only();
+        return getState(ACTIVE_SINCE);
     }
     @NotNull
     public LoxoneUuid stateInfoText() {
-        return getCompulsoryState("infoText").only();
+        return getState(INFO_TEXT);
     }
 }
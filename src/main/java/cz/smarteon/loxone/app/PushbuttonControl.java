@@ -9,9 +9,11 @@ public class PushbuttonControl extends Control {
 
     public static final String NAME = "Pushbutton";
 
+    private static final StateSlot ACTIVE = StateSlot.compulsory(PushbuttonControl.class, "active");
+
     @NotNull
     public LoxoneUuid stateActive() {
-        return getCompulsoryState("active").only();
+        return getState(ACTIVE);
     }
 
     public void sendOn(final @NotNull Loxone loxone){
@@ -8,8 +8,10 @@ public class RadioControl extends Control {
 
     public static final String NAME = "Radio";
 
+    private static final StateSlot ACTIVE_OUTPUT = StateSlot.compulsory(RadioControl.class, "activeOutput");
+
     @NotNull
     public LoxoneUuid stateActiveOutput() {
-        return getCompulsoryState("activeOutput").only();
+        return getState(ACTIVE_OUTPUT);
     }
 }
@@ -0,0 +1,77 @@
+package cz.smarteon.loxone.app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * JSON object kept as compact UTF-8 bytes, copied from the parsed structure file without being mapped, so it's
+ * cheap to parse and retain. Mapped on demand by {@link #readMap()}.
+ */
+@JsonDeserialize(using = RawJson.Deserializer.class)
+final class RawJson {
+
+    private static final ObjectMapper FALLBACK_CODEC = new ObjectMapper();
+
+    private final byte[] json;
+    private final ObjectCodec codec;
+
+    private RawJson(final byte[] json, final ObjectCodec codec) {
+        this.json = json;
+        this.codec = codec != null ? codec : FALLBACK_CODEC;
+    }
+
+    /**
+     * Maps the JSON object using the codec which parsed it.
+     * @return new map of the JSON object
+     * @throws IOException in case the JSON can't be mapped
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> readMap() throws IOException {
+        try (JsonParser parser = codec.getFactory().createParser(json)) {
+            return codec.readValue(parser, Map.class);
+        }
+    }
+
+    /**
+     * @param other other raw JSON
+     * @return true if both contain the same bytes
+     */
+    boolean sameAs(final RawJson other) {
+        return Arrays.equals(json, other.json);
+    }
+
+    /**
+     * @return number of bytes retained
+     */
+    int size() {
+        return json.length;
+    }
+
+    static class Deserializer extends JsonDeserializer<RawJson> {
+
+        @Override
+        public RawJson deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(p, Map.class, "Expected JSON object but got " + p.currentToken());
+            }
+            final ObjectCodec codec = p.getCodec();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            try (JsonGenerator generator = (codec != null ? codec : FALLBACK_CODEC).getFactory().createGenerator(out)) {
+                generator.copyCurrentStructure(p);
+            }
+            return new RawJson(out.toByteArray(), codec);
+        }
+    }
+}
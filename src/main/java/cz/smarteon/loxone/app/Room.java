@@ -31,6 +31,19 @@ public class Room {
     @JsonProperty(value = "type", required = true)
     private int type;
 
+    public Room() {
+    }
+
+    Room(final LoxoneUuid uuid, final String name, final String image, final int defaultRating,
+         final boolean isFavorite, final int type) {
+        this.uuid = uuid;
+        this.name = name;
+        this.image = image;
+        this.defaultRating = defaultRating;
+        this.isFavorite = isFavorite;
+        this.type = type;
+    }
+
     /**
      * UUID of this room, should be unique
      * @return room UUID
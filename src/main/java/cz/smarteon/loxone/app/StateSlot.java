@@ -0,0 +1,159 @@
+package cz.smarteon.loxone.app;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State of known name declared by the control type, resolved to a fixed slot of the control when its states are
+ * loaded (see {@link Control#getState(StateSlot)}), so the typed state accessors don't look up the states by name.
+ * <p>
+ * The slots are declared as static constants of the control type, so they are all registered once the type is
+ * initialized, which is before any instance of it is created.
+ */
+final class StateSlot {
+
+    private static final Map<Class<?>, List<StateSlot>> DECLARED = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Table> TABLES = new ClassValue<Table>() {
+        @Override
+        protected Table computeValue(final Class<?> type) {
+            for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+                final List<StateSlot> slots = DECLARED.get(declaring);
+                if (slots != null) {
+                    synchronized (slots) {
+                        return new Table(slots.toArray(new StateSlot[0]));
+                    }
+                }
+            }
+            return new Table(new StateSlot[0]);
+        }
+    };
+
+    private final String name;
+    private final int index;
+    private final boolean compulsory;
+
+    private StateSlot(final String name, final int index, final boolean compulsory) {
+        this.name = name;
+        this.index = index;
+        this.compulsory = compulsory;
+    }
+
+    /**
+     * Declares the state, which has to be present in every control of given type.
+     * @param type control type
+     * @param name state name
+     * @return new slot
+     */
+    static StateSlot compulsory(final @NotNull Class<? extends Control> type, final @NotNull String name) {
+        return declare(type, name, true);
+    }
+
+    /**
+     * Declares the state, which may be missing in the controls of given type.
+     * @param type control type
+     * @param name state name
+     * @return new slot
+     */
+    static StateSlot optional(final @NotNull Class<? extends Control> type, final @NotNull String name) {
+        return declare(type, name, false);
+    }
+
+    /**
+     * @param type control type
+     * @return slot table of given control type, declared by the type or its closest superclass
+     */
+    static Table table(final @NotNull Class<?> type) {
+        return TABLES.get(type);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    boolean isCompulsory() {
+        return compulsory;
+    }
+
+    private static StateSlot declare(final Class<? extends Control> type, final String name, final boolean compulsory) {
+        final List<StateSlot> slots = DECLARED.computeIfAbsent(type, t -> new ArrayList<>());
+        synchronized (slots) {
+            final StateSlot slot = new StateSlot(name, slots.size(), compulsory);
+            slots.add(slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Slots declared by single control type. Resolves the slots to the positions in {@link ControlStates}, the
+     * positions are computed once per interned state names, so usually once per type.
+     */
+    static final class Table {
+
+        private final StateSlot[] slots;
+        private volatile Positions last;
+
+        private Table(final StateSlot[] slots) {
+            this.slots = slots;
+        }
+
+        boolean isEmpty() {
+            return slots.length == 0;
+        }
+
+        /**
+         * Resolves the slots of given states.
+         * @param states control states
+         * @return uuids by slot index, null for missing states and states without exactly one uuid
+         */
+        LoxoneUuid[] resolve(final @NotNull ControlStates states) {
+            Positions positions = last;
+            if (positions == null || !states.hasNames(positions.names)) {
+                positions = new Positions(states);
+                last = positions;
+            }
+            final LoxoneUuid[] uuids = new LoxoneUuid[slots.length];
+            for (int i = 0; i < slots.length; i++) {
+                uuids[i] = positions.positions[i] >= 0 ? states.uuidAt(positions.positions[i]) : null;
+            }
+            return uuids;
+        }
+
+        /**
+         * @param uuids resolved uuids by slot index, null if the states were not resolved
+         * @return new list of names of compulsory states which were not resolved
+         */
+        List<String> missing(final @Nullable LoxoneUuid[] uuids) {
+            final List<String> missing = new ArrayList<>();
+            for (StateSlot slot : slots) {
+                if (slot.compulsory && (uuids == null || uuids[slot.index] == null)) {
+                    missing.add(slot.name);
+                }
+            }
+            return missing;
+        }
+
+        private final class Positions {
+            private final String[] names;
+            private final int[] positions;
+
+            private Positions(final ControlStates states) {
+                this.names = states.names();
+                this.positions = new int[slots.length];
+                for (int i = 0; i < slots.length; i++) {
+                    positions[i] = states.indexOf(slots[i].name);
+                }
+            }
+        }
+    }
+}
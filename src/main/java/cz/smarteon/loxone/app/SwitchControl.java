@@ -8,9 +8,11 @@ public class SwitchControl extends Control {
 
     public static final String NAME = "Switch";
 
+    private static final StateSlot ACTIVE = StateSlot.compulsory(SwitchControl.class, "active");
+
     @NotNull
     public LoxoneUuid stateActive() {
-        return getCompulsoryState("active").only();
+        return getState(ACTIVE);
     }
 
     public void sendOn(final @NotNull Loxone loxone){
@@ -2,24 +2,35 @@ package cz.smarteon.loxone.app;
 
 import cz.smarteon.loxone.LoxoneNotDocumented;
 import cz.smarteon.loxone.LoxoneUuid;
-import cz.smarteon.loxone.LoxoneUuids;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Optional;
-
-import static java.util.Optional.ofNullable;
-
 public class TechnicalAlarmControl extends Control {
 
     public static final String NAME = "SmokeAlarm";
 
+    private static final StateSlot LEVEL = StateSlot.compulsory(TechnicalAlarmControl.class, "level");
+    private static final StateSlot NEXT_LEVEL = StateSlot.compulsory(TechnicalAlarmControl.class, "nextLevel");
+    private static final StateSlot NEXT_LEVEL_DELAY =
+            StateSlot.compulsory(TechnicalAlarmControl.class, "nextLevelDelay");
+    private static final StateSlot NEXT_LEVEL_DELAY_TOTAL =
+            StateSlot.compulsory(TechnicalAlarmControl.class, "nextLevelDelayTotal");
+    private static final StateSlot SENSORS = StateSlot.compulsory(TechnicalAlarmControl.class, "sensors");
+    private static final StateSlot START_TIME = StateSlot.compulsory(TechnicalAlarmControl.class, "startTime");
+    private static final StateSlot ACOUSTIC_ALARM = StateSlot.compulsory(TechnicalAlarmControl.class, "acousticAlarm");
+    private static final StateSlot TEST_ALARM = StateSlot.compulsory(TechnicalAlarmControl.class, "testAlarm");
+    private static final StateSlot ALARM_CAUSE = StateSlot.compulsory(TechnicalAlarmControl.class, "alarmCause");
+    private static final StateSlot TIME_SERVICE_MODE =
+            StateSlot.optional(TechnicalAlarmControl.class, "timeServiceMode");
+    private static final StateSlot ARE_ALARM_SIGNALS_OFF =
+            StateSlot.optional(TechnicalAlarmControl.class, "areAlarmSignalsOff");
+
     /**
      * @return state referring current alarm level
      */
     @NotNull
     public LoxoneUuid stateLevel() {
-        return getCompulsoryState("level").only();
+        return getState(LEVEL);
     }
 
     /**
@@ -27,7 +38,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevel() {
-        return getCompulsoryState("nextLevel").only();
+        return getState(NEXT_LEVEL);
     }
 
     /**
@@ -35,7 +46,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevelDelay() {
-        return getCompulsoryState("nextLevelDelay").only();
+        return getState(NEXT_LEVEL_DELAY);
     }
 
     /**
@@ -43,7 +54,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateNextLevelDelayTotal() {
-        return getCompulsoryState("nextLevelDelayTotal").only();
+        return getState(NEXT_LEVEL_DELAY_TOTAL);
     }
 
     /**
@@ -51,7 +62,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateSensors() {
-        return getCompulsoryState("sensors").only();
+        return getState(SENSORS);
     }
 
     /**
@@ -59,7 +70,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateStartTime() {
-        return getCompulsoryState("startTime").only();
+        return getState(START_TIME);
     }
 
     /**
@@ -67,7 +78,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateAcousticAlarm() {
-        return getCompulsoryState("acousticAlarm").only();
+        return getState(ACOUSTIC_ALARM);
     }
 
     /**
@@ -75,7 +86,7 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateTestAlarm() {
-        return getCompulsoryState("testAlarm").only();
+        return getState(TEST_ALARM);
     }
 
     /**
@@ -83,19 +94,19 @@ public class TechnicalAlarmControl extends Control {
      */
     @NotNull
     public LoxoneUuid stateAlarmCause() {
-        return getCompulsoryState("alarmCause").only();
+        return getState(ALARM_CAUSE);
     }
 
     @LoxoneNotDocumented
     @Nullable
     public LoxoneUuid stateTimeServiceMode() {
-        return ofNullable(getStates()).map(states -> states.get("timeServiceMode")).map(LoxoneUuids::only).orElse(null);
+        return getState(TIME_SERVICE_MODE);
     }
 
     @LoxoneNotDocumented
     @Nullable
     public LoxoneUuid stateAreAlarmSignalsOff() {
-        return ofNullable(getStates()).map(states -> states.get("areAlarmSignalsOff")).map(LoxoneUuids::only).orElse(null);
+        return getState(ARE_ALARM_SIGNALS_OFF);
     }
 
 }
@@ -8,8 +8,10 @@ public class TextInputControl extends Control {
 
     public static final String NAME = "TextInput";
 
+    private static final StateSlot TEXT = StateSlot.compulsory(TextInputControl.class, "text");
+
     @NotNull
     public LoxoneUuid stateTextAndIcon() {
-        return getCompulsoryState("text").only();
+        return getState(TEXT);
     }
 }
@@ -8,8 +8,10 @@ public class TextStateControl extends Control {
 
     public static final String NAME = "TextState";
 
+    private static final StateSlot TEXT_AND_ICON = StateSlot.compulsory(TextStateControl.class, "textAndIcon");
+
     @NotNull
     public LoxoneUuid stateTextAndIcon() {
-        return getCompulsoryState("textAndIcon").only();
+        return getState(TEXT_AND_ICON);
     }
 }
@@ -11,40 +11,50 @@ public class WindowMonitorControl extends Control {
 
     public static final String NAME = "WindowMonitor";
 
+    private static final StateSlot WINDOW_STATES = StateSlot.compulsory(WindowMonitorControl.class, "windowStates");
+    private static final StateSlot NUM_OPEN = StateSlot.compulsory(WindowMonitorControl.class, "numOpen");
+    private static final StateSlot NUM_CLOSED = StateSlot.compulsory(WindowMonitorControl.class, "numClosed");
+    private static final StateSlot NUM_TILTED = StateSlot.compulsory(WindowMonitorControl.class, "numTilted");
+    private static final StateSlot NUM_OFFLINE = StateSlot.compulsory(WindowMonitorControl.class, "numOffline");
+    private static final StateSlot NUMM_LOCKED = StateSlot.compulsory(WindowMonitorControl.class, "nummLocked");
+    private static final StateSlot NUM_UNLOCKED = StateSlot.compulsory(WindowMonitorControl.class, "numUnlocked");
+    private static final StateSlot ADDITIONAL_MOODS =
+            StateSlot.compulsory(WindowMonitorControl.class, "additionalMoods");
+
     @NotNull
     public Map<String,String>[] detailWindows() {
         return (Map<String,String>[])getCompulsoryDetail("text");
     }
     @NotNull
     public LoxoneUuid stateWindowStates() {
-        return getCompulsoryState("windowStates").only();
+        return getState(WINDOW_STATES);
     }
     @NotNull
     public LoxoneUuid stateNumOpen() {
-        return getCompulsoryState("numOpen").only();
+        return getState(NUM_OPEN);
     }
     @NotNull
     public LoxoneUuid stateNumClosed() {
-        return getCompulsoryState("numClosed").only();
+        return getState(NUM_CLOSED);
     }
     @NotNull
     public LoxoneUuid stateNumTilted() {
-        return getCompulsoryState("numTilted").only();
+        return getState(NUM_TILTED);
     }
     @NotNull
     public LoxoneUuid stateNumOffline() {
-        return getCompulsoryState("numOffline").only();
+        return getState(NUM_OFFLINE);
     }
     @NotNull
     public LoxoneUuid stateNummLocked() {
-        return getCompulsoryState("nummLocked").only();
+        return getState(NUMM_LOCKED);
     }
     @NotNull
     public LoxoneUuid stateNumUnlocked() {
-        return getCompulsoryState("numUnlocked").only();
+        return getState(NUM_UNLOCKED);
     }
     @NotNull
     public LoxoneUuid stateAdditionalMoods() {
-        return getCompulsoryState("additionalMoods").only();
+        return getState(ADDITIONAL_MOODS);
     }
 }
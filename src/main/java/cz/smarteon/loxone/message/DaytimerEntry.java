@@ -0,0 +1,83 @@
+package cz.smarteon.loxone.message;
+
+/**
+ * Single entry of daytimer schedule, carried by {@link DaytimerEvent}.
+ */
+public class DaytimerEntry {
+
+    public static final int PAYLOAD_LENGTH = 24;
+
+    private final int mode;
+    private final int from;
+    private final int to;
+    private final boolean needActivate;
+    private final double value;
+
+    /**
+     * Creates new instance
+     * @param mode number of the operating mode the entry applies to
+     * @param from start of the entry in minutes since midnight
+     * @param to end of the entry in minutes since midnight
+     * @param needActivate whether the entry needs to be activated (by the activation input)
+     * @param value analog value of the entry
+     */
+    public DaytimerEntry(final int mode, final int from, final int to, final boolean needActivate,
+                         final double value) {
+        this.mode = mode;
+        this.from = from;
+        this.to = to;
+        this.needActivate = needActivate;
+        this.value = value;
+    }
+
+    /**
+     * Number of the operating mode the entry applies to
+     * @return operating mode
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Start of the entry in minutes since midnight
+     * @return start minutes
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * End of the entry in minutes since midnight
+     * @return end minutes
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * Whether the entry needs to be activated (by the activation input)
+     * @return true when the activation is needed, false otherwise
+     */
+    public boolean isNeedActivate() {
+        return needActivate;
+    }
+
+    /**
+     * Analog value of the entry
+     * @return entry value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "DaytimerEntry{" +
+                "mode=" + mode +
+                ", from=" + from +
+                ", to=" + to +
+                ", needActivate=" + needActivate +
+                ", value=" + value +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package cz.smarteon.loxone.message;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loxone event carrying the daytimer schedule.
+ */
+public class DaytimerEvent extends LoxoneEvent {
+
+    /**
+     * Length of the event without entries - uuid, default value and number of entries.
+     */
+    public static final int HEADER_LENGTH = 28;
+
+    private final double defaultValue;
+    private final List<DaytimerEntry> entries;
+
+    /**
+     * Creates new instance
+     * @param uuid event uuid
+     * @param defaultValue value used when no entry applies
+     * @param entries daytimer schedule entries
+     */
+    public DaytimerEvent(final @NotNull LoxoneUuid uuid, final double defaultValue,
+                         final @NotNull List<DaytimerEntry> entries) {
+        super(uuid);
+        this.defaultValue = defaultValue;
+        this.entries = unmodifiableList(requireNonNull(entries, "entries can't be null"));
+    }
+
+    /**
+     * Value used when no entry applies
+     * @return default value
+     */
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Daytimer schedule entries
+     * @return schedule entries
+     */
+    @NotNull
+    public List<DaytimerEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "DaytimerEvent{" +
+                "uuid=" + uuid +
+                ", defaultValue=" + defaultValue +
+                ", entries=" + entries +
+                '}';
+    }
+}
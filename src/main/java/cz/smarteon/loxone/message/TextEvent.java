@@ -3,14 +3,18 @@ package cz.smarteon.loxone.message;
 import cz.smarteon.loxone.LoxoneUuid;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.charset.StandardCharsets;
+
 import static java.util.Objects.requireNonNull;
 
 /**
- * Loxone event carrying text value.
+ * Loxone event carrying text value. When created from the received message, the text is kept as UTF-8 bytes and
+ * decoded on first {@link #getText()} call only.
  */
 public class TextEvent extends LoxoneEvent {
     private final LoxoneUuid iconUuid;
-    private final String text;
+    // either the decoded String or the UTF-8 encoded byte[] to be decoded
+    private volatile Object text;
 
     /**
      * Creates new instance.
@@ -24,6 +28,18 @@ public class TextEvent extends LoxoneEvent {
         this.text = requireNonNull(text, "text can't be null");
     }
 
+    /**
+     * Creates new instance with text decoded lazily.
+     * @param uuid event uuid
+     * @param iconUuid icon uuid
+     * @param textBytes UTF-8 encoded text value, not copied so it should not be modified later
+     */
+    public TextEvent(final @NotNull LoxoneUuid uuid, final @NotNull LoxoneUuid iconUuid, final @NotNull byte[] textBytes) {
+        super(uuid);
+        this.iconUuid = requireNonNull(iconUuid, "iconUuid can't be null");
+        this.text = requireNonNull(textBytes, "textBytes can't be null");
+    }
+
     /**
      * Icon uuid
      * @return icon uuid
@@ -39,7 +55,13 @@ public class TextEvent extends LoxoneEvent {
      */
     @NotNull
     public String getText() {
-        return text;
+        final Object current = text;
+        if (current instanceof String) {
+            return (String) current;
+        }
+        final String decoded = new String((byte[]) current, StandardCharsets.UTF_8);
+        text = decoded;
+        return decoded;
     }
 
     @Override
@@ -47,7 +69,7 @@ public class TextEvent extends LoxoneEvent {
         return "TextEvent{" +
                 "uuid=" + uuid +
                 ", iconUuid=" + iconUuid +
-                ", text='" + text + '\'' +
+                ", text='" + getText() + '\'' +
                 '}';
     }
 }
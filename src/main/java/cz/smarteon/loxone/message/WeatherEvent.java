@@ -0,0 +1,186 @@
+package cz.smarteon.loxone.message;
+
+import cz.smarteon.loxone.LoxoneUuid;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loxone event carrying the weather forecast. The forecast entries are not copied nor decoded upfront, the event is
+ * a view over the received message and each value is read by its index-based accessor.
+ */
+public class WeatherEvent extends LoxoneEvent {
+
+    /**
+     * Length of the event without entries - uuid, last update and number of entries.
+     */
+    public static final int HEADER_LENGTH = 24;
+
+    /**
+     * Length of single forecast entry.
+     */
+    public static final int ENTRY_LENGTH = 68;
+
+    private static final int WEATHER_TYPE_OFFSET = 4;
+    private static final int WIND_DIRECTION_OFFSET = 8;
+    private static final int SOLAR_RADIATION_OFFSET = 12;
+    private static final int RELATIVE_HUMIDITY_OFFSET = 16;
+    private static final int TEMPERATURE_OFFSET = 20;
+    private static final int PERCEIVED_TEMPERATURE_OFFSET = 28;
+    private static final int DEW_POINT_OFFSET = 36;
+    private static final int PRECIPITATION_OFFSET = 44;
+    private static final int WIND_SPEED_OFFSET = 52;
+    private static final int BAROMETRIC_PRESSURE_OFFSET = 60;
+
+    private final long lastUpdate;
+    private final ByteBuffer entries;
+    private final int entryCount;
+
+    /**
+     * Creates new instance
+     * @param uuid event uuid
+     * @param lastUpdate time of the last forecast update, in seconds since 2009-01-01
+     * @param entries little endian encoded forecast entries, from index 0 to the limit, which should be multiple of
+     *                {@link #ENTRY_LENGTH}; not copied so it should not be modified later
+     */
+    public WeatherEvent(final @NotNull LoxoneUuid uuid, final long lastUpdate, final @NotNull ByteBuffer entries) {
+        super(uuid);
+        this.lastUpdate = lastUpdate;
+        this.entries = requireNonNull(entries, "entries can't be null").duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.entryCount = entries.limit() / ENTRY_LENGTH;
+    }
+
+    /**
+     * Time of the last forecast update
+     * @return seconds since 2009-01-01
+     */
+    public long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * Number of forecast entries
+     * @return number of entries
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Time of the forecast entry
+     * @param entry index of the entry
+     * @return seconds since 2009-01-01
+     */
+    public int getTimestamp(final int entry) {
+        return entries.getInt(offset(entry));
+    }
+
+    /**
+     * Weather type of the forecast entry
+     * @param entry index of the entry
+     * @return weather type number
+     */
+    public int getWeatherType(final int entry) {
+        return entries.getInt(offset(entry) + WEATHER_TYPE_OFFSET);
+    }
+
+    /**
+     * Wind direction of the forecast entry
+     * @param entry index of the entry
+     * @return wind direction in degrees
+     */
+    public int getWindDirection(final int entry) {
+        return entries.getInt(offset(entry) + WIND_DIRECTION_OFFSET);
+    }
+
+    /**
+     * Solar radiation of the forecast entry
+     * @param entry index of the entry
+     * @return solar radiation
+     */
+    public int getSolarRadiation(final int entry) {
+        return entries.getInt(offset(entry) + SOLAR_RADIATION_OFFSET);
+    }
+
+    /**
+     * Relative humidity of the forecast entry
+     * @param entry index of the entry
+     * @return relative humidity in percent
+     */
+    public int getRelativeHumidity(final int entry) {
+        return entries.getInt(offset(entry) + RELATIVE_HUMIDITY_OFFSET);
+    }
+
+    /**
+     * Temperature of the forecast entry
+     * @param entry index of the entry
+     * @return temperature
+     */
+    public double getTemperature(final int entry) {
+        return entries.getDouble(offset(entry) + TEMPERATURE_OFFSET);
+    }
+
+    /**
+     * Perceived temperature of the forecast entry
+     * @param entry index of the entry
+     * @return perceived temperature
+     */
+    public double getPerceivedTemperature(final int entry) {
+        return entries.getDouble(offset(entry) + PERCEIVED_TEMPERATURE_OFFSET);
+    }
+
+    /**
+     * Dew point of the forecast entry
+     * @param entry index of the entry
+     * @return dew point temperature
+     */
+    public double getDewPoint(final int entry) {
+        return entries.getDouble(offset(entry) + DEW_POINT_OFFSET);
+    }
+
+    /**
+     * Precipitation of the forecast entry
+     * @param entry index of the entry
+     * @return precipitation
+     */
+    public double getPrecipitation(final int entry) {
+        return entries.getDouble(offset(entry) + PRECIPITATION_OFFSET);
+    }
+
+    /**
+     * Wind speed of the forecast entry
+     * @param entry index of the entry
+     * @return wind speed
+     */
+    public double getWindSpeed(final int entry) {
+        return entries.getDouble(offset(entry) + WIND_SPEED_OFFSET);
+    }
+
+    /**
+     * Barometric pressure of the forecast entry
+     * @param entry index of the entry
+     * @return barometric pressure
+     */
+    public double getBarometricPressure(final int entry) {
+        return entries.getDouble(offset(entry) + BAROMETRIC_PRESSURE_OFFSET);
+    }
+
+    private int offset(final int entry) {
+        if (entry < 0 || entry >= entryCount) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " out of " + entryCount + " weather entries");
+        }
+        return entry * ENTRY_LENGTH;
+    }
+
+    @Override
+    public String toString() {
+        return "WeatherEvent{" +
+                "uuid=" + uuid +
+                ", lastUpdate=" + lastUpdate +
+                ", entryCount=" + entryCount +
+                '}';
+    }
+}
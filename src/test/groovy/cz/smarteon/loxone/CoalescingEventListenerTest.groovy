@@ -0,0 +1,82 @@
+package cz.smarteon.loxone
+
+import cz.smarteon.loxone.message.TextEvent
+import cz.smarteon.loxone.message.ValueEvent
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class CoalescingEventListenerTest extends Specification {
+
+    static final LoxoneUuid UUID1 = new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c')
+    static final LoxoneUuid UUID2 = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+
+    def "should pass only latest event of each uuid"() {
+        given:
+        def delegate = Mock(LoxoneEventListener)
+        def listener = new CoalescingEventListener(delegate)
+        def latestValue = new ValueEvent(UUID1, 3.0d)
+        def latestText = new TextEvent(UUID2, UUID1, 'latest')
+
+        when:
+        listener.onEvent(new ValueEvent(UUID1, 1.0d))
+        listener.onEvent(new TextEvent(UUID2, UUID1, 'first'))
+        listener.onEvent(new ValueEvent(UUID1, 2.0d))
+        listener.onEvent(latestValue)
+        listener.onEvent(latestText)
+
+        then:
+        listener.pendingEvents == 2
+        listener.droppedEvents == 3
+        0 * delegate._
+
+        when:
+        def drained = listener.drain()
+
+        then:
+        drained == 2
+        listener.pendingEvents == 0
+        1 * delegate.onEvent(latestValue)
+
+        then:
+        1 * delegate.onEvent(latestText)
+    }
+
+    def "should drain by executor"() {
+        given:
+        def tasks = []
+        def delegate = Mock(LoxoneEventListener)
+        def listener = new CoalescingEventListener(delegate, { tasks << it } as Executor)
+
+        when:
+        listener.onEvent(new ValueEvent(UUID1, 1.0d))
+        listener.onEvent(new ValueEvent(UUID2, 1.0d))
+        listener.onEvent(new ValueEvent(UUID1, 2.0d))
+
+        then:
+        tasks.size() == 1
+
+        when:
+        tasks[0].run()
+
+        then:
+        1 * delegate.onEvent({ it.uuid == UUID1 && it.value == 2.0d } as ValueEvent)
+        1 * delegate.onEvent({ it.uuid == UUID2 } as ValueEvent)
+        listener.droppedEvents == 1
+    }
+
+    def "should continue after delegate failure"() {
+        given:
+        def delegate = Mock(LoxoneEventListener)
+        def listener = new CoalescingEventListener(delegate)
+        listener.onEvent(new ValueEvent(UUID1, 1.0d))
+        listener.onEvent(new ValueEvent(UUID2, 1.0d))
+
+        when:
+        listener.drain()
+
+        then:
+        1 * delegate.onEvent({ it.uuid == UUID1 } as ValueEvent) >> { throw new IllegalStateException('failure') }
+        1 * delegate.onEvent({ it.uuid == UUID2 } as ValueEvent)
+    }
+}
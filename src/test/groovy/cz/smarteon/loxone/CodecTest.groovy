@@ -1,6 +1,7 @@
 package cz.smarteon.loxone
 
 import com.fasterxml.jackson.databind.node.TextNode
+import cz.smarteon.loxone.app.LoxoneApp
 import cz.smarteon.loxone.message.MessageKind
 import cz.smarteon.loxone.message.ValueEvent
 import spock.lang.Specification
@@ -45,6 +46,40 @@ class CodecTest extends Specification {
         events[0].value == 5.0d
     }
 
+    def "should read ValueEvents in place"() {
+        given:
+        def buffer = ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c0000000000001440fea2860f7803083effffb2d4efc8b5b60000000000c08240'))
+        def uuids = []
+        def values = []
+
+        when:
+        def count = Codec.readValueEvents(buffer, { hi, lo, value ->
+            uuids << new LoxoneUuid(hi, lo)
+            values << value
+        } as LoxoneValueListener)
+
+        then:
+        count == 2
+        uuids*.toString() == ['0f869a64-0200-0a9b-ffffd4c75dbaf53c', '0f86a2fe-0378-3e08-ffffb2d4efc8b5b6']
+        values == [5.0d, 600.0d]
+        buffer.position() == 0
+    }
+
+    def "should resolve event uuids by registry"() {
+        given:
+        def canonical = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def buffer = ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c0000000000001440fea2860f7803083effffb2d4efc8b5b60000000000c08240'))
+
+        when:
+        def events = Codec.readValueEvents(buffer, LoxoneUuidRegistry.of([canonical])) as List
+
+        then:
+        events[0].uuid.toString() == '0f869a64-0200-0a9b-ffffd4c75dbaf53c'
+        events[1].uuid.is(canonical)
+    }
+
     def "should read TextEvents"() {
         given:
         def bytes = hexToBytes(
@@ -67,6 +102,122 @@ class CodecTest extends Specification {
 
         events[1].text == '[]'
         events[2].text == ''
+        events[5].text.startsWith('2017-07-17 11:32:21 Lo\u017enice // Detektor')
+    }
+
+    def "should read DaytimerEvents"() {
+        given:
+        def buffer = ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c00000000000014400200000000000000680100002805000001000000000000000080354003000000000000' +
+                '00a0050000000000000000000000003240' +
+                '649a860f00029b0affffd4c75dbaf53c000000000000144003000000000000006801000028050000010000000000000000803540'))
+
+        when:
+        def events = Codec.readDaytimerEvents(buffer) as List
+
+        then:
+        events.size() == 2
+        events[0].uuid.toString() == '0f869a64-0200-0a9b-ffffd4c75dbaf53c'
+        events[0].defaultValue == 5.0d
+        events[0].entries*.mode == [0, 3]
+        events[0].entries*.from == [360, 0]
+        events[0].entries*.to == [1320, 1440]
+        events[0].entries*.needActivate == [true, false]
+        events[0].entries*.value == [21.5d, 18.0d]
+
+        // truncated event read with complete entries only
+        events[1].entries.size() == 1
+    }
+
+    def "should read WeatherEvents"() {
+        given:
+        def buffer = ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c0084d71702000000' +
+                '1092d71701000000b40000002c010000410000000000000000803540000000000000344000000000000025409a9999999999c93f0000000000000c400000000000a88f40' +
+                '20a0d71707000000b40000002c010000410000000000000000803540000000000000344000000000000025409a9999999999c93f0000000000000c400000000000a88f40'))
+
+        when:
+        def events = Codec.readWeatherEvents(buffer) as List
+
+        then:
+        events.size() == 1
+        with(events[0]) {
+            uuid.toString() == '0f869a64-0200-0a9b-ffffd4c75dbaf53c'
+            lastUpdate == 400000000
+            entryCount == 2
+            getTimestamp(0) == 400003600
+            getTimestamp(1) == 400007200
+            getWeatherType(0) == 1
+            getWeatherType(1) == 7
+            getWindDirection(1) == 180
+            getSolarRadiation(1) == 300
+            getRelativeHumidity(1) == 65
+            getTemperature(1) == 21.5d
+            getPerceivedTemperature(1) == 20.0d
+            getDewPoint(1) == 10.5d
+            getPrecipitation(1) == 0.2d
+            getWindSpeed(1) == 3.5d
+            getBarometricPressure(1) == 1013.0d
+        }
+    }
+
+    def "should not read weather entry out of range"() {
+        given:
+        def event = Codec.readWeatherEvents(ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c0084d71702000000'))).first()
+
+        when:
+        event.getTemperature(0)
+
+        then:
+        event.entryCount == 0
+        thrown(IndexOutOfBoundsException)
+    }
+
+    def "should read LoxoneApp incrementally"() {
+        when:
+        def app = Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json'))
+
+        then:
+        app.controls.size() == 6
+        app.rooms.size() == 3
+        app.miniserverInfo.serialNumber == '504F9410B84A'
+        app.controls.keySet() == Codec.readMessage(getClass().getResourceAsStream('/app/LoxAPP3.json'), LoxoneApp).controls.keySet()
+    }
+
+    def "should skip unused structure file sections"() {
+        when:
+        def app = Codec.readLoxoneApp('''{
+            "lastModified": "2017-11-22 18:41:01",
+            "msInfo": {"serialNr": "504F9410B84A"},
+            "weatherServer": {"states": {"actual": "0f86a2fe-0378-3e08-ffffb2d4efc8b5b6"}, "format": [1, 2]},
+            "rooms": {},
+            "controls": {},
+            "autopilot": []
+        }''')
+
+        then:
+        app.controls.isEmpty()
+        app.rooms.isEmpty()
+    }
+
+    def "should fail to read incomplete LoxoneApp"() {
+        when:
+        Codec.readLoxoneApp('{"controls": {}}')
+
+        then:
+        thrown(IOException)
+    }
+
+    def "should read control"() {
+        expect:
+        Codec.readControl(message) == control
+
+        where:
+        message                                                               || control
+        '{"LL": {"control": "dev/sps/io/uuid/On", "value": "1", "Code": "200"}}' || 'dev/sps/io/uuid/On'
+        '{"LL": {"value": {"key": "val"}, "Control": "jdev/sys/getkey2/usr"}}'   || 'jdev/sys/getkey2/usr'
+        '{"lastModified": "2017-11-22 18:41:01", "controls": {}}'             || null
     }
 
     def "should convertValue"() {
@@ -0,0 +1,229 @@
+package cz.smarteon.loxone
+
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Timeout
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static cz.smarteon.loxone.message.ControlCommand.genericControlCommand
+
+class CommandPipelineTest extends Specification {
+
+    List<Command> sent = []
+    Map<Command, CompletableFuture> responses = [:]
+
+    @Subject CommandPipeline pipeline = new CommandPipeline({ cmd ->
+        sent << cmd
+        def response = new CompletableFuture()
+        responses[cmd] = response
+        response
+    })
+
+    def "should send immediately when unlimited"() {
+        when:
+        (1..10).each { pipeline.submit(command(it)) }
+
+        then:
+        sent.size() == 10
+        pipeline.inFlight() == 10
+        pipeline.queued() == 0
+    }
+
+    def "should park commands while paused"() {
+        given:
+        pipeline.pause()
+
+        when:
+        def futures = (1..3).collect { pipeline.submit(command(it)) }
+
+        then:
+        sent.isEmpty()
+        pipeline.queued() == 3
+
+        when:
+        pipeline.resume()
+        responses[command(1)].complete('1')
+
+        then:
+        sent == [command(1), command(2), command(3)]
+        futures[0].get() == '1'
+    }
+
+    def "should send by given sender"() {
+        when:
+        def future = pipeline.submit(command(1), { cmd -> CompletableFuture.completedFuture('custom') })
+
+        then:
+        sent.isEmpty()
+        future.get() == 'custom'
+        pipeline.inFlight() == 0
+    }
+
+    def "should keep window of in flight commands"() {
+        given:
+        pipeline.maxInFlight = 2
+
+        when:
+        def futures = (1..5).collect { pipeline.submit(command(it)) }
+
+        then:
+        sent == [command(1), command(2)]
+        pipeline.queued() == 3
+
+        when:
+        responses[command(2)].complete('2')
+
+        then:
+        futures[1].get() == '2'
+        sent == [command(1), command(2), command(3)]
+        pipeline.inFlight() == 2
+        pipeline.queued() == 2
+
+        when:
+        responses[command(1)].completeExceptionally(new LoxoneException('failed'))
+        futures[0].get()
+
+        then:
+        thrown(ExecutionException)
+        sent.size() == 4
+    }
+
+    def "should fail fast when queue full"() {
+        given:
+        pipeline.maxInFlight = 1
+        pipeline.capacity = 1
+        pipeline.policy = CommandQueuePolicy.FAIL_FAST
+
+        when:
+        pipeline.submit(command(1))
+        pipeline.submit(command(2))
+        pipeline.submit(command(3))
+
+        then:
+        thrown(LoxoneException)
+        sent == [command(1)]
+        pipeline.queued() == 1
+    }
+
+    def "should drop oldest queued when queue full"() {
+        given:
+        pipeline.maxInFlight = 1
+        pipeline.capacity = 1
+        pipeline.policy = CommandQueuePolicy.DROP
+
+        when:
+        pipeline.submit(command(1))
+        def dropped = pipeline.submit(command(2))
+        def kept = pipeline.submit(command(3))
+        dropped.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneException
+        !kept.isDone()
+        pipeline.queued() == 1
+
+        when:
+        responses[command(1)].complete('1')
+
+        then:
+        sent == [command(1), command(3)]
+    }
+
+    @Timeout(2)
+    def "should block when queue full"() {
+        given:
+        pipeline.maxInFlight = 1
+        pipeline.capacity = 1
+        pipeline.submit(command(1))
+        pipeline.submit(command(2))
+        def started = new CountDownLatch(1)
+
+        when:
+        def blocked = Thread.start {
+            started.countDown()
+            pipeline.submit(command(3))
+        }
+        started.await()
+        sleep(50)
+
+        then:
+        blocked.alive
+        pipeline.queued() == 1
+
+        when:
+        responses[command(1)].complete('1')
+        blocked.join()
+
+        then:
+        sent == [command(1), command(2)]
+        pipeline.queued() == 1
+    }
+
+    def "should fail queued"() {
+        given:
+        pipeline.maxInFlight = 1
+        pipeline.submit(command(1))
+        def queued = pipeline.submit(command(2))
+
+        when:
+        pipeline.failQueued(new LoxoneConnectionException('closed'))
+        queued.get()
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneConnectionException
+        pipeline.queued() == 0
+    }
+
+    def "should fail command without response and free its slot"() {
+        given:
+        def scheduler = Executors.newSingleThreadScheduledExecutor()
+        def timed = new CommandPipeline({ cmd ->
+            sent << cmd
+            def response = new CompletableFuture()
+            responses[cmd] = response
+            response
+        }, scheduler)
+        timed.maxInFlight = 1
+        timed.responseTimeoutMillis = 50
+
+        when:
+        def lost = timed.submit(command(1))
+        def next = timed.submit(command(2))
+
+        then:
+        sent == [command(1)]
+
+        when:
+        lost.get(1, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneException
+        new PollingConditions(timeout: 1).eventually {
+            assert sent == [command(1), command(2)]
+            assert responses[command(1)].isCancelled()
+        }
+
+        when:
+        responses[command(2)].complete('2')
+
+        then:
+        next.get(1, TimeUnit.SECONDS) == '2'
+        timed.inFlight() == 0
+
+        cleanup:
+        scheduler.shutdownNow()
+    }
+
+    private static Command command(int i) {
+        genericControlCommand("uuid$i", 'Pulse')
+    }
+}
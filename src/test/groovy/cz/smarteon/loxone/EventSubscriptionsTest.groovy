@@ -0,0 +1,82 @@
+package cz.smarteon.loxone
+
+import cz.smarteon.loxone.message.TextEvent
+import cz.smarteon.loxone.message.ValueEvent
+import spock.lang.Specification
+import spock.lang.Subject
+
+class EventSubscriptionsTest extends Specification {
+
+    static final LoxoneUuid UUID1 = new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c')
+    static final LoxoneUuid UUID2 = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+
+    @Subject EventSubscriptions subscriptions = new EventSubscriptions()
+
+    def "should notify subscribed listeners only"() {
+        given:
+        def listener1 = Mock(LoxoneEventListener)
+        def listener2 = Mock(LoxoneEventListener)
+        subscriptions.subscribe(UUID1, listener1)
+        subscriptions.subscribe(UUID1, listener1)
+        subscriptions.subscribe(UUID2, listener2)
+        def valueEvent = new ValueEvent(UUID1, 1.0d)
+        def textEvent = new TextEvent(UUID2, UUID1, 'text')
+
+        when:
+        subscriptions.notify(valueEvent)
+        subscriptions.notify(textEvent)
+
+        then:
+        1 * listener1.onEvent(valueEvent)
+        1 * listener2.onEvent(textEvent)
+        0 * _
+    }
+
+    def "should subscribe uuids at once"() {
+        given:
+        def listener = Mock(LoxoneEventListener)
+        subscriptions.subscribe(UUID1, listener)
+
+        when:
+        subscriptions.subscribe([UUID1, UUID2], listener)
+        subscriptions.notify(new ValueEvent(UUID1, 1.0d))
+        subscriptions.notify(new ValueEvent(UUID2, 2.0d))
+
+        then:
+        1 * listener.onEvent({ it.uuid == UUID1 } as ValueEvent)
+        1 * listener.onEvent({ it.uuid == UUID2 } as ValueEvent)
+        0 * _
+    }
+
+    def "should resolve subscribed uuid"() {
+        expect:
+        subscriptions.isEmpty()
+
+        when:
+        subscriptions.subscribe(UUID1, Mock(LoxoneEventListener))
+
+        then:
+        !subscriptions.isEmpty()
+        subscriptions.subscribed(UUID1.hi, UUID1.lo).is(UUID1)
+        subscriptions.subscribed(UUID2.hi, UUID2.lo) == null
+    }
+
+    def "should unsubscribe"() {
+        given:
+        def listener = Mock(LoxoneEventListener)
+        def other = Mock(LoxoneEventListener)
+        subscriptions.subscribe(UUID1, listener)
+        subscriptions.subscribe(UUID2, listener)
+        subscriptions.subscribe(UUID2, other)
+
+        when:
+        subscriptions.unsubscribe(listener)
+        subscriptions.notify(new ValueEvent(UUID1, 1.0d))
+        subscriptions.notify(new ValueEvent(UUID2, 2.0d))
+
+        then:
+        0 * listener._
+        1 * other.onEvent(_ as ValueEvent)
+        subscriptions.subscribed(UUID1.hi, UUID1.lo) == null
+    }
+}
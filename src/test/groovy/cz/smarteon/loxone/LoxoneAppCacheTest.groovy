@@ -0,0 +1,99 @@
+package cz.smarteon.loxone
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+class LoxoneAppCacheTest extends Specification {
+
+    Path dir
+    LoxoneAppCache cache
+
+    void setup() {
+        dir = Files.createTempDirectory('loxapp')
+        cache = new LoxoneAppCache(dir)
+    }
+
+    void cleanup() {
+        dir.toFile().deleteDir()
+    }
+
+    def "should store and load application"() {
+        given:
+        def file = cache.newFile()
+        Files.copy(getClass().getResourceAsStream('/app/LoxAPP3.json'), file, StandardCopyOption.REPLACE_EXISTING)
+
+        when:
+        def stored = cache.store(file)
+
+        then:
+        stored.controls.size() == 6
+        !Files.exists(file)
+
+        when:
+        def loaded = cache.load('50:4F:94:10:B8:4A', stored.lastModified)
+
+        then:
+        loaded.controls.keySet() == stored.controls.keySet()
+        loaded.miniserverInfo.serialNumber == '504F9410B84A'
+
+        expect:
+        cache.load('504F9410B84A', new Date(stored.lastModified.time + 1000)) == null
+        cache.load('EEE000D80B0E', stored.lastModified) == null
+    }
+
+    def "should keep only latest application of miniserver"() {
+        given:
+        Files.write(dir.resolve('504F9410B84A-1000.snapshot'), '{}'.bytes)
+        Files.write(dir.resolve('EEE000D80B0E-1000.snapshot'), '{}'.bytes)
+        def file = cache.newFile()
+        Files.copy(getClass().getResourceAsStream('/app/LoxAPP3.json'), file, StandardCopyOption.REPLACE_EXISTING)
+
+        when:
+        def stored = cache.store(file)
+
+        then:
+        dir.toFile().list() as Set == ["504F9410B84A-${stored.lastModified.time}.snapshot", 'EEE000D80B0E-1000.snapshot'] as Set
+    }
+
+    def "should remove unreadable application"() {
+        given:
+        def broken = dir.resolve('504F9410B84A-1000.snapshot')
+        Files.write(broken, '{"controls": {}}'.bytes)
+
+        expect:
+        cache.load('504F9410B84A', new Date(1000)) == null
+        !Files.exists(broken)
+    }
+
+    def "should fail on unparsable download"() {
+        given:
+        def file = cache.newFile()
+        Files.write(file, 'not json'.bytes)
+
+        when:
+        cache.store(file)
+
+        then:
+        thrown(LoxoneException)
+        !Files.exists(file)
+    }
+
+    def "should return application which snapshot can't be stored"() {
+        given:
+        def file = cache.newFile()
+        def json = getClass().getResourceAsStream('/app/LoxAPP3.json').getText('UTF-8')
+        Files.write(file, json.replaceFirst('"details": \\{', '"details": {"huge": 123456789012345678901234567890,')
+                .getBytes('UTF-8'))
+
+        when:
+        def stored = cache.store(file)
+
+        then:
+        stored.controls.size() == 6
+        !Files.exists(file)
+        cache.load('504F9410B84A', stored.lastModified) == null
+    }
+}
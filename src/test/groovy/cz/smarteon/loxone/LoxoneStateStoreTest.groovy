@@ -0,0 +1,126 @@
+package cz.smarteon.loxone
+
+import cz.smarteon.loxone.message.TextEvent
+import cz.smarteon.loxone.message.WeatherEvent
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.nio.ByteBuffer
+
+import static cz.smarteon.loxone.Codec.hexToBytes
+
+class LoxoneStateStoreTest extends Specification {
+
+    static final LoxoneUuid STATE1 = new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c')
+    static final LoxoneUuid STATE2 = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+    static final LoxoneUuid TEXT_STATE = new LoxoneUuid('0f869ad6-01d2-0cd6-ffff373f9870b52a')
+    static final LoxoneUuid ICON = new LoxoneUuid('00000000-0000-0000-0000000000000000')
+
+    @Subject LoxoneStateStore store = new LoxoneStateStore(LoxoneUuidRegistry.of([STATE1, TEXT_STATE]))
+
+    def "should keep latest values"() {
+        given:
+        def buffer = ByteBuffer.wrap(hexToBytes(
+                '649a860f00029b0affffd4c75dbaf53c0000000000001440fea2860f7803083effffb2d4efc8b5b60000000000c08240'))
+
+        expect:
+        !store.hasValue(STATE1)
+        Double.isNaN(store.value(STATE1))
+
+        when:
+        Codec.readValueEvents(buffer, store)
+
+        then:
+        store.hasValue(STATE1)
+        store.value(STATE1) == 5.0d
+        store.value(store.slotOf(STATE1)) == 5.0d
+        !store.hasValue(STATE2)
+        Double.isNaN(store.value(STATE2))
+        store.slotOf(STATE2) == -1
+
+        when:
+        store.onValue(STATE1.hi, STATE1.lo, 7.0d)
+
+        then:
+        store.value(STATE1) == 7.0d
+    }
+
+    def "should have received NaN value"() {
+        when:
+        store.onValue(STATE1.hi, STATE1.lo, Double.NaN)
+
+        then:
+        store.hasValue(STATE1)
+        Double.isNaN(store.value(STATE1))
+    }
+
+    def "should keep latest texts"() {
+        when:
+        store.onTexts([new TextEvent(TEXT_STATE, ICON, 'first'), new TextEvent(STATE2, ICON, 'unknown')])
+        store.onText(new TextEvent(TEXT_STATE, ICON, 'second'))
+
+        then:
+        store.text(TEXT_STATE) == 'second'
+        store.text(STATE2) == null
+    }
+
+    def "should keep values of known uuids on load"() {
+        given:
+        store.onValue(STATE1.hi, STATE1.lo, 5.0d)
+        store.onText(new TextEvent(TEXT_STATE, ICON, 'text'))
+
+        when:
+        store.load(LoxoneUuidRegistry.of([STATE2, STATE1]))
+
+        then: 'the previous registry is used until the next update'
+        store.slotOf(STATE1) == 0
+        store.value(STATE1) == 5.0d
+        store.text(TEXT_STATE) == 'text'
+
+        when:
+        store.onValue(STATE1.hi, STATE1.lo, 6.0d)
+
+        then:
+        store.value(STATE1) == 6.0d
+        store.hasValue(STATE1)
+        store.slotOf(STATE1) == 1
+        !store.hasValue(STATE2)
+        store.text(TEXT_STATE) == null
+    }
+
+    def "should load registry of empty store at once"() {
+        given:
+        def empty = new LoxoneStateStore()
+
+        when:
+        empty.load(LoxoneUuidRegistry.of([STATE1]))
+
+        then:
+        empty.slotOf(STATE1) == 0
+        !empty.hasValue(STATE1)
+    }
+
+    def "should keep latest weather of any uuid"() {
+        given:
+        def weather = new WeatherEvent(STATE2, 400000000, ByteBuffer.allocate(0))
+
+        when:
+        store.onWeather(weather)
+
+        then:
+        store.weather(STATE2).is(weather)
+        store.weather(STATE1) == null
+    }
+
+    def "should ignore everything when empty"() {
+        given:
+        def empty = new LoxoneStateStore()
+
+        when:
+        empty.onValue(STATE1.hi, STATE1.lo, 5.0d)
+
+        then:
+        !empty.hasValue(STATE1)
+        empty.registry.size() == 0
+    }
+}
@@ -1,10 +1,22 @@
 package cz.smarteon.loxone
 
+import cz.smarteon.loxone.app.AlarmControl
 import cz.smarteon.loxone.app.Control
 import cz.smarteon.loxone.app.LoxoneApp
+import cz.smarteon.loxone.app.LoxoneAppDiff
+import cz.smarteon.loxone.message.ApiInfo
+import cz.smarteon.loxone.message.DateValue
+import cz.smarteon.loxone.message.LoxoneMessage
+import cz.smarteon.loxone.message.LoxoneMessageCommand
 import spock.lang.Specification
 import spock.lang.Subject
 
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+
 class LoxoneTest extends Specification {
 
     @Subject Loxone loxone
@@ -18,6 +30,7 @@ class LoxoneTest extends Specification {
         http = Mock(LoxoneHttp)
         webSocket = Mock(LoxoneWebSocket) {
             registerListener(*_) >> { args -> appCmdListener = args[0] }
+            getDispatchExecutor() >> ({ Runnable task -> task.run() } as Executor)
         }
         auth = Mock(LoxoneAuth)
 
@@ -34,7 +47,10 @@ class LoxoneTest extends Specification {
 
     def "test basic flow"() {
         given:
-        def app = Mock(LoxoneApp)
+        def app = Mock(LoxoneApp) {
+            getUuidRegistry() >> LoxoneUuidRegistry.empty()
+            getControls() >> [:]
+        }
         def appListener = Mock(LoxoneAppListener)
         def control  = Stub(Control) {
             getUuid() >> new LoxoneUuid('1177b172-020b-0b06-ffffc0f606ef595c')
@@ -54,6 +70,7 @@ class LoxoneTest extends Specification {
         loxone.app() == app
         1 * webSocket.sendCommand(Command.LOX_APP) >> {
             appCmdListener.onCommand(Command.LOX_APP, app)
+            CompletableFuture.completedFuture(app)
         }
         1 * webSocket.sendCommand(Command.ENABLE_STATUS_UPDATE)
         1 * webSocket.registerWebSocketListener(*_)
@@ -81,4 +98,94 @@ class LoxoneTest extends Specification {
         then:
         1 * webSocket.close()
     }
+
+    def "should use cached app when unchanged"() {
+        given:
+        def dir = Files.createTempDirectory('loxapp')
+        def cache = new LoxoneAppCache(dir)
+        def appListener = Mock(LoxoneAppListener)
+        loxone.registerLoxoneAppListener(appListener)
+        loxone.setAppCache(cache)
+        auth.getApiInfo() >> new ApiInfo('50:4F:94:10:B8:4A', '11.0.2.12')
+        Date lastModified = null
+
+        when: 'no app cached'
+        loxone.start()
+
+        then:
+        1 * webSocket.sendCommand(LoxoneMessageCommand.LOX_APP_VERSION) >> CompletableFuture.completedFuture(
+                new LoxoneMessage('dev/sps/LoxAPPversion3', 200, DateValue.create(new Date())))
+        1 * webSocket.download(Command.LOX_APP.command, _ as Path) >> { String path, Path file ->
+            Files.copy(getClass().getResourceAsStream('/app/LoxAPP3.json'), file, StandardCopyOption.REPLACE_EXISTING)
+            CompletableFuture.completedFuture(Files.size(file))
+        }
+        0 * webSocket.sendCommand(Command.LOX_APP)
+        1 * appListener.onLoxoneApp({ LoxoneApp app -> lastModified = app.lastModified; app.controls.size() == 6 })
+        loxone.app().miniserverInfo.serialNumber == '504F9410B84A'
+
+        when: 'app unchanged'
+        loxone.start()
+
+        then:
+        1 * webSocket.sendCommand(LoxoneMessageCommand.LOX_APP_VERSION) >> CompletableFuture.completedFuture(
+                new LoxoneMessage('dev/sps/LoxAPPversion3', 200, DateValue.create(lastModified)))
+        0 * webSocket.download(*_)
+        1 * appListener.onLoxoneApp({ it.controls.size() == 6 })
+
+        cleanup:
+        dir.toFile().deleteDir()
+    }
+
+    def "should reload changed app"() {
+        given:
+        def app = Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json'))
+        def changedApp = Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json'))
+        def removed = changedApp.controls.remove(new LoxoneUuid('0f86a20d-02ad-17f0-ffff373f9870b52a'))
+        changedApp = new LoxoneApp(new Date(app.lastModified.time + 1000), changedApp.miniserverInfo, changedApp.rooms,
+                changedApp.controls)
+        def appListener = Mock(LoxoneAppListener)
+        loxone.registerLoxoneAppListener(appListener)
+        def filter = ValueFilter.changeOnly()
+        loxone.setValueFilter(AlarmControl, filter)
+
+        when:
+        loxone.start()
+
+        then:
+        1 * webSocket.sendCommand(Command.LOX_APP) >> {
+            appCmdListener.onCommand(Command.LOX_APP, app)
+            CompletableFuture.completedFuture(app)
+        }
+        1 * webSocket.setValueFilter(app.getControls(AlarmControl)[0].states.values().flatten(), filter)
+        1 * appListener.onLoxoneApp(app)
+        0 * appListener.onLoxoneAppChanged(*_)
+
+        when: 'version unchanged'
+        def changed = loxone.checkAppVersion().get()
+
+        then:
+        !changed
+        1 * webSocket.sendCommand(LoxoneMessageCommand.LOX_APP_VERSION) >> CompletableFuture.completedFuture(
+                new LoxoneMessage('dev/sps/LoxAPPversion3', 200, DateValue.create(app.lastModified)))
+        0 * webSocket.sendCommand(Command.LOX_APP)
+
+        when: 'version changed'
+        changed = loxone.checkAppVersion().get()
+
+        then:
+        changed
+        loxone.app() == changedApp
+        1 * webSocket.sendCommand(LoxoneMessageCommand.LOX_APP_VERSION) >> CompletableFuture.completedFuture(
+                new LoxoneMessage('dev/sps/LoxAPPversion3', 200, DateValue.create(changedApp.lastModified)))
+        1 * webSocket.sendCommand(Command.LOX_APP) >> {
+            appCmdListener.onCommand(Command.LOX_APP, changedApp)
+            CompletableFuture.completedFuture(changedApp)
+        }
+        1 * webSocket.forget(removed.states.values().flatten() as Set)
+        0 * webSocket.setValueFilter(*_)
+        1 * appListener.onLoxoneApp(changedApp)
+        1 * appListener.onLoxoneAppChanged(changedApp, { LoxoneAppDiff diff ->
+            diff.removedControls == [removed] && diff.addedControls.isEmpty() && diff.changedControls.isEmpty()
+        })
+    }
 }
@@ -0,0 +1,50 @@
+package cz.smarteon.loxone
+
+import spock.lang.Specification
+
+class LoxoneUuidRegistryTest extends Specification {
+
+    def "should resolve canonical instances"() {
+        given:
+        def uuids = (1..1000).collect { new LoxoneUuid(0x0f86a2fe03780000L + it, 0xffffb2d4efc8b5b6L) }
+        def registry = LoxoneUuidRegistry.of(uuids)
+
+        expect:
+        registry.size() == 1000
+        uuids.every { uuid ->
+            def copy = new LoxoneUuid(uuid.toString())
+            registry.intern(copy).is(uuid) && registry.get(uuid.hi, uuid.lo).is(uuid)
+        }
+        uuids.indexed().every { index, uuid -> registry.indexOf(uuid) == index && registry.get(index).is(uuid) }
+    }
+
+    def "should not resolve unknown uuid"() {
+        given:
+        def known = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def unknown = new LoxoneUuid('0f86a2fe-0378-3e09-ffffb2d4efc8b5b6')
+        def registry = LoxoneUuidRegistry.of([known])
+
+        expect:
+        registry.indexOf(unknown) == -1
+        registry.get(unknown.hi, unknown.lo) == null
+        registry.intern(unknown).is(unknown)
+        registry.resolve(unknown.hi, unknown.lo) == unknown
+    }
+
+    def "should keep first of duplicates"() {
+        given:
+        def first = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def second = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def registry = LoxoneUuidRegistry.of([first, second])
+
+        expect:
+        registry.size() == 1
+        registry.intern(second).is(first)
+    }
+
+    def "should be empty"() {
+        expect:
+        LoxoneUuidRegistry.empty().size() == 0
+        LoxoneUuidRegistry.empty().indexOf(0L, 0L) == -1
+    }
+}
@@ -31,8 +31,32 @@ class LoxoneUuidTest extends Specification implements SerializationSupport {
         new LoxoneUuid(testUuidString) == testUuid
     }
 
+    def "should provide 128 bits"() {
+        expect:
+        testUuid.hi == 0x0f86a2fe03783e08L
+        testUuid.lo == 0xffffb2d4efc8b5b6L
+        new LoxoneUuid(testUuid.hi, testUuid.lo) == testUuid
+    }
+
+    def "should parse upper case"() {
+        expect:
+        new LoxoneUuid(testUuidString.toUpperCase()) == testUuid
+    }
+
+    def "should not parse malformed uuid"() {
+        when:
+        new LoxoneUuid(value)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        value << ['0f86a2fe-0378-3e08-ffffb2d4efc8b5b', '0f86a2fe-0378-3e08-ffffb2d4efc8b5bx',
+                  '0f86a2fe03783e08ffffb2d4efc8b5b6xxx', '0f86a2fe-0378-3e08-ffffb2d4efc8b5b6/AI1']
+    }
+
     def "should verify equals"() {
         expect:
-        EqualsVerifier.forClass(LoxoneUuid).verify()
+        EqualsVerifier.forClass(LoxoneUuid).withCachedHashCode('hash', 'calculateHash', testUuid).verify()
     }
 }
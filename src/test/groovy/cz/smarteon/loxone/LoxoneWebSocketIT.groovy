@@ -12,6 +12,7 @@ import spock.util.concurrent.PollingConditions
 
 import java.security.Security
 import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
 import java.util.concurrent.TimeUnit
 
 import static cz.smarteon.loxone.Command.voidWsCommand
@@ -112,10 +113,11 @@ class LoxoneWebSocketIT extends Specification {
         server.badCredentials = 1
 
         when:
-        lws.sendCommand(voidWsCommand(KNOWN, 'baf'))
+        lws.sendCommand(voidWsCommand(KNOWN, 'baf')).get()
 
         then:
-        thrown(LoxoneException)
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneException
     }
 
 //    @Ignore("Unreliable test since it's impossible to detect when the same port is again free to bind")
@@ -1,14 +1,25 @@
 package cz.smarteon.loxone
 
-
+import com.fasterxml.jackson.databind.node.TextNode
+import cz.smarteon.loxone.message.JsonValue
+import cz.smarteon.loxone.message.LoxoneMessage
+import cz.smarteon.loxone.message.MessageHeader
+import cz.smarteon.loxone.message.MessageKind
 import org.bouncycastle.jce.provider.BouncyCastleProvider
 import org.java_websocket.client.WebSocketClient
 import spock.lang.Specification
 import spock.lang.Subject
+import spock.util.concurrent.PollingConditions
 
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
 import java.security.Security
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
 import java.util.function.Function
 
+import static cz.smarteon.loxone.message.ControlCommand.genericControlCommand
+
 class LoxoneWebSocketTest extends Specification {
 
     LoxoneAuth authMock
@@ -53,6 +64,7 @@ class LoxoneWebSocketTest extends Specification {
 
         when:
         loxoneWebSocket.sendCommand(Command.LOX_APP)
+        waitForState(ConnectionState.READY)
 
         then:
         loxoneWebSocket.retries == 0
@@ -62,6 +74,7 @@ class LoxoneWebSocketTest extends Specification {
         1 * authMock.startAuthentication() >> { authListener.authCompleted() }
 
         when:
+        loxoneWebSocket.wsClosed(wsClientMock)
         loxoneWebSocket.autoRestart()
         sleep(2100)
 
@@ -101,12 +114,118 @@ class LoxoneWebSocketTest extends Specification {
         remote << [true, false]
     }
 
+    def "should complete commands by response control"() {
+        given:
+        def first = genericControlCommand('uuid1', 'On')
+        def second = genericControlCommand('uuid2', 'Off')
+        authMock.isUsable() >> true
+
+        when:
+        def firstFuture = loxoneWebSocket.sendCommand(first)
+        def secondFuture = loxoneWebSocket.sendCommand(second)
+        waitForState(ConnectionState.READY)
+        loxoneWebSocket.processMessage(response('dev/sps/io/uuid2/Off'))
+
+        then:
+        1 * wsClientMock.connect() >> { loxoneWebSocket.connectionOpened() }
+        1 * authMock.startAuthentication() >> { authListener.authCompleted() }
+        !firstFuture.isDone()
+        secondFuture.get().control == 'dev/sps/io/uuid2/Off'
+
+        when:
+        loxoneWebSocket.processMessage(response('dev/sps/io/uuid1/On'))
+
+        then:
+        firstFuture.get().control == 'dev/sps/io/uuid1/On'
+    }
+
+    def "should drop timed out secured command"() {
+        given:
+        def command = genericControlCommand('uuid1', 'pulse')
+        def control = 'dev/sps/ios/visuHash/uuid1/pulse'
+        authMock.isUsable() >> true
+        authMock.getVisuHash() >> 'visuHash'
+        authMock.startVisuAuthentication() >> { authListener.visuAuthCompleted() }
+        loxoneWebSocket.@commandPipeline.responseTimeoutMillis = 100
+
+        when:
+        def timedOut = loxoneWebSocket.sendSecureCommand(command)
+        waitForState(ConnectionState.READY)
+        timedOut.get()
+
+        then:
+        1 * wsClientMock.connect() >> { loxoneWebSocket.connectionOpened() }
+        1 * authMock.startAuthentication() >> { authListener.authCompleted() }
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneException
+        new PollingConditions(timeout: 1).eventually {
+            assert loxoneWebSocket.@pendingCommands.size() == 0
+        }
+
+        when:
+        def next = loxoneWebSocket.sendSecureCommand(command)
+        new PollingConditions(timeout: 1).eventually {
+            assert loxoneWebSocket.@pendingCommands.size() == 1
+        }
+        loxoneWebSocket.processMessage(response(control))
+
+        then:
+        next.get().control == control
+    }
+
+    def "should download files to channel"() {
+        given:
+        def textOut = new ByteArrayOutputStream()
+        def binaryOut = new ByteArrayOutputStream()
+        def text = '{"name": "Lo\u017enice"}'
+        authMock.isUsable() >> true
+
+        when:
+        def textFuture = loxoneWebSocket.download('data/file.json', Channels.newChannel(textOut))
+        def binaryFuture = loxoneWebSocket.download('data/file.png', Channels.newChannel(binaryOut))
+        waitForState(ConnectionState.READY)
+
+        then:
+        1 * wsClientMock.connect() >> { loxoneWebSocket.connectionOpened() }
+        1 * authMock.startAuthentication() >> { authListener.authCompleted() }
+        1 * wsClientMock.send('data/file.json')
+        1 * wsClientMock.send('data/file.png')
+
+        when:
+        loxoneWebSocket.processFile(new MessageHeader(MessageKind.FILE, false, 10), text)
+        loxoneWebSocket.processEvents(new MessageHeader(MessageKind.FILE, false, 3), ByteBuffer.wrap([1, 2, 3] as byte[]))
+
+        then:
+        textFuture.get() == text.getBytes('UTF-8').length
+        new String(textOut.toByteArray(), 'UTF-8') == text
+        binaryFuture.get() == 3
+        binaryOut.toByteArray() == [1, 2, 3] as byte[]
+    }
+
+    def "should fail pending commands when closed"() {
+        given:
+        loxoneWebSocket.setRetries(0)
+
+        when:
+        def future = loxoneWebSocket.sendCommand(Command.LOX_APP)
+        waitForState(ConnectionState.READY)
+        loxoneWebSocket.wsClosed(wsClientMock)
+        future.get()
+
+        then:
+        1 * wsClientMock.connect() >> { loxoneWebSocket.connectionOpened() }
+        1 * authMock.startAuthentication() >> { authListener.authCompleted() }
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneConnectionException
+    }
+
     def "should close properly"() {
         given:
         loxoneWebSocket.setRetries(0)
 
         when:
         loxoneWebSocket.sendCommand(Command.LOX_APP)
+        waitForState(ConnectionState.READY)
         loxoneWebSocket.close()
 
         then:
@@ -115,6 +234,7 @@ class LoxoneWebSocketTest extends Specification {
         1 * wsClientMock.closeBlocking()
 
         loxoneWebSocket.scheduler.shutdown
+        loxoneWebSocket.@dispatchExecutor.shutdown
     }
 
     def "should close properly when ws interrupted"() {
@@ -123,6 +243,7 @@ class LoxoneWebSocketTest extends Specification {
 
         when:
         loxoneWebSocket.sendCommand(Command.LOX_APP)
+        waitForState(ConnectionState.READY)
         loxoneWebSocket.close()
 
         then:
@@ -134,4 +255,73 @@ class LoxoneWebSocketTest extends Specification {
 
         thrown(LoxoneException)
     }
+
+    def "should park commands until ready"() {
+        when:
+        def future = loxoneWebSocket.sendCommand(Command.LOX_APP)
+        waitForState(ConnectionState.CONNECTING)
+        sleep(100)
+
+        then:
+        1 * wsClientMock.connect()
+        0 * wsClientMock.send(_)
+        !future.isDone()
+
+        when:
+        loxoneWebSocket.connectionOpened()
+        waitForState(ConnectionState.READY)
+
+        then:
+        1 * authMock.startAuthentication() >> { authListener.tokenRequested(); authListener.authCompleted() }
+        1 * wsClientMock.send(Command.LOX_APP.command)
+    }
+
+    def "should fail parked commands when unable to connect"() {
+        given:
+        loxoneWebSocket.setRetries(1)
+
+        when:
+        def future = loxoneWebSocket.sendCommand(Command.LOX_APP)
+        def stateAfterSend = loxoneWebSocket.connectionState
+        future.get()
+
+        then:
+        stateAfterSend == ConnectionState.CONNECTING
+        2 * wsClientMock.connect()
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneException
+        loxoneWebSocket.connectionState == ConnectionState.DISCONNECTED
+    }
+
+    def "should not dispatch by scheduler"() {
+        expect:
+        !loxoneWebSocket.dispatchExecutor.is(loxoneWebSocket.scheduler)
+    }
+
+    def "should not shut down shared executors"() {
+        given:
+        def sharedScheduler = Executors.newScheduledThreadPool(1)
+        def sharedWebSocket = new LoxoneWebSocket(new LoxoneEndpoint('localhost', 12345), authMock,
+                sharedScheduler, sharedScheduler)
+
+        when:
+        sharedWebSocket.close()
+
+        then:
+        !sharedScheduler.isShutdown()
+        scheduler.is(sharedScheduler)
+
+        cleanup:
+        sharedScheduler.shutdownNow()
+    }
+
+    private void waitForState(ConnectionState state) {
+        new PollingConditions(timeout: 2).eventually {
+            assert loxoneWebSocket.connectionState == state
+        }
+    }
+
+    private static String response(String control) {
+        Codec.writeMessage(new LoxoneMessage(control, 200, new JsonValue(TextNode.valueOf('1'))))
+    }
 }
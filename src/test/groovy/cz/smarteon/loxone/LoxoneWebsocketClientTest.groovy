@@ -25,7 +25,7 @@ class LoxoneWebsocketClientTest extends Specification {
         client.onClose(1000, 'some reason', remote)
 
         then:
-        1 * webSocket.wsClosed()
+        1 * webSocket.wsClosed(client)
         1 * webSocket.connectionClosed(1000, remote)
         if (remote) {
             1 * webSocket.autoRestart()
@@ -0,0 +1,109 @@
+package cz.smarteon.loxone
+
+import cz.smarteon.loxone.message.EncryptedCommand
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.nio.channels.Channels
+import java.util.concurrent.ExecutionException
+
+import static cz.smarteon.loxone.app.MiniserverType.KNOWN
+import static cz.smarteon.loxone.message.ControlCommand.genericControlCommand
+import static cz.smarteon.loxone.message.TokenPermissionType.WEB
+
+class PendingCommandsTest extends Specification {
+
+    @Subject PendingCommands pendingCommands = new PendingCommands()
+
+    def "should correlate by control regardless of the order"() {
+        given:
+        def first = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+        def second = pendingCommands.add(genericControlCommand('uuid2', 'Off'))
+
+        expect:
+        pendingCommands.size() == 2
+        pendingCommands.poll('dev/sps/io/uuid2/Off') == second
+        pendingCommands.poll('jdev/sps/io/uuid1/On') == first
+        pendingCommands.poll('dev/sps/io/uuid1/On') == null
+        pendingCommands.size() == 0
+    }
+
+    def "should correlate same commands in order"() {
+        given:
+        def first = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+        def second = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+
+        expect:
+        pendingCommands.poll('dev/sps/io/uuid1/On') == first
+        pendingCommands.poll('dev/sps/io/uuid1/On') == second
+    }
+
+    def "should correlate responses without control in order"() {
+        given:
+        def control = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+        def app = pendingCommands.add(Command.LOX_APP)
+
+        expect:
+        pendingCommands.poll(null) == app
+        pendingCommands.poll('dev/sps/io/uuid1/On') == control
+    }
+
+    def "should poll oldest raw command of type"() {
+        given:
+        def app = pendingCommands.add(Command.LOX_APP)
+        def file = pendingCommands.add(new FileCommand('data/file.json', Channels.newChannel(new ByteArrayOutputStream())))
+
+        expect:
+        pendingCommands.pollRaw(FileCommand) == null
+        pendingCommands.poll(null) == app
+        pendingCommands.pollRaw(FileCommand) == file
+        pendingCommands.pollRaw(FileCommand) == null
+    }
+
+    def "should fallback to command matching"() {
+        given:
+        def cmd = EncryptedCommand.getToken('hash', 'user', WEB, 'uuid', 'info', { 'encrypted' })
+        def pending = pendingCommands.add(cmd)
+
+        expect:
+        pendingCommands.poll('dev/sys/gettoken/hash/user/2/uuid/info') == pending
+    }
+
+    def "should complete void command"() {
+        given:
+        def pending = pendingCommands.add(Command.voidWsCommand(KNOWN, 'jdev/test'))
+
+        when:
+        pending.complete('ignored')
+
+        then:
+        pending.future.isDone()
+        pending.future.get() == null
+    }
+
+    def "should fail all"() {
+        given:
+        def pending = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+
+        when:
+        pendingCommands.failAll(new LoxoneConnectionException('closed'))
+        pending.future.get()
+
+        then:
+        pendingCommands.size() == 0
+        def e = thrown(ExecutionException)
+        e.cause instanceof LoxoneConnectionException
+    }
+
+    def "should remove cancelled"() {
+        given:
+        def pending = pendingCommands.add(genericControlCommand('uuid1', 'On'))
+
+        when:
+        pending.future.cancel(true)
+
+        then:
+        pendingCommands.size() == 0
+        pendingCommands.poll('dev/sps/io/uuid1/On') == null
+    }
+}
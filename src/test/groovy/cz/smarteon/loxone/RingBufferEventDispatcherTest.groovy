@@ -0,0 +1,86 @@
+package cz.smarteon.loxone
+
+import cz.smarteon.loxone.message.LoxoneEvent
+import cz.smarteon.loxone.message.ValueEvent
+import spock.lang.Specification
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+import static cz.smarteon.loxone.RingBufferEventDispatcher.WaitStrategy
+
+class RingBufferEventDispatcherTest extends Specification {
+
+    def "should reject buffer size not being power of two"() {
+        when:
+        new RingBufferEventDispatcher(3, WaitStrategy.BLOCKING)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "should drop events when buffer is full"() {
+        given:
+        def dispatcher = new RingBufferEventDispatcher(2, WaitStrategy.BLOCKING)
+
+        expect:
+        dispatcher.publish(event(1))
+        dispatcher.publish(event(2))
+        !dispatcher.publish(event(3))
+        dispatcher.droppedEvents == 1
+        dispatcher.bufferedEvents == 2
+    }
+
+    @Unroll
+    def "should dispatch events in order using #waitStrategy"() {
+        given:
+        def dispatcher = new RingBufferEventDispatcher(16, waitStrategy)
+        List<LoxoneEvent> received = new CopyOnWriteArrayList<>()
+        dispatcher.start({ received << it })
+
+        when:
+        def published = (1..10).collect { event(it) }
+        published.each { dispatcher.publish(it) }
+
+        then:
+        new PollingConditions(timeout: 2).eventually {
+            assert received == published
+        }
+        dispatcher.droppedEvents == 0
+
+        cleanup:
+        dispatcher.stop()
+
+        where:
+        waitStrategy << WaitStrategy.values()
+    }
+
+    def "should continue after listener failure"() {
+        given:
+        def dispatcher = new RingBufferEventDispatcher(4, WaitStrategy.BLOCKING)
+        List<LoxoneEvent> received = new CopyOnWriteArrayList<>()
+        dispatcher.start({
+            if (it.value == 1d) {
+                throw new IllegalStateException('failing listener')
+            }
+            received << it
+        })
+
+        when:
+        dispatcher.publish(event(1))
+        dispatcher.publish(event(2))
+
+        then:
+        new PollingConditions(timeout: 2).eventually {
+            assert received*.value == [2d]
+        }
+
+        cleanup:
+        dispatcher.stop()
+    }
+
+    private static ValueEvent event(int value) {
+        new ValueEvent(new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6'), value)
+    }
+}
@@ -0,0 +1,38 @@
+package cz.smarteon.loxone
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.TimeUnit
+
+class ValueFilterTest extends Specification {
+
+    @Unroll
+    def "should #desc with #filter"() {
+        expect:
+        filter.accepts(last, 0, value, nanos) == accepted
+
+        where:
+        filter                                                   | last  | value  | nanos || accepted
+        ValueFilter.changeOnly()                                 | 1.0d  | 1.0d   | 0     || false
+        ValueFilter.changeOnly()                                 | 1.0d  | 1.1d   | 0     || true
+        ValueFilter.deadband(0.5)                                | 1.0d  | 1.5d   | 0     || false
+        ValueFilter.deadband(0.5)                                | 1.0d  | 0.4d   | 0     || true
+        ValueFilter.relativeDeadband(0.1)                        | 100d  | 109d   | 0     || false
+        ValueFilter.relativeDeadband(0.1)                        | 100d  | 111d   | 0     || true
+        ValueFilter.minInterval(1, TimeUnit.SECONDS)             | 1.0d  | 2.0d   | 999   || false
+        ValueFilter.minInterval(1, TimeUnit.SECONDS)             | 1.0d  | 2.0d   | 1_000_000_000L || true
+        ValueFilter.deadband(0.5).withMinInterval(1, TimeUnit.SECONDS) | 1.0d | 1.2d | 1_000_000_000L || false
+        ValueFilter.deadband(0.5).withMinInterval(1, TimeUnit.SECONDS) | 1.0d | 2.0d | 999 || false
+
+        desc = accepted ? 'accept' : 'reject'
+    }
+
+    def "should not allow negative deadband"() {
+        when:
+        ValueFilter.deadband(-1)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
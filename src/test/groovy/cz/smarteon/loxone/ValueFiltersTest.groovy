@@ -0,0 +1,91 @@
+package cz.smarteon.loxone
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+class ValueFiltersTest extends Specification {
+
+    static final LoxoneUuid FILTERED = new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c')
+    static final LoxoneUuid OTHER = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+
+    @Subject ValueFilters filters = new ValueFilters()
+
+    def "should compare to last delivered value"() {
+        given:
+        filters.set(FILTERED, ValueFilter.deadband(0.5))
+
+        expect:
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+        !filters.accept(FILTERED.hi, FILTERED.lo, 1.3d)
+        !filters.accept(FILTERED.hi, FILTERED.lo, 1.5d)
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.6d)
+        !filters.accept(FILTERED.hi, FILTERED.lo, 2.0d)
+    }
+
+    def "should accept unfiltered values"() {
+        given:
+        filters.set(FILTERED, ValueFilter.changeOnly())
+
+        expect:
+        filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+        filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+    }
+
+    def "should remove filter"() {
+        given:
+        filters.set(FILTERED, ValueFilter.changeOnly())
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+
+        when:
+        filters.set(FILTERED, null)
+
+        then:
+        filters.isEmpty()
+        filters.get(FILTERED) == null
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+    }
+
+    def "should set filter of uuids at once"() {
+        when:
+        filters.set([FILTERED, OTHER], ValueFilter.changeOnly())
+
+        then:
+        filters.get(FILTERED) == filters.get(OTHER)
+        filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+        !filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+    }
+
+    def "should keep last delivered values of unchanged filters"() {
+        given:
+        def changeOnly = ValueFilter.changeOnly()
+        filters.set([FILTERED, OTHER], changeOnly)
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+        filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+
+        when:
+        filters.set(OTHER, ValueFilter.deadband(0.5))
+        filters.set(FILTERED, changeOnly)
+
+        then:
+        !filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+        filters.accept(OTHER.hi, OTHER.lo, 1.0d)
+
+        when:
+        filters.remove([OTHER])
+
+        then:
+        !filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+    }
+
+    def "should keep last delivered value of equal filter"() {
+        given:
+        filters.set(FILTERED, ValueFilter.deadband(0.5))
+        filters.accept(FILTERED.hi, FILTERED.lo, 1.0d)
+
+        when:
+        filters.set(FILTERED, ValueFilter.deadband(0.5))
+
+        then:
+        !filters.accept(FILTERED.hi, FILTERED.lo, 1.2d)
+    }
+}
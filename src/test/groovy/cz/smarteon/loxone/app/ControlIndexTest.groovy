@@ -0,0 +1,79 @@
+package cz.smarteon.loxone.app
+
+import cz.smarteon.loxone.LoxoneException
+import cz.smarteon.loxone.LoxoneUuid
+import cz.smarteon.loxone.message.SerializationSupport
+import spock.lang.Shared
+import spock.lang.Specification
+
+class ControlIndexTest extends Specification implements SerializationSupport {
+
+    private static final LoxoneUuid CENTRAL = new LoxoneUuid('0f869a64-028d-0cc2-ffffd4c75dbaf53c')
+    private static final LoxoneUuid BEDROOM = new LoxoneUuid('0f869a64-025f-0c2c-ffffd4c75dbaf53c')
+
+    @Shared LoxoneApp app = readResource('app/LoxAPP3.json', LoxoneApp)
+    @Shared ControlIndex index = app.controlIndex
+
+    def "should index controls by ordinal"() {
+        expect:
+        index.size() == 6
+        app.controls.values().eachWithIndex { control, i ->
+            assert index.control(i).is(control)
+            assert index.ordinal(control.uuid) == i
+        }
+        index.ordinal(new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c')) == -1
+    }
+
+    def "should provide controls by type hierarchy"() {
+        expect:
+        index.controls(AlarmControl)*.name == ['Alarm']
+        index.controls(Control).size() == 6
+        index.controls(UnknownControl).size() == 2
+        index.controls(JalousieControl).isEmpty()
+        index.controls(Control).is(index.controls(Control))
+        app.getControls(LightControllerControl) == index.controls(LightControllerControl)
+    }
+
+    def "should provide modifiable copy of controls by type"() {
+        when:
+        def controls = app.getControls(UnknownControl)
+        controls.clear()
+
+        then:
+        index.controls(UnknownControl).size() == 2
+    }
+
+    def "should select by room, type and secured flag"() {
+        given:
+        def selection = index.select()
+
+        expect:
+        selection.inRoom(CENTRAL).count() == 4
+        selection.notSecured().count() == 3
+        selection.ofType(PushbuttonControl).toList()*.name == ['Vše vyp.']
+        selection.all().inRoom(BEDROOM).ofType(AlarmControl).isEmpty()
+        selection.all().secured().first() instanceof AlarmControl
+        selection.all().notOfType(UnknownControl).ofExactType(TechnicalAlarmControl).count() == 1
+        selection.all().named('Alarm').first().is(index.controls(AlarmControl).first())
+    }
+
+    def "should find control by name and type"() {
+        expect:
+        index.control('Alarm', AlarmControl).is(index.controls(AlarmControl).first())
+        index.control('Alarm', SwitchControl) == null
+        index.control('Nothing', Control) == null
+    }
+
+    def "should fail on ambiguous name"() {
+        given:
+        def first = new SwitchControl(uuid: new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53c'), name: 'Same')
+        def second = new SwitchControl(uuid: new LoxoneUuid('0f869a64-0200-0a9b-ffffd4c75dbaf53d'), name: 'Same')
+        def app = new LoxoneApp(new Date(), Mock(MiniserverInfo), [:], [(first.uuid): first, (second.uuid): second])
+
+        when:
+        app.getControl('Same', SwitchControl)
+
+        then:
+        thrown(LoxoneException)
+    }
+}
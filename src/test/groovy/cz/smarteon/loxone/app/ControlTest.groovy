@@ -1,6 +1,7 @@
 package cz.smarteon.loxone.app
 
 import cz.smarteon.loxone.LoxoneUuid
+import cz.smarteon.loxone.LoxoneUuids
 import cz.smarteon.loxone.message.SerializationSupport
 import spock.lang.Specification
 import spock.lang.Unroll
@@ -29,4 +30,110 @@ class ControlTest extends Specification implements SerializationSupport {
         typeName = type.simpleName
         secured = type == AlarmControl
     }
+
+    def "should map details on first access"() {
+        when:
+        def control = readResource('app/alarmControl.json', Control)
+
+        then:
+        control.@details == null
+        control.details == [alert: true, presenceConnected: true]
+        control.@details.is(control.details)
+    }
+
+    def "should compare details without mapping"() {
+        given:
+        def control = readResource('app/alarmControl.json', Control)
+        def same = readResource('app/alarmControl.json', Control)
+
+        expect:
+        control.detailsEqual(same)
+        control.@details == null
+        same.@details == null
+    }
+
+    def "should keep states compact"() {
+        when:
+        def control = readResource('app/alarmControl.json', Control)
+        def other = readResource('app/alarmControl.json', Control)
+
+        then:
+        control.@states.@names.is(other.@states.@names)
+        control.@states.@starts == null
+        control.states.armed == [new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')]
+
+        when:
+        control.states.put('armed', null)
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "should keep multi uuid states"() {
+        given:
+        def first = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def second = new LoxoneUuid('10a73e3b-01c5-18ff-ffff373f9870b52a')
+        def states = [single: [first] as LoxoneUuids, multi: [first, second] as LoxoneUuids, none: new LoxoneUuids()]
+
+        when:
+        def compact = ControlStates.of(states)
+
+        then:
+        compact == states
+        compact.keySet() as List == ['single', 'multi', 'none']
+        compact.uuid('single') == first
+        compact.uuid('multi') == null
+        compact.uuid('none') == null
+    }
+
+    def "should resolve state slots on load"() {
+        given:
+        def uuid = new LoxoneUuid('110cb849-0125-20f9-ffffac0ced78bcf2')
+
+        when:
+        def control = new SwitchControl()
+        control.states = [active: [uuid] as LoxoneUuids]
+
+        then:
+        control.@stateSlots == [uuid] as LoxoneUuid[]
+        control.stateActive() == uuid
+
+        when:
+        control.states = [other: [uuid] as LoxoneUuids]
+        control.stateActive()
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == 'Missing compulsory state active'
+    }
+
+    def "should return null for missing optional state"() {
+        when:
+        def control = new TechnicalAlarmControl()
+        control.states = [level: [new LoxoneUuid('110cb849-0125-20f9-ffffac0ced78bcf2')] as LoxoneUuids]
+
+        then:
+        control.stateTimeServiceMode() == null
+    }
+
+    def "should report missing compulsory states"() {
+        given:
+        def uuid = new LoxoneUuid('110cb849-0125-20f9-ffffac0ced78bcf2')
+        def control = new SwitchControl()
+
+        expect:
+        control.missingStates == ['active']
+
+        when:
+        control.states = [other: [uuid] as LoxoneUuids]
+
+        then:
+        control.missingStates == ['active']
+
+        when:
+        control.states = [active: [uuid] as LoxoneUuids]
+
+        then:
+        control.missingStates.empty
+    }
 }
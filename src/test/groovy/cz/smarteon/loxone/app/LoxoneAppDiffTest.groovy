@@ -0,0 +1,92 @@
+package cz.smarteon.loxone.app
+
+import cz.smarteon.loxone.LoxoneUuid
+import cz.smarteon.loxone.LoxoneUuids
+import spock.lang.Specification
+
+class LoxoneAppDiffTest extends Specification {
+
+    private static final LoxoneUuid ROOM1 = new LoxoneUuid('0f869a64-028d-0cc2-ffffd4c75dbaf53c')
+    private static final LoxoneUuid ROOM2 = new LoxoneUuid('0f869a64-025f-0c2c-ffffd4c75dbaf53c')
+
+    def "should compute diff of controls and states"() {
+        given:
+        def kept = control(SwitchControl, 1, 'Kept', ROOM1, [active: 11])
+        def renamed = control(SwitchControl, 2, 'Old', ROOM1, [active: 12])
+        def moved = control(SwitchControl, 3, 'Moved', ROOM1, [active: 13])
+        def restated = control(SwitchControl, 4, 'Restated', ROOM1, [active: 14])
+        def removed = control(SwitchControl, 5, 'Removed', ROOM1, [active: 15])
+        def added = control(PushbuttonControl, 6, 'Added', ROOM2, [active: 16])
+        def previous = app([kept, renamed, moved, restated, removed])
+        def current = app([
+                control(SwitchControl, 1, 'Kept', ROOM1, [active: 11]),
+                control(SwitchControl, 2, 'New', ROOM1, [active: 12]),
+                control(SwitchControl, 3, 'Moved', ROOM2, [active: 13]),
+                control(SwitchControl, 4, 'Restated', ROOM1, [active: 24]),
+                added
+        ])
+
+        when:
+        def diff = LoxoneAppDiff.of(previous, current)
+
+        then:
+        !diff.isEmpty()
+        diff.addedControls == [added]
+        diff.removedControls == [removed]
+        diff.changedControls*.previous == [renamed, moved, restated]
+        diff.changedControls*.renamed == [true, false, false]
+        diff.changedControls*.roomChanged == [false, true, false]
+        diff.changedControls*.statesChanged == [false, false, true]
+        diff.changedControls.every { !it.typeChanged && !it.detailsChanged }
+        diff.addedStates == [uuid(24), uuid(16)] as Set
+        diff.removedStates == [uuid(14), uuid(15)] as Set
+    }
+
+    def "should be empty for same app"() {
+        given:
+        def previous = app([control(SwitchControl, 1, 'Kept', ROOM1, [active: 11])])
+        def current = app([control(SwitchControl, 1, 'Kept', ROOM1, [active: 11])])
+
+        expect:
+        LoxoneAppDiff.of(previous, current).isEmpty()
+    }
+
+    def "should detect type and details change"() {
+        given:
+        def previous = app([control(SwitchControl, 1, 'Control', ROOM1, [active: 11])])
+        def changed = control(PushbuttonControl, 1, 'Control', ROOM1, [active: 11])
+        changed.secured = true
+
+        when:
+        def change = LoxoneAppDiff.of(previous, app([changed])).changedControls.first()
+
+        then:
+        change.current.is(changed)
+        change.typeChanged
+        change.detailsChanged
+    }
+
+    private LoxoneApp app(List<Control> controls) {
+        new LoxoneApp(new Date(), Stub(MiniserverInfo), [:], controls.collectEntries { [(it.uuid): it] })
+    }
+
+    private static <T extends Control> T control(Class<T> type, int id, String name, LoxoneUuid room,
+                                                 Map<String, Integer> states) {
+        def control = type.newInstance()
+        control.uuid = uuid(id)
+        control.name = name
+        control.room = room
+        control.states = states.collectEntries { key, value -> [(key): uuids(uuid(value))] }
+        control
+    }
+
+    private static LoxoneUuids uuids(LoxoneUuid uuid) {
+        def uuids = new LoxoneUuids()
+        uuids.add(uuid)
+        uuids
+    }
+
+    private static LoxoneUuid uuid(int id) {
+        new LoxoneUuid(0x0f86a20d02ad17f0L, id)
+    }
+}
@@ -0,0 +1,120 @@
+package cz.smarteon.loxone.app
+
+import cz.smarteon.loxone.Codec
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.file.Files
+
+class LoxoneAppSnapshotTest extends Specification {
+
+    @Shared LoxoneApp app = Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json'))
+
+    def "should round trip application"() {
+        when:
+        def read = LoxoneAppSnapshot.read(ByteBuffer.wrap(LoxoneAppSnapshot.write(app)))
+
+        then:
+        read.lastModified == app.lastModified
+        read.controls.keySet() as List == app.controls.keySet() as List
+        read.rooms.keySet() as List == app.rooms.keySet() as List
+        app.controls.each { uuid, control ->
+            def readControl = read.controls[uuid]
+            assert readControl.class == control.class
+            assert readControl.uuid == control.uuid
+            assert readControl.name == control.name
+            assert readControl.room == control.room
+            assert readControl.secured == control.secured
+            assert readControl.details == control.details
+            assert readControl.states == control.states
+        }
+        app.rooms.each { uuid, room ->
+            def readRoom = read.rooms[uuid]
+            assert readRoom.uuid == room.uuid
+            assert readRoom.name == room.name
+            assert readRoom.image == room.image
+            assert readRoom.defaultRating == room.defaultRating
+            assert readRoom.isFavorite == room.isFavorite
+            assert readRoom.type == room.type
+        }
+        with(read.miniserverInfo) {
+            serialNumber == app.miniserverInfo.serialNumber
+            name == app.miniserverInfo.name
+            projectName == app.miniserverInfo.projectName
+            localUrl == app.miniserverInfo.localUrl
+            remoteUrl == app.miniserverInfo.remoteUrl
+            temperatureUnit == app.miniserverInfo.temperatureUnit
+            currency == app.miniserverInfo.currency
+            squareMeasure == app.miniserverInfo.squareMeasure
+            location == app.miniserverInfo.location
+            categoryTitle == app.miniserverInfo.categoryTitle
+            roomTitle == app.miniserverInfo.roomTitle
+            type == app.miniserverInfo.type
+            shouldSortByRating() == app.miniserverInfo.shouldSortByRating()
+            currentUser.name == app.miniserverInfo.currentUser.name
+            currentUser.uuid == app.miniserverInfo.currentUser.uuid
+            currentUser.admin == app.miniserverInfo.currentUser.admin
+            currentUser.canChangePassword() == app.miniserverInfo.currentUser.canChangePassword()
+            currentUser.rights == app.miniserverInfo.currentUser.rights
+        }
+    }
+
+    def "should share uuid instances"() {
+        when:
+        def read = LoxoneAppSnapshot.read(ByteBuffer.wrap(LoxoneAppSnapshot.write(app)))
+        def control = read.controls.values().first()
+
+        then:
+        read.controls.keySet().first().is(control.uuid)
+        read.rooms.keySet().find { it == control.room }.is(control.room)
+    }
+
+    def "should read mapped file"() {
+        given:
+        def file = Files.createTempFile('loxapp', '.snapshot')
+        LoxoneAppSnapshot.write(app, file)
+
+        when:
+        def read = LoxoneAppSnapshot.read(file)
+
+        then:
+        read.controls.size() == 6
+        read.controls.values().first() instanceof AlarmControl
+
+        cleanup:
+        Files.deleteIfExists(file)
+    }
+
+    def "should refuse invalid snapshot"() {
+        when:
+        LoxoneAppSnapshot.read(ByteBuffer.wrap(bytes as byte[]))
+
+        then:
+        thrown(IOException)
+
+        where:
+        bytes << [
+                [],
+                '{"controls": {}}'.bytes,
+                [0x4C, 0x58, 0x41, 0x50, 0, 0, 0, 99],
+                LoxoneAppSnapshot.write(Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json')))[0..99]
+        ]
+    }
+
+    def "should fail only by IOException on corrupted snapshot"() {
+        given:
+        def valid = LoxoneAppSnapshot.write(Codec.readLoxoneApp(getClass().getResourceAsStream('/app/LoxAPP3.json')))
+
+        expect:
+        (8..<valid.length).each { offset ->
+            def corrupted = valid.clone()
+            corrupted[offset]++
+            try {
+                LoxoneAppSnapshot.read(ByteBuffer.wrap(corrupted))
+            } catch (IOException ignored) {
+                // expected for most of the offsets
+            }
+        }
+    }
+}
@@ -20,6 +20,22 @@ class LoxoneAppTest extends Specification implements SerializationSupport {
         config.controls.values().first() instanceof AlarmControl
     }
 
+    def "should provide uuid registry of canonical instances"() {
+        given:
+        LoxoneApp config = readResource('app/LoxAPP3.json', LoxoneApp)
+        def control = config.controls.values().first()
+        def state = control.states.values().first().only()
+
+        when:
+        def registry = config.getUuidRegistry()
+
+        then:
+        registry.intern(new LoxoneUuid(control.uuid.toString())).is(control.uuid)
+        registry.intern(new LoxoneUuid(state.toString())).is(state)
+        config.rooms.keySet().every { registry.indexOf(it) >= 0 }
+        config.getUuidRegistry().is(registry)
+    }
+
     def "should getControl by type"() {
         given:
         LoxoneApp config = new LoxoneApp(LAST_MODIFIED, Mock(MiniserverInfo), [(UUID): alarmControl])
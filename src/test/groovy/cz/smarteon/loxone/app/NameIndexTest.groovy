@@ -0,0 +1,62 @@
+package cz.smarteon.loxone.app
+
+import cz.smarteon.loxone.LoxoneUuid
+import cz.smarteon.loxone.message.SerializationSupport
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class NameIndexTest extends Specification implements SerializationSupport {
+
+    private static final LoxoneUuid CENTRAL = new LoxoneUuid('0f869a64-028d-0cc2-ffffd4c75dbaf53c')
+    private static final LoxoneUuid BEDROOM = new LoxoneUuid('0f869a64-025f-0c2c-ffffd4c75dbaf53c')
+
+    @Shared LoxoneApp app = readResource('app/LoxAPP3.json', LoxoneApp)
+    @Shared NameIndex index = app.nameIndex
+
+    @Unroll
+    def "should normalize #name"() {
+        expect:
+        NameIndex.normalize(name) == normalized
+
+        where:
+        name                | normalized
+        'Kuchyň'            | 'kuchyn'
+        'ŽLUŤOUČKÝ kůň'     | 'zlutoucky kun'
+        'Obývací pokoj'     | 'obyvaci pokoj'
+        'plain'             | 'plain'
+    }
+
+    def "should find controls by name ignoring case and diacritics"() {
+        expect:
+        index.controls('VSE VYP.')*.name == ['Vše vyp.']
+        index.controls('vse vyp').isEmpty()
+        index.controls('alarm')*.uuid == [new LoxoneUuid('0f86a2fe-0378-3e15-ffff373f9870b52a')]
+    }
+
+    def "should find controls by prefix"() {
+        expect:
+        index.controlsByPrefix('centr')*.name == ['Centrál osvětlení', 'Centrála požáru a úniku vody']
+        index.controlsByPrefix('').size() == 6
+        index.controlsByPrefix('xyz').isEmpty()
+    }
+
+    def "should find controls by prefix in room"() {
+        expect:
+        index.controlsByPrefix('ovladani', BEDROOM)*.name == ['Ovládání osvětlení']
+        index.controlsByPrefix('ovladani', CENTRAL).isEmpty()
+    }
+
+    def "should find rooms"() {
+        expect:
+        index.rooms('LOZNICE')*.uuid == [BEDROOM]
+        index.rooms('lozn').isEmpty()
+        index.roomsByPrefix('ob')*.name == ['Obývací pokoj']
+        index.roomsByPrefix('')*.name == ['Centrál', 'Ložnice', 'Obývací pokoj']
+    }
+
+    def "should build index once"() {
+        expect:
+        app.nameIndex.is(index)
+    }
+}
@@ -1,6 +1,7 @@
 package cz.smarteon.loxone.app
 
 import cz.smarteon.loxone.LoxoneUuid
+import cz.smarteon.loxone.LoxoneUuids
 import cz.smarteon.loxone.message.SerializationSupport
 import spock.lang.Specification
 
@@ -26,4 +27,19 @@ class TechnicalAlarmControlTest extends Specification implements SerializationSu
         control.stateTimeServiceMode() == new LoxoneUuid('1351c8fb-0264-7ef8-fffff8bbb0459c02')
         control.stateAreAlarmSignalsOff() == new LoxoneUuid('1351c8fb-0264-7efb-fffff8bbb0459c02')
     }
+
+    def "should fail on optional state without exactly one uuid"() {
+        given:
+        def control = new TechnicalAlarmControl()
+        control.states = [timeServiceMode: [
+                new LoxoneUuid('1351c8fb-0264-7ef8-fffff8bbb0459c02'),
+                new LoxoneUuid('1351c8fb-0264-7efb-fffff8bbb0459c02')] as LoxoneUuids]
+
+        when:
+        control.stateTimeServiceMode()
+
+        then:
+        thrown(IllegalStateException)
+        control.stateAreAlarmSignalsOff() == null
+    }
 }
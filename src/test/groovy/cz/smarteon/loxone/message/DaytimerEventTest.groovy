@@ -0,0 +1,35 @@
+package cz.smarteon.loxone.message
+
+import cz.smarteon.loxone.LoxoneUuid
+import spock.lang.Specification
+
+class DaytimerEventTest extends Specification {
+
+    def "should have properties"() {
+        when:
+        def uuid = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def entry = new DaytimerEntry(1, 360, 1320, true, 21.5)
+        def event = new DaytimerEvent(uuid, 5.0, [entry])
+
+        then:
+        event.uuid == uuid
+        event.defaultValue == 5.0 as Double
+        event.entries == [entry]
+        entry.mode == 1
+        entry.from == 360
+        entry.to == 1320
+        entry.needActivate
+        entry.value == 21.5 as Double
+    }
+
+    def "should not allow to modify entries"() {
+        given:
+        def event = new DaytimerEvent(new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6'), 5.0, [])
+
+        when:
+        event.entries.add(new DaytimerEntry(0, 0, 1440, false, 1.0))
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+}
@@ -16,4 +16,18 @@ class TextEventTest extends Specification {
         event.iconUuid == icon
         event.text == 'someText'
     }
+
+    def "should decode text lazily as UTF-8"() {
+        given:
+        def uuid = new LoxoneUuid('0f86a2fe-0378-3e08-ffffb2d4efc8b5b6')
+        def icon = new LoxoneUuid('00000000-0000-0000-0000000000000000')
+        def bytes = 'Lo\u017enice'.getBytes('UTF-8')
+
+        when:
+        def event = new TextEvent(uuid, icon, bytes)
+
+        then:
+        event.text == 'Lo\u017enice'
+        event.text.is(event.text)
+    }
 }